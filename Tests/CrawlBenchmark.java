@@ -0,0 +1,71 @@
+package Tests;
+
+import Crawler.*;
+
+/**
+ * Measures crawl throughput against a generated graph hosted by the embedded
+ * SyntheticWebServer, so results are repeatable on a machine with no network.
+ *
+ * # Arguments (all optional):
+ * arg[0] pages to crawl                        (Default 2000)
+ * arg[1] pages in the generated graph          (Default 1000000)
+ * arg[2] virtual hosts                         (Default 100)
+ * arg[3] latency per request in milliseconds   (Default 0)
+ * arg[4] error rate between 0 and 1            (Default 0.01)
+ * arg[5] page size in bytes                    (Default 4096)
+ * arg[6] seed                                  (Default 1)
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class CrawlBenchmark {
+
+    private static final int PORT = 3100;
+
+    /**
+     * Runs the benchmark with the given arguments.
+     * @param args for the benchmark
+     * @throws Exception if the server can't be started
+     */
+    public static void main(String[] args) throws Exception {
+
+        int limit = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int hosts = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        long latency = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        double errorRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.01;
+        int pageSize = args.length > 5 ? Integer.parseInt(args[5]) : 4096;
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+
+        SyntheticWebServer server = SyntheticWebServer.generatedGraph(PORT, pages, hosts, seed);
+        server.setLatency(latency);
+        server.setErrorRate(errorRate);
+        server.setPageSize(pageSize);
+        server.start();
+
+        try {
+
+            WebCrawler crawler = new WebCrawler(server.getSourceUrl());
+            crawler.randomizeTraversal(false);
+            crawler.sendJSONtoStdout(false);
+            crawler.buildCyclicGraph(true);
+
+            long start = System.nanoTime();
+            WebGraph graph = crawler.executeCrawl(limit, DataStructureType.QUEUE);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            graph.printGraphSummary();
+            crawler.getMetrics().printMetricsSummary();
+
+            System.out.println("\n###    BENCHMARK    ###\n");
+            System.out.println("Requests Served: " + server.getRequestCount());
+            System.out.println("Bytes Served: " + server.getByteCount());
+            System.out.println("Elapsed Seconds: " + String.format("%.3f", seconds));
+            System.out.println("Pages Per Second: " + String.format("%.1f", graph.getWebPages().size() / seconds));
+            System.out.println("Requests Per Second: " + String.format("%.1f", server.getRequestCount() / seconds));
+
+        } finally {
+            server.stop();
+        }
+    }
+}
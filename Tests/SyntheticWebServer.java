@@ -0,0 +1,526 @@
+package Tests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded, in-process web server used as a fixture for tests and benchmarks
+ * so a crawl can be run without a network. The server either hosts the
+ * 14 page A - N test graph found in the TestSuite, or a generated graph.
+ *
+ * Generated graphs are never materialized; every page and its links are
+ * derived from the seed and page number on each request, so graphs of
+ * millions of URLs cost no memory. Pages have a power-law out-degree, a
+ * configurable size, and are spread across virtual hosts which each have
+ * their own latency and error rate. Virtual hosts are either addressed by
+ * path (http://localhost:port/v3/g/42) or, on systems that route all of
+ * 127.0.0.0/8 to the loopback interface such as Linux, by a separate
+ * loopback address per host (http://127.0.0.4:port/g/42) so the crawler
+ * sees them as different hostnames.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class SyntheticWebServer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String[] FILLER = {"lorem", "ipsum", "dolor", "sit", "amet",
+            "consectetur", "adipiscing", "elit", "sed", "do", "eiusmod", "tempor"};
+
+    // A - N test graph from the TestSuite, page followed by its links
+    private static final String[][] TEST_GRAPH = {
+            {"A", "B", "C", "D"},
+            {"B", "E", "F"},
+            {"C", "G", "H"},
+            {"D", "I", "J"},
+            {"E", "K"},
+            {"F"},
+            {"G", "F"},
+            {"H"},
+            {"I", "L"},
+            {"J", "M"},
+            {"K", "L"},
+            {"L", "I"},
+            {"M", "D", "J", "N"},
+            {"N", "H"}
+    };
+
+    private final int port;
+    private final boolean generated;
+    private HttpServer server;
+    private ExecutorService executor;
+    private final AtomicLong requestCount;
+    private final AtomicLong byteCount;
+
+    // Generated graph settings
+    private long seed;
+    private int pageCount;
+    private int hostCount;
+    private boolean useLoopbackHosts;
+    private int minOutDegree;
+    private int maxOutDegree;
+    private double exponent;
+    private double hostLocality;
+    private int pageSize;
+    private long defaultLatency;
+    private double defaultErrorRate;
+    private final Map<Integer, Long> hostLatency;
+    private final Map<Integer, Double> hostErrorRate;
+
+    /**
+     * Constructor - builds a server for the given port and graph type.
+     * @param port to listen on
+     * @param generated true for a generated graph and false for the test graph
+     */
+    private SyntheticWebServer(int port, boolean generated){
+
+        this.port = port;
+        this.generated = generated;
+        this.requestCount = new AtomicLong(0);
+        this.byteCount = new AtomicLong(0);
+
+        // Generated Graph - Default Settings
+        seed = 1;
+        pageCount = 1000;
+        hostCount = 1;
+        useLoopbackHosts = false;
+        minOutDegree = 2;
+        maxOutDegree = 200;
+        exponent = 2.1;
+        hostLocality = 0.8;
+        pageSize = 4096;
+        defaultLatency = 0;
+        defaultErrorRate = 0;
+        hostLatency = new HashMap<Integer, Long>();
+        hostErrorRate = new HashMap<Integer, Double>();
+    }
+
+    /**
+     * Returns a server hosting the A - N test graph at http://localhost:port/A
+     * @param port to listen on
+     * @return test graph server, not yet started
+     */
+    public static SyntheticWebServer testGraph(int port){
+
+        return new SyntheticWebServer(port, false);
+    }
+
+    /**
+     * Returns a server hosting a generated graph.
+     * @param port to listen on
+     * @param pageCount number of pages in the graph
+     * @param hostCount number of virtual hosts the pages are spread across
+     * @param seed used to generate the graph
+     * @return generated graph server, not yet started
+     */
+    public static SyntheticWebServer generatedGraph(int port, int pageCount, int hostCount, long seed){
+
+        SyntheticWebServer server = new SyntheticWebServer(port, true);
+        server.pageCount = pageCount;
+        server.hostCount = Math.max(1, hostCount);
+        server.seed = seed;
+
+        return server;
+    }
+
+    /**
+     * Starts the server on a pool of daemon threads.
+     * @throws IOException if the port can't be bound
+     */
+    public void start() throws IOException {
+
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "synthetic-web-server");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Stops the server immediately.
+     */
+    public void stop(){
+
+        if(server != null){
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the url of the first page in the graph.
+     * @return url to start a crawl from
+     */
+    public String getSourceUrl(){
+
+        return generated ? getPageUrl(0) : "http://localhost:" + port + "/A";
+    }
+
+    /**
+     * Returns the url of a page in the generated graph.
+     * @param page number of the page
+     * @return url of the page
+     */
+    public String getPageUrl(int page){
+
+        int host = page % hostCount;
+
+        if(useLoopbackHosts){
+
+            int address = host + 1;
+
+            return "http://127." + ((address >> 16) & 0xFF) + "." + ((address >> 8) & 0xFF)
+                    + "." + (address & 0xFF) + ":" + port + "/g/" + page;
+        }
+
+        return "http://localhost:" + port + "/v" + host + "/g/" + page;
+    }
+
+    /**
+     * Returns the number of requests served.
+     * @return request count
+     */
+    public long getRequestCount(){
+
+        return requestCount.get();
+    }
+
+    /**
+     * Returns the number of body bytes served.
+     * @return byte count
+     */
+    public long getByteCount(){
+
+        return byteCount.get();
+    }
+
+    /**
+     * Sets whether virtual hosts are addressed by separate loopback addresses
+     * instead of by path. Requires 127.0.0.0/8 to be routed to loopback.
+     * @param useLoopbackHosts true to address hosts by loopback address
+     */
+    public void useLoopbackHosts(boolean useLoopbackHosts){
+
+        this.useLoopbackHosts = useLoopbackHosts;
+    }
+
+    /**
+     * Sets the power-law out-degree distribution of the generated pages.
+     * @param min out-degree of a page
+     * @param max out-degree of a page
+     * @param exponent of the power-law, greater than 1
+     */
+    public void setOutDegree(int min, int max, double exponent){
+
+        this.minOutDegree = min;
+        this.maxOutDegree = max;
+        this.exponent = exponent;
+    }
+
+    /**
+     * Sets the chance a link targets a page on the same virtual host.
+     * @param hostLocality between 0 and 1
+     */
+    public void setHostLocality(double hostLocality){
+
+        this.hostLocality = hostLocality;
+    }
+
+    /**
+     * Sets the approximate size of each generated page in bytes.
+     * @param pageSize in bytes
+     */
+    public void setPageSize(int pageSize){
+
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Sets the response latency of every virtual host without its own latency.
+     * @param millis of latency
+     */
+    public void setLatency(long millis){
+
+        this.defaultLatency = millis;
+    }
+
+    /**
+     * Sets the response latency of a single virtual host.
+     * @param host number
+     * @param millis of latency
+     */
+    public void setHostLatency(int host, long millis){
+
+        hostLatency.put(host, millis);
+    }
+
+    /**
+     * Sets the chance a page of a virtual host without its own error rate
+     * returns a server error. Failing pages always fail.
+     * @param errorRate between 0 and 1
+     */
+    public void setErrorRate(double errorRate){
+
+        this.defaultErrorRate = errorRate;
+    }
+
+    /**
+     * Sets the chance a page of a single virtual host returns a server error.
+     * @param host number
+     * @param errorRate between 0 and 1
+     */
+    public void setHostErrorRate(int host, double errorRate){
+
+        hostErrorRate.put(host, errorRate);
+    }
+
+    /**
+     * Responds to a request with the page found at the path or a 404.
+     * @param exchange to respond to
+     * @throws IOException if the response can't be sent
+     */
+    private void respond(HttpExchange exchange) throws IOException {
+
+        requestCount.incrementAndGet();
+
+        String html = generated ? generatedPage(exchange) : testGraphPage(exchange.getRequestURI().getPath());
+
+        if(html == null){
+            send(exchange, 404, "<html><head><title>Not Found</title></head><body></body></html>");
+        } else if(html.isEmpty()){
+            send(exchange, 500, "<html><head><title>Error</title></head><body></body></html>");
+        } else {
+            send(exchange, 200, html);
+        }
+    }
+
+    /**
+     * Sends an html response.
+     * @param exchange to respond to
+     * @param status code of the response
+     * @param html body of the response
+     * @throws IOException if the response can't be sent
+     */
+    private void send(HttpExchange exchange, int status, String html) throws IOException {
+
+        byte[] body = html.getBytes(UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+
+        byteCount.addAndGet(body.length);
+    }
+
+    /**
+     * Returns the html of a test graph page.
+     * @param path of the request
+     * @return html of the page or null if it doesn't exist
+     */
+    private String testGraphPage(String path){
+
+        for(String[] page : TEST_GRAPH){
+
+            if(path.compareTo("/" + page[0]) == 0){
+
+                StringBuilder html = new StringBuilder();
+                html.append("<html><head><title>").append(page[0]).append("</title></head><body>");
+                html.append("<p>test").append(page[0]).append("</p>\n");
+
+                for(int i = 1; i < page.length; i++){
+                    html.append("<a href=\"/").append(page[i]).append("\">").append(page[i]).append("</a>\n");
+                }
+
+                return html.append("</body></html>").toString();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the html of a generated page after applying the latency of its
+     * virtual host.
+     * @param exchange of the request
+     * @return html of the page, an empty string for a server error or null if
+     * the page doesn't exist
+     */
+    private String generatedPage(HttpExchange exchange){
+
+        String path = exchange.getRequestURI().getPath();
+        int host;
+
+        // Find the virtual host by address or by path
+        if(useLoopbackHosts){
+
+            byte[] address = exchange.getLocalAddress().getAddress().getAddress();
+            host = (((address[1] & 0xFF) << 16) | ((address[2] & 0xFF) << 8) | (address[3] & 0xFF)) - 1;
+
+        } else {
+
+            if(!path.startsWith("/v") || path.indexOf('/', 1) < 0){
+                return null;
+            }
+
+            host = parse(path.substring(2, path.indexOf('/', 1)));
+            path = path.substring(path.indexOf('/', 1));
+        }
+
+        if(!path.startsWith("/g/")){
+            return null;
+        }
+
+        int page = parse(path.substring(3));
+
+        if(page < 0 || page >= pageCount || host < 0 || page % hostCount != host){
+            return null;
+        }
+
+        pause(hostLatency.containsKey(host) ? hostLatency.get(host) : defaultLatency);
+
+        // Failing pages are chosen from the seed so the same pages always fail
+        double errorRate = hostErrorRate.containsKey(host) ? hostErrorRate.get(host) : defaultErrorRate;
+
+        if(toUnit(mix(seed ^ 0x5DEECE66DL, page)) < errorRate){
+            return "";
+        }
+
+        return buildGeneratedPage(page);
+    }
+
+    /**
+     * Builds the html of a generated page, derived only from the seed and page
+     * number.
+     * @param page number
+     * @return html of the page
+     */
+    private String buildGeneratedPage(int page){
+
+        StringBuilder html = new StringBuilder(pageSize + 256);
+        html.append("<html><head><title>P").append(page).append("</title>");
+        html.append("<meta name=\"keywords\" content=\"page").append(page).append(" host")
+                .append(page % hostCount).append("\"></head><body>");
+
+        long state = mix(seed, page);
+
+        // Power-law out-degree through inverse transform sampling
+        state = mix(state, 1);
+        double scaled = minOutDegree * Math.pow(1 - toUnit(state), -1 / (exponent - 1));
+        int degree = (int) Math.min(maxOutDegree, Math.min(scaled, pageCount - 1));
+
+        for(int i = 0; i < degree; i++){
+
+            state = mix(state, i);
+            int target;
+
+            // Prefer pages on the same virtual host
+            if(hostCount > 1 && toUnit(state) < hostLocality){
+
+                int pagesOnHost = (pageCount - 1 - page % hostCount) / hostCount + 1;
+                target = page % hostCount + (int) (toUnit(mix(state, 2)) * pagesOnHost) * hostCount;
+
+            } else {
+                target = (int) (toUnit(mix(state, 3)) * pageCount);
+            }
+
+            if(target != page){
+                html.append("<a href=\"").append(getPageUrl(target)).append("\">").append(target).append("</a>\n");
+            }
+        }
+
+        // Pad the page with text up to the page size
+        int word = 0;
+
+        while(html.length() < pageSize){
+            html.append(FILLER[word++ % FILLER.length]).append(' ');
+        }
+
+        return html.append("</body></html>").toString();
+    }
+
+    /**
+     * Mixes a value into a random state using the SplitMix64 finalizer.
+     * @param state to mix into
+     * @param value to mix
+     * @return new random state
+     */
+    private static long mix(long state, long value){
+
+        long z = state + value * 0x9E3779B97F4A7C15L + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns a random state as a number between 0 (inclusive) and 1 (exclusive).
+     * @param state to convert
+     * @return number between 0 and 1
+     */
+    private static double toUnit(long state){
+
+        return (state >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Parses a positive integer.
+     * @param value to parse
+     * @return the integer or -1 if it isn't valid
+     */
+    private static int parse(String value){
+
+        try {
+            return Integer.parseInt(value);
+        } catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Pauses the calling thread to simulate latency.
+     * @param millis to pause for
+     */
+    private static void pause(long millis){
+
+        if(millis > 0){
+
+            try {
+                Thread.sleep(millis);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
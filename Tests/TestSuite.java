@@ -9,9 +9,10 @@ import org.junit.runner.RunWith;
 })
 
 /**
- * Test Suite must be run with the following server on the local host:
+ * Test Suite hosts the following website on the local host through the
+ * embedded SyntheticWebServer, no external server is needed:
  *
- * http://localhost:3001/A
+ * http://localhost:3000/A
  *
  * The hosted website is arranged as follows:
  *                       ┌─────┐
@@ -41,6 +42,8 @@ import org.junit.runner.RunWith;
  *                             │              ┌─────┐
  *                             └──────────────│  N  │
  *                                            └─────┘
+ *
+ * M also links back to J, making J - M bidirectional.
  */
 
 public class TestSuite {}
@@ -1,15 +1,26 @@
 package Tests;
 
 import Crawler.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.After;
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ErrorCollector;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
 public class WebCrawlerTest {
 
+    private static SyntheticWebServer server;
     private WebCrawler crawler;
     private final String URL = "http://localhost:3000/A";
     private final String[] TRAVERSE_ORDER_BFS = {"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M"};
@@ -18,6 +29,19 @@ public class WebCrawlerTest {
     @Rule
     public ErrorCollector collector = new ErrorCollector();
 
+    @BeforeClass
+    public static void startServer() throws IOException {
+
+        server = SyntheticWebServer.testGraph(3000);
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+
+        server.stop();
+    }
+
     @Before
     public void setup() {
 
@@ -143,4 +167,345 @@ public class WebCrawlerTest {
         // Invalid Link Count
         Assert.assertTrue(graph.getInvalidURLCount() == 0);
     }
+
+    @Test
+    public void testBinaryRecordRoundTrip() throws IOException {
+
+        crawler.buildCyclicGraph(true);
+        WebGraph graph = crawler.executeCrawl(14, DataStructureType.QUEUE);
+
+        ArrayList<WebPage> pages = new ArrayList<WebPage>(graph.getWebPages());
+
+        // Null fields and varint edge values, on a page outside the graph
+        WebPage edges = new WebPage("http://localhost:3000/edges", Integer.MAX_VALUE);
+        edges.setTitle(null);
+        edges.setUserAgent(null);
+        edges.setSearchTermFound(null);
+        edges.setKeywords(null);
+        edges.setWordCount(Integer.MIN_VALUE);
+        edges.setCharCount(-1);
+        edges.setByteCount(63);
+        edges.setNumberOfImages(64);
+        edges.setTargetLinkCount(8191);
+        edges.setDeadEnd(true);
+        pages.add(edges);
+
+        OutputBuffer buffer = new OutputBuffer(4096);
+
+        for(WebPage page : pages){
+            BinaryPageCodec.encode(page, buffer);
+        }
+
+        // Truncated final record, as left by a crash mid-write
+        int complete = buffer.size();
+        BinaryPageCodec.encode(pages.get(0), buffer);
+
+        byte[] bytes = buffer.toByteArray();
+        ObjectMapper mapper = new ObjectMapper();
+        BinaryPageReader reader = new BinaryPageReader(
+                new ByteArrayInputStream(bytes, 0, complete + (bytes.length - complete) / 2));
+
+        boolean cyclic = false;
+        boolean bidirectional = false;
+
+        for(WebPage page : pages){
+
+            PageRecord record = reader.next();
+            String json = page.toJson();
+            JsonNode node = mapper.readTree(json.substring(0, json.length() - 3));
+
+            Assert.assertEquals(node.get("id").asInt(), record.getId());
+            Assert.assertEquals(node.get("url").textValue(), record.getUrl());
+            Assert.assertEquals(node.get("hostname").textValue(), record.getHostname());
+            Assert.assertEquals(node.get("ipAddress").textValue(), record.getIpAddress());
+            Assert.assertEquals(node.get("groupId").asInt(), record.getGroupId());
+            Assert.assertEquals(node.get("title").textValue(), record.getTitle());
+            Assert.assertEquals(node.get("userAgent").textValue(), record.getUserAgent());
+            Assert.assertEquals(node.get("height").asInt(), record.getHeight());
+            Assert.assertEquals(node.get("searchTermFound").isNull() ? null
+                    : node.get("searchTermFound").asBoolean(), record.searchTermFound());
+            Assert.assertEquals(node.get("keywords").isNull(), record.getKeywords() == null);
+            Assert.assertEquals(node.get("wordCount").asInt(), record.getWordCount());
+            Assert.assertEquals(node.get("charCount").asInt(), record.getCharCount());
+            Assert.assertEquals(node.get("byteCount").asInt(), record.getByteCount());
+            Assert.assertEquals(node.get("numberOfImages").asInt(), record.getNumberOfImages());
+            Assert.assertEquals(node.get("isDeadEnd").asBoolean(), record.isDeadEnd());
+            Assert.assertEquals(node.get("targetLinkCount").asInt(), record.getTargetLinkCount());
+
+            JsonNode links = node.get("predecessorLinks");
+            Assert.assertEquals(links.size(), record.getPredecessorLinkCount());
+
+            for(int i = 0; i < links.size(); i++){
+
+                Assert.assertEquals(links.get(i).get("sourceId").asInt(), record.getLinkSourceId(i));
+                Assert.assertEquals(links.get(i).get("targetId").asInt(), record.getLinkTargetId(i));
+                Assert.assertEquals(links.get(i).get("cyclic").asBoolean(), record.isLinkCyclic(i));
+                Assert.assertEquals(links.get(i).get("bidirectional").asBoolean(), record.isLinkBidirectional(i));
+
+                cyclic |= record.isLinkCyclic(i);
+                bidirectional |= record.isLinkBidirectional(i);
+            }
+        }
+
+        // Both link flags were carried, and the truncated record is rejected
+        Assert.assertTrue(cyclic && bidirectional);
+
+        try {
+            reader.next();
+            Assert.fail("Truncated record was read");
+        } catch (EOFException e) {
+            // Expected
+        }
+
+        // A zero length ends the pages
+        Assert.assertNull(new BinaryPageReader(new ByteArrayInputStream(new byte[4])).next());
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+
+        crawler.buildCyclicGraph(true);
+        WebGraph graph = crawler.executeCrawl(14, DataStructureType.QUEUE);
+        graph.addInvalidURL("http://localhost:3000/missing", InvalidReason.STATUS_CODE, 404);
+
+        File file = File.createTempFile("graph", ".snap");
+        file.deleteOnExit();
+        WebGraphSnapshotWriter.write(graph, file.getPath());
+
+        WebGraphSnapshot snapshot = new WebGraphSnapshot(file.getPath());
+
+        try {
+
+            // Check the page columns
+            ArrayList<WebPage> pages = graph.getWebPages();
+            Assert.assertEquals(pages.size(), snapshot.getPageCount());
+
+            for(int i = 0; i < pages.size(); i++){
+
+                WebPage page = pages.get(i);
+
+                Assert.assertEquals(page.getId(), snapshot.getPageId(i));
+                Assert.assertEquals(page.getUrl(), snapshot.getUrl(i));
+                Assert.assertEquals(page.getHostname(), snapshot.getHostname(i));
+                Assert.assertEquals(page.getGroupId(), snapshot.getGroupId(i));
+                Assert.assertEquals(page.getTitle(), snapshot.getTitle(i));
+                Assert.assertEquals(page.getUserAgent(), snapshot.getUserAgent(i));
+                Assert.assertEquals(page.getHeight(), snapshot.getHeight(i));
+                Assert.assertEquals(page.searchTermFound(), snapshot.searchTermFound(i));
+                Assert.assertEquals(page.isDeadEnd(), snapshot.isDeadEnd(i));
+                Assert.assertEquals(page.getWordCount(), snapshot.getWordCount(i));
+                Assert.assertEquals(page.getCharCount(), snapshot.getCharCount(i));
+                Assert.assertEquals(page.getByteCount(), snapshot.getByteCount(i));
+                Assert.assertEquals(page.getNumberOfImages(), snapshot.getNumberOfImages(i));
+                Assert.assertEquals(page.getTargetLinkCount(), snapshot.getTargetLinkCount(i));
+                Assert.assertEquals(i, snapshot.indexOfId(page.getId()));
+            }
+
+            Assert.assertEquals(graph.getWebPage(0).getId(), snapshot.getPageId(snapshot.getSourceIndex()));
+            Assert.assertEquals(-1, snapshot.indexOfId(pages.size() + 1));
+            Assert.assertEquals(0, snapshot.indexOfUrl(URL.toLowerCase()));
+
+            // Check the link columns
+            ArrayList<WebLink> links = graph.getWebLinks();
+            Assert.assertEquals(links.size(), snapshot.getLinkCount());
+
+            for(int i = 0; i < links.size(); i++){
+
+                WebLink link = links.get(i);
+
+                Assert.assertEquals(link.getSourceId(), snapshot.getLinkSourceId(i));
+                Assert.assertEquals(link.getTargetId(), snapshot.getLinkTargetId(i));
+                Assert.assertEquals(link.isCyclic(), snapshot.isLinkCyclic(i));
+                Assert.assertEquals(link.isBidirectional(), snapshot.isLinkBidirectional(i));
+            }
+
+            // Check the domain and invalid URL columns
+            ArrayList<Domain> domains = graph.getDomains();
+            Assert.assertEquals(domains.size(), snapshot.getDomainCount());
+
+            for(int i = 0; i < domains.size(); i++){
+
+                Assert.assertEquals(domains.get(i).getDomainId(), snapshot.getDomainId(i));
+                Assert.assertEquals(domains.get(i).getDomainName(), snapshot.getDomainName(i));
+            }
+
+            Assert.assertEquals(1, snapshot.getInvalidURLCount());
+            Assert.assertEquals(graph.getInvalidURLs().get(0), snapshot.getInvalidURL(0));
+
+        } finally {
+            snapshot.close();
+        }
+    }
+
+    @Test
+    public void testBidirectionalThroughOtherPredecessor(){
+
+        // A links to B and C, C links back to B without being its parent.
+        // Through a crawl a page being indexed only has its parent link, so
+        // the other predecessor is built on the graph directly.
+        WebPage a = new WebPage("http://localhost:3000/A", 0);
+        WebGraph graph = new WebGraph(a);
+        graph.addWebPage(a);
+
+        WebPage b = new WebPage("http://localhost:3000/B", 1);
+        b.addPredecessorLink(new WebLink(a, b, false));
+        graph.addWebPage(b);
+
+        WebPage c = new WebPage("http://localhost:3000/C", 1);
+        c.addPredecessorLink(new WebLink(a, c, false));
+        graph.addWebPage(c);
+
+        c.addPredecessorLink(new WebLink(c, b, true));
+        Assert.assertTrue(graph.getCyclicLinkCount() == 1);
+
+        // B links to C, finding C -> B through B's second predecessor
+        Assert.assertTrue(graph.linkToExistingPage(b, c, true));
+
+        WebLink backLink = graph.containsWebLink(c.getId(), b.getId());
+        Assert.assertTrue(backLink.isBidirectional());
+        Assert.assertFalse(backLink.isCyclic());
+
+        // Found again, e.g. a second link on the page, it's counted once
+        Assert.assertTrue(graph.linkToExistingPage(b, c, true));
+
+        GraphStatistics statistics = graph.getStatistics();
+        Assert.assertTrue(statistics.getLinkCount() == 3);
+        Assert.assertTrue(statistics.getBidirectionalLinkCount() == 1);
+        Assert.assertTrue(statistics.getCyclicLinkCount() == 0);
+        Assert.assertTrue(statistics.getAcyclicLinkCount() == 3);
+        Assert.assertNull(graph.containsWebLink(b.getId(), c.getId()));
+    }
+
+    @Test
+    public void testPageRankSpreadsDanglingRank(){
+
+        final double DAMPING_FACTOR = 0.9;
+        final double TOLERANCE = 1e-4;
+
+        crawler.buildCyclicGraph(true);
+        crawler.setHeightLimit(3);
+        crawler.setPageRank(true);
+        crawler.setDampingFactor(DAMPING_FACTOR);
+        WebGraph graph = crawler.executeCrawl(14, DataStructureType.QUEUE);
+
+        ArrayList<WebPage> pages = graph.getWebPages();
+        CsrAdjacency forward = graph.getForwardAdjacency();
+
+        // The ranks sum to one, including the rank of pages without links
+        double sum = 0;
+        double dangling = 0;
+
+        for(int i = 0; i < pages.size(); i++){
+
+            double rank = pages.get(i).getPageRank();
+            Assert.assertTrue(rank > 0);
+            sum += rank;
+
+            if(forward.getDegree(i) == 0){
+                dangling += rank;
+            }
+        }
+
+        Assert.assertTrue(dangling > 0);
+        Assert.assertEquals(1.0, sum, TOLERANCE);
+
+        // Nothing links to the source, so its rank is only the random jump
+        // and its share of the rank spread from pages without links
+        double expected = (1 - DAMPING_FACTOR + DAMPING_FACTOR * dangling) / pages.size();
+        Assert.assertEquals(expected, pages.get(0).getPageRank(), TOLERANCE);
+    }
+
+    @Test
+    public void testStructureOfCyclicGraph(){
+
+        crawler.buildCyclicGraph(true);
+        crawler.setStructureAnalysis(true);
+        WebGraph graph = crawler.executeCrawl(14, DataStructureType.QUEUE);
+
+        WebPage d = null;
+        WebPage j = null;
+        WebPage m = null;
+
+        for(WebPage page : graph.getWebPages()){
+
+            if(page.getTitle().compareTo("D") == 0){
+                d = page;
+            } else if(page.getTitle().compareTo("J") == 0){
+                j = page;
+            } else if(page.getTitle().compareTo("M") == 0){
+                m = page;
+            }
+        }
+
+        Assert.assertNotNull(d);
+        Assert.assertNotNull(j);
+        Assert.assertNotNull(m);
+
+        // J <-> M is bidirectional and M -> D -> J a cycle, so they're one
+        // strong component without the source
+        Assert.assertEquals(d.getStrongComponent(), j.getStrongComponent());
+        Assert.assertEquals(d.getStrongComponent(), m.getStrongComponent());
+
+        WebPage source = graph.getWebPages().get(0);
+        Assert.assertNotEquals(source.getStrongComponent(), d.getStrongComponent());
+
+        // Every page is reached from the source, and a breadth first crawl
+        // reaches each page by a shortest path
+        for(WebPage page : graph.getWebPages()){
+
+            Assert.assertEquals(source.getWeakComponent(), page.getWeakComponent());
+            Assert.assertEquals(Integer.valueOf(page.getHeight()), page.getDistance());
+        }
+    }
+
+    @Test
+    public void testCheckpointResume() throws IOException {
+
+        SyntheticWebServer generated = SyntheticWebServer.generatedGraph(3001, 5000, 10, 7);
+        generated.start();
+
+        try {
+
+            File file = File.createTempFile("crawl", ".ck");
+            file.deleteOnExit();
+            new File(file.getPath() + CrawlCheckpoint.STATE_EXTENSION).deleteOnExit();
+
+            // Crawl without stopping
+            WebCrawler uninterrupted = new WebCrawler(generated.getSourceUrl());
+            uninterrupted.randomizeTraversal(false);
+            uninterrupted.sendJSONtoStdout(false);
+            uninterrupted.buildCyclicGraph(true);
+            WebGraph expected = uninterrupted.executeCrawl(300, DataStructureType.STACK);
+
+            // Stop at half the limit with a checkpoint, then resume it. The
+            // last page before stopping is searched deep first on resume, so
+            // its links must have been kept in the frontier
+            WebCrawler stopped = new WebCrawler(generated.getSourceUrl());
+            stopped.randomizeTraversal(false);
+            stopped.sendJSONtoStdout(false);
+            stopped.buildCyclicGraph(true);
+            stopped.setCheckpointFile(file.getPath());
+            Assert.assertTrue(stopped.executeCrawl(150, DataStructureType.STACK).getWebPageCount() == 150);
+
+            WebCrawler resumed = new WebCrawler(generated.getSourceUrl());
+            resumed.randomizeTraversal(false);
+            resumed.sendJSONtoStdout(false);
+            resumed.buildCyclicGraph(true);
+            resumed.setCheckpointFile(file.getPath());
+            resumed.setResumeFile(file.getPath());
+            WebGraph graph = resumed.executeCrawl(300, DataStructureType.STACK);
+
+            Assert.assertEquals(expected.getWebPageCount(), graph.getWebPageCount());
+            Assert.assertEquals(expected.getLinkCount(), graph.getLinkCount());
+            Assert.assertEquals(expected.getCyclicLinkCount(), graph.getCyclicLinkCount());
+            Assert.assertEquals(expected.getBidirectionalLinkCount(), graph.getBidirectionalLinkCount());
+
+            for(int i = 0; i < expected.getWebPageCount(); i++){
+                Assert.assertEquals(expected.getWebPage(i).getUrl(), graph.getWebPage(i).getUrl());
+            }
+
+        } finally {
+            generated.stop();
+        }
+    }
 }
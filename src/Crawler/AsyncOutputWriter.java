@@ -0,0 +1,419 @@
+package Crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Output sink that moves the writing of pages onto a dedicated writer thread,
+ * so the crawl isn't held up by a slow consumer of its outputs. Records are
+ * copied into a bounded ring buffer of reusable slots, and the writer thread
+ * hands them to the wrapped sinks in batches. The sinks are flushed once a
+ * batch reaches the flush size or the flush interval has passed.
+ *
+ * When the buffer is full the overflow policy decides whether the crawl
+ * blocks, the record is dropped, or the record is spilled to a queue on
+ * local disk. Once spilling starts, every record goes to the spill queue
+ * until the writer thread has caught up, so pages are always written in the
+ * order they were crawled.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class AsyncOutputWriter implements OutputSink {
+
+    private static final int DEFAULT_SLOT_SIZE = 4096;
+
+    private final ArrayList<OutputSink> sinks;
+    private final OverflowPolicy policy;
+    private final long flushIntervalNanos;
+    private final long flushBytes;
+    private final File spillDirectory;
+
+    // Ring buffer, guarded by the lock. Slots from head to head + count are
+    // owned by the writer thread until it releases them.
+    private final byte[][] slots;
+    private final int[] lengths;
+    private int head;
+    private int tail;
+    private int count;
+
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final Condition flushed;
+
+    private SpillQueue spillQueue;
+    private boolean spilling;
+    private boolean closed;
+    private long acceptedRecords;
+    private long writtenRecords;
+    private long flushedRecords;
+    private long flushTarget;
+    private long droppedRecords;
+    private Thread thread;
+
+    /**
+     * Constructor - builds a writer for the given buffer and flush settings.
+     * @param capacity number of records the ring buffer holds
+     * @param policy used when the ring buffer is full
+     * @param flushIntervalMillis maximum time between flushes of the sinks
+     * @param flushBytes number of bytes written before the sinks are flushed
+     * @param spillDirectory for the spill queue, or null for the temp directory
+     */
+    public AsyncOutputWriter(int capacity, OverflowPolicy policy, long flushIntervalMillis,
+                             long flushBytes, File spillDirectory){
+
+        this.sinks = new ArrayList<OutputSink>();
+        this.policy = policy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.flushBytes = flushBytes;
+        this.spillDirectory = spillDirectory;
+
+        slots = new byte[Math.max(1, capacity)][];
+        lengths = new int[slots.length];
+
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+        notFull = lock.newCondition();
+        flushed = lock.newCondition();
+    }
+
+    /**
+     * Adds a sink for the writer thread to write to. Sinks must be added
+     * before the writer is started.
+     * @param sink to add
+     */
+    public void addSink(OutputSink sink){
+
+        sinks.add(sink);
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public void start(){
+
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                writeRecords();
+            }
+        }, "crawler-output-writer");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Copies the record into the ring buffer for the writer thread, applying
+     * the overflow policy if the buffer is full.
+     * @param bytes containing the record
+     * @param offset of the record in the bytes
+     * @param length of the record
+     */
+    @Override
+    public void writeRecord(byte[] bytes, int offset, int length){
+
+        lock.lock();
+
+        try {
+
+            while(!closed){
+
+                // Room in the buffer and no spilled records to write first
+                if(!spilling && count < slots.length){
+
+                    byte[] slot = slots[tail];
+
+                    if(slot == null || slot.length < length){
+                        slot = new byte[Math.max(length, DEFAULT_SLOT_SIZE)];
+                        slots[tail] = slot;
+                    }
+
+                    System.arraycopy(bytes, offset, slot, 0, length);
+                    lengths[tail] = length;
+                    tail = (tail + 1) % slots.length;
+                    count++;
+                    acceptedRecords++;
+
+                    notEmpty.signal();
+                    return;
+                }
+
+                if(policy == OverflowPolicy.BLOCK){
+
+                    notFull.awaitUninterruptibly();
+
+                } else if(policy == OverflowPolicy.SPILL && spill(bytes, offset, length)){
+
+                    acceptedRecords++;
+                    notEmpty.signal();
+                    return;
+
+                } else {
+
+                    droppedRecords++;
+                    return;
+                }
+            }
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the record to the spill queue, creating it on first use. Must
+     * be called holding the lock.
+     * @param bytes containing the record
+     * @param offset of the record in the bytes
+     * @param length of the record
+     * @return true if the record was spilled and false otherwise
+     */
+    private boolean spill(byte[] bytes, int offset, int length){
+
+        if(spillQueue == null){
+
+            try {
+                spillQueue = new SpillQueue(spillDirectory);
+            } catch(IOException e) {
+                System.err.println("Spill file could not be created.");
+                return false;
+            }
+        }
+
+        if(spillQueue.append(bytes, offset, length)){
+            spilling = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Writer thread loop. Writes the buffered records in batches, then the
+     * spilled records once the buffer is empty, and flushes the sinks by size
+     * or time until the writer is closed and every record is written.
+     */
+    private void writeRecords(){
+
+        long lastFlush = System.nanoTime();
+        long unflushedBytes = 0;
+
+        while(true){
+
+            int start;
+            int batch;
+            long spillEnd = -1;
+            boolean done;
+
+            lock.lock();
+
+            try {
+
+                // Sleep until there are records, a flush is due or the writer is closed
+                if(count == 0 && !spilling && !closed && flushTarget <= flushedRecords){
+
+                    if(unflushedBytes > 0){
+                        notEmpty.awaitNanos(flushIntervalNanos - (System.nanoTime() - lastFlush));
+                    } else {
+                        notEmpty.await();
+                    }
+                }
+
+                start = head;
+                batch = count;
+
+                // Spilled records are only written once the buffer is empty
+                if(batch == 0 && spilling){
+                    spillEnd = spillQueue.getWritePosition();
+                }
+
+                done = closed && count == 0 && !spilling;
+
+            } catch(InterruptedException e) {
+
+                done = true;
+                start = head;
+                batch = count;
+
+            } finally {
+                lock.unlock();
+            }
+
+            // Write the batch outside the lock so the crawl can keep adding records
+            for(int i = 0; i < batch; i++){
+
+                int slot = (start + i) % slots.length;
+
+                for(OutputSink sink : sinks){
+                    sink.writeRecord(slots[slot], 0, lengths[slot]);
+                }
+
+                unflushedBytes += lengths[slot];
+            }
+
+            int spilled = 0;
+
+            if(spillEnd >= 0){
+                spilled = spillQueue.readRecords(spillEnd, sinks);
+                unflushedBytes += spillQueue.getLastReadBytes();
+            }
+
+            lock.lock();
+
+            try {
+
+                // Release the written slots back to the crawl
+                if(batch > 0){
+
+                    head = (start + batch) % slots.length;
+                    count -= batch;
+                    notFull.signalAll();
+                }
+
+                // Resume using the buffer once every spilled record is written
+                if(spillEnd >= 0 && spillQueue.isEmpty()){
+                    spillQueue.reset();
+                    spilling = false;
+                }
+
+                writtenRecords += batch + spilled;
+
+            } finally {
+                lock.unlock();
+            }
+
+            long now = System.nanoTime();
+
+            if(done || unflushedBytes >= flushBytes || now - lastFlush >= flushIntervalNanos
+                    || (batch == 0 && spilled == 0 && isFlushRequested())){
+
+                for(OutputSink sink : sinks){
+                    sink.flush();
+                }
+
+                unflushedBytes = 0;
+                lastFlush = now;
+                markFlushed();
+            }
+
+            if(done){
+                break;
+            }
+        }
+
+        for(OutputSink sink : sinks){
+            sink.close();
+        }
+    }
+
+    /**
+     * Returns whether a caller is waiting on a flush.
+     * @return true if a flush was requested and false otherwise
+     */
+    private boolean isFlushRequested(){
+
+        lock.lock();
+
+        try {
+            return flushTarget > flushedRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks every written record as flushed and wakes any waiting callers.
+     */
+    private void markFlushed(){
+
+        lock.lock();
+
+        try {
+            flushedRecords = writtenRecords;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record accepted before the call has been written to
+     * the sinks and the sinks have been flushed.
+     */
+    @Override
+    public void flush(){
+
+        lock.lock();
+
+        try {
+
+            long target = acceptedRecords;
+            flushTarget = Math.max(flushTarget, target);
+            notEmpty.signal();
+
+            while(flushedRecords < target && thread != null && thread.isAlive()){
+                flushed.awaitUninterruptibly();
+            }
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting records, waits for the writer thread to write and
+     * flush every remaining record, then closes the sinks.
+     */
+    @Override
+    public void close(){
+
+        lock.lock();
+
+        try {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if(thread != null){
+
+            try {
+                thread.join();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if(spillQueue != null){
+            spillQueue.close();
+        }
+
+        if(droppedRecords > 0){
+            System.err.println("Output buffer overflow, " + droppedRecords + " pages dropped");
+        }
+    }
+
+    /**
+     * Returns the number of records dropped because the buffer was full.
+     * @return dropped record count
+     */
+    public long getDroppedRecordCount(){
+
+        lock.lock();
+
+        try {
+            return droppedRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package Crawler;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * Compact binary encoding of a web page and its predecessor links, holding
+ * the same fields in the same order as the JSON output of a web page.
+ *
+ * # Record Layout:
+ * int32 (big-endian) length of the rest of the record; 0 marks the end of a stream
+ * byte version
+ * id, url, hostname, ipAddress, groupId, title, userAgent, height,
+ * searchTermFound, keywords, wordCount, charCount, byteCount, numberOfImages,
+ * isDeadEnd, targetLinkCount, predecessorLinks
+ *
+ * Integers are zig-zag varints. Strings are a varint of the UTF-8 byte length
+ * plus one (0 for null) followed by the bytes. searchTermFound is a byte of 0
+ * (false), 1 (true) or 2 (null). isDeadEnd is a byte. Keywords are a varint
+ * count plus one (0 for null) followed by the strings. Predecessor links are
+ * a varint count followed by the source id, target id and a flags byte
+ * (1 cyclic, 2 bidirectional) of each link.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public final class BinaryPageCodec {
+
+    public static final int VERSION = 1;
+    public static final byte CYCLIC = 1;
+    public static final byte BIDIRECTIONAL = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int NULL_BOOLEAN = 2;
+
+    /**
+     * Private Constructor - static codec only.
+     */
+    private BinaryPageCodec(){
+    }
+
+    /**
+     * Encodes the web page as a length-prefixed record into the buffer.
+     * @param page to encode
+     * @param buffer to append the record to
+     */
+    public static void encode(WebPage page, OutputBuffer buffer){
+
+        int start = buffer.size();
+
+        // Reserve the length, filled in once the record is written
+        buffer.write(0);
+        buffer.write(0);
+        buffer.write(0);
+        buffer.write(0);
+
+        buffer.write(VERSION);
+        writeInt(buffer, page.getId());
+        writeString(buffer, page.getUrl());
+        writeString(buffer, page.getHostname());
+        writeString(buffer, page.getIpAddress());
+        writeInt(buffer, page.getGroupId());
+        writeString(buffer, page.getTitle());
+        writeString(buffer, page.getUserAgent());
+        writeInt(buffer, page.getHeight());
+
+        Boolean searchTermFound = page.searchTermFound();
+        buffer.write(searchTermFound == null ? NULL_BOOLEAN : (searchTermFound ? 1 : 0));
+
+        ArrayList<String> keywords = page.getKeywords();
+
+        if(keywords == null){
+            writeVarint(buffer, 0);
+        } else {
+
+            writeVarint(buffer, keywords.size() + 1);
+
+            for(String keyword : keywords){
+                writeString(buffer, keyword);
+            }
+        }
+
+        writeInt(buffer, page.getWordCount());
+        writeInt(buffer, page.getCharCount());
+        writeInt(buffer, page.getByteCount());
+        writeInt(buffer, page.getNumberOfImages());
+        buffer.write(page.isDeadEnd() ? 1 : 0);
+        writeInt(buffer, page.getTargetLinkCount());
+
+        ArrayList<WebLink> links = page.getPredecessorLinks();
+        writeVarint(buffer, links.size());
+
+        for(WebLink link : links){
+
+            writeInt(buffer, link.getSourceId());
+            writeInt(buffer, link.getTargetId());
+            buffer.write((link.isCyclic() ? CYCLIC : 0) | (link.isBidirectional() ? BIDIRECTIONAL : 0));
+        }
+
+        buffer.setInt(start, buffer.size() - start - 4);
+    }
+
+    /**
+     * Decodes a record, without its length prefix, into a page record.
+     * @param bytes containing the record
+     * @param offset of the record after the length prefix
+     * @param length of the record
+     * @return decoded page record
+     * @throws IllegalArgumentException if the record version isn't supported
+     */
+    public static PageRecord decode(byte[] bytes, int offset, int length){
+
+        Decoder in = new Decoder(bytes, offset);
+        PageRecord record = new PageRecord();
+
+        int version = bytes[in.position++];
+
+        if(version != VERSION){
+            throw new IllegalArgumentException("Unsupported record version " + version);
+        }
+
+        record.id = in.readInt();
+        record.url = in.readString();
+        record.hostname = in.readString();
+        record.ipAddress = in.readString();
+        record.groupId = in.readInt();
+        record.title = in.readString();
+        record.userAgent = in.readString();
+        record.height = in.readInt();
+
+        int searchTermFound = bytes[in.position++];
+        record.searchTermFound = searchTermFound == NULL_BOOLEAN ? null : searchTermFound == 1;
+
+        int keywordCount = in.readVarint();
+
+        if(keywordCount > 0){
+
+            record.keywords = new ArrayList<String>(keywordCount - 1);
+
+            for(int i = 0; i < keywordCount - 1; i++){
+                record.keywords.add(in.readString());
+            }
+        }
+
+        record.wordCount = in.readInt();
+        record.charCount = in.readInt();
+        record.byteCount = in.readInt();
+        record.numberOfImages = in.readInt();
+        record.isDeadEnd = bytes[in.position++] != 0;
+        record.targetLinkCount = in.readInt();
+
+        int linkCount = in.readVarint();
+        record.linkSourceIds = new int[linkCount];
+        record.linkTargetIds = new int[linkCount];
+        record.linkFlags = new byte[linkCount];
+
+        for(int i = 0; i < linkCount; i++){
+
+            record.linkSourceIds[i] = in.readInt();
+            record.linkTargetIds[i] = in.readInt();
+            record.linkFlags[i] = bytes[in.position++];
+        }
+
+        if(in.position - offset != length){
+            throw new IllegalArgumentException("Record length mismatch at id " + record.id);
+        }
+
+        return record;
+    }
+
+    /**
+     * Writes a zig-zag encoded varint.
+     * @param buffer to write to
+     * @param value to write
+     */
+    static void writeInt(OutputBuffer buffer, int value){
+
+        writeVarint(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte.
+     * @param buffer to write to
+     * @param value to write
+     */
+    static void writeVarint(OutputBuffer buffer, int value){
+
+        while((value & ~0x7F) != 0){
+            buffer.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer.write(value);
+    }
+
+    /**
+     * Writes a zig-zag encoded long varint.
+     * @param buffer to write to
+     * @param value to write
+     */
+    static void writeLong(OutputBuffer buffer, long value){
+
+        long bits = (value << 1) ^ (value >> 63);
+
+        while((bits & ~0x7FL) != 0){
+            buffer.write((int) ((bits & 0x7F) | 0x80));
+            bits >>>= 7;
+        }
+
+        buffer.write((int) bits);
+    }
+
+    /**
+     * Writes a string as its UTF-8 byte length plus one followed by its bytes,
+     * encoding the chars directly into the buffer.
+     * @param buffer to write to
+     * @param value to write, may be null
+     */
+    static void writeString(OutputBuffer buffer, String value){
+
+        if(value == null){
+            writeVarint(buffer, 0);
+            return;
+        }
+
+        int length = value.length();
+        int utf8Length = 0;
+
+        // Measure the encoded length first so it can prefix the bytes
+        for(int i = 0; i < length; i++){
+
+            char c = value.charAt(i);
+
+            if(c < 0x80){
+                utf8Length++;
+            } else if(c < 0x800){
+                utf8Length += 2;
+            } else if(Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))){
+                utf8Length += 4;
+                i++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+
+        writeVarint(buffer, utf8Length + 1);
+
+        for(int i = 0; i < length; i++){
+
+            char c = value.charAt(i);
+
+            if(c < 0x80){
+
+                buffer.write(c);
+
+            } else if(c < 0x800){
+
+                buffer.write(0xC0 | (c >> 6));
+                buffer.write(0x80 | (c & 0x3F));
+
+            } else if(Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))){
+
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                buffer.write(0xF0 | (codePoint >> 18));
+                buffer.write(0x80 | ((codePoint >> 12) & 0x3F));
+                buffer.write(0x80 | ((codePoint >> 6) & 0x3F));
+                buffer.write(0x80 | (codePoint & 0x3F));
+
+            } else {
+
+                // Unpaired surrogates are encoded as is, as the JDK encoder would replace them
+                buffer.write(0xE0 | (c >> 12));
+                buffer.write(0x80 | ((c >> 6) & 0x3F));
+                buffer.write(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Reads the fields of a record from a byte array.
+     */
+    static class Decoder {
+
+        private final byte[] bytes;
+        int position;
+
+        /**
+         * Constructor - starts reading at the given position.
+         * @param bytes to read from
+         * @param position to start at
+         */
+        Decoder(byte[] bytes, int position){
+
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        /**
+         * Reads an unsigned varint.
+         * @return value read
+         */
+        int readVarint(){
+
+            int value = 0;
+            int shift = 0;
+            byte b;
+
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+
+            return value;
+        }
+
+        /**
+         * Reads a zig-zag encoded varint.
+         * @return value read
+         */
+        int readInt(){
+
+            int value = readVarint();
+
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Reads a zig-zag encoded long varint.
+         * @return value read
+         */
+        long readLong(){
+
+            long bits = 0;
+            int shift = 0;
+            byte b;
+
+            do {
+                b = bytes[position++];
+                bits |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+
+            return (bits >>> 1) ^ -(bits & 1);
+        }
+
+        /**
+         * Reads a byte.
+         * @return byte read
+         */
+        byte readByte(){
+
+            return bytes[position++];
+        }
+
+        /**
+         * Reads a string.
+         * @return string read or null
+         */
+        String readString(){
+
+            int length = readVarint() - 1;
+
+            if(length < 0){
+                return null;
+            }
+
+            String value = new String(bytes, position, length, UTF_8);
+            position += length;
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package Crawler;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the binary page records written with the BINARY output format from a
+ * file or stream, one record at a time. The read buffer is reused, so only
+ * the decoded page records are allocated.
+ *
+ * # Example:
+ * BinaryPageReader reader = new BinaryPageReader("crawl.bin");
+ * for(PageRecord page = reader.next(); page != null; page = reader.next()){
+ *     ...
+ * }
+ * reader.close();
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class BinaryPageReader implements Closeable {
+
+    private final InputStream in;
+    private byte[] buffer;
+
+    /**
+     * Constructor - reads records from the given file.
+     * @param fileName of the binary output
+     * @throws IOException if the file can't be opened
+     */
+    public BinaryPageReader(String fileName) throws IOException {
+
+        this(new FileInputStream(fileName));
+    }
+
+    /**
+     * Constructor - reads records from the given stream.
+     * @param in stream of binary records
+     */
+    public BinaryPageReader(InputStream in){
+
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16);
+        this.buffer = new byte[8192];
+    }
+
+    /**
+     * Reads the next page record.
+     * @return next page record, or null at the end of the stream
+     * @throws IOException if the stream can't be read or ends mid-record
+     */
+    public PageRecord next() throws IOException {
+
+        int b0 = in.read();
+
+        if(b0 < 0){
+            return null;
+        }
+
+        int length = (b0 << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+
+        // A zero length marks the end of the pages, such as at shutdown
+        if(length == 0){
+            return null;
+        }
+
+        if(length < 0){
+            throw new IOException("Invalid record length " + length);
+        }
+
+        if(buffer.length < length){
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+
+        int read = 0;
+
+        while(read < length){
+
+            int n = in.read(buffer, read, length - read);
+
+            if(n < 0){
+                throw new EOFException("Stream ended mid-record");
+            }
+
+            read += n;
+        }
+
+        return BinaryPageCodec.decode(buffer, 0, length);
+    }
+
+    /**
+     * Reads a single byte that must be present.
+     * @return byte read
+     * @throws IOException if the stream has ended
+     */
+    private int readByte() throws IOException {
+
+        int b = in.read();
+
+        if(b < 0){
+            throw new EOFException("Stream ended mid-record");
+        }
+
+        return b;
+    }
+
+    /**
+     * Closes the underlying stream.
+     * @throws IOException if the stream can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+
+        in.close();
+    }
+}
@@ -0,0 +1,140 @@
+package Crawler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Output stream which writes to a file channel through a large direct
+ * buffer, so bytes are copied once into native memory and written to the
+ * file in large blocks.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long position;
+
+    /**
+     * Constructor - builds a stream over the channel with a direct buffer of
+     * the given size.
+     * @param channel to write to
+     * @param bufferSize of the direct buffer in bytes
+     */
+    public ChannelOutputStream(FileChannel channel, int bufferSize){
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.position = 0;
+    }
+
+    /**
+     * Writes a single byte.
+     * @param b byte to write
+     * @throws IOException if the channel can't be written to
+     */
+    @Override
+    public void write(int b) throws IOException {
+
+        if(!buffer.hasRemaining()){
+            drain();
+        }
+
+        buffer.put((byte) b);
+        position++;
+    }
+
+    /**
+     * Writes the bytes, draining the buffer to the channel as it fills.
+     * @param bytes to write
+     * @param offset of the bytes to write
+     * @param length of the bytes to write
+     * @throws IOException if the channel can't be written to
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+        position += length;
+
+        // Records larger than the buffer are written straight to the channel
+        if(length > buffer.capacity()){
+
+            drain();
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes, offset, length);
+
+            while(wrapped.hasRemaining()){
+                channel.write(wrapped);
+            }
+
+            return;
+        }
+
+        if(length > buffer.remaining()){
+            drain();
+        }
+
+        buffer.put(bytes, offset, length);
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     * @throws IOException if the channel can't be written to
+     */
+    @Override
+    public void flush() throws IOException {
+
+        drain();
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and forces them to disk.
+     * @throws IOException if the channel can't be written or forced
+     */
+    public void force() throws IOException {
+
+        drain();
+        channel.force(false);
+    }
+
+    /**
+     * Returns the number of bytes written to the stream.
+     * @return bytes written
+     */
+    public long getPosition(){
+
+        return position;
+    }
+
+    /**
+     * Writes the buffered bytes and closes the channel.
+     * @throws IOException if the channel can't be written to or closed
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the whole buffer to the channel.
+     * @throws IOException if the channel can't be written to
+     */
+    private void drain() throws IOException {
+
+        buffer.flip();
+
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package Crawler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streaming compression applied to the file output. A new compressed stream
+ * is opened for each file segment, so every segment can be decompressed on
+ * its own.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public interface CompressionCodec {
+
+    /**
+     * Wraps the output in a compressing stream. Flushing the returned stream
+     * must write out all the data given to it so far, and closing it must
+     * finish the compressed stream and close the output.
+     * @param out to write the compressed bytes to
+     * @return compressing stream
+     * @throws IOException if the stream can't be started
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * Returns the file extension added to compressed files, such as ".gz".
+     * @return file extension
+     */
+    String getExtension();
+}
@@ -0,0 +1,222 @@
+package Crawler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * Control channel of the socket transport. Listens on a loopback port for
+ * clients sending command frames, each carried out by the crawler
+ * controller and answered with an ack or nack frame holding the command's
+ * request id; the ack of the STATS command holds the metrics report. Each
+ * client is served on its own thread and the pages are sent over the
+ * separate data channel, so commands are answered promptly even while the
+ * data channel is saturated. When the crawl ends, each client is
+ * sent an end frame in place of the REQ_CONT_SHUTDOWN message on stdout.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class ControlServer {
+
+    private static final int MAX_COMMAND_LENGTH = 65536;
+    private static final String REJECTED = "Unknown or ignored command";
+
+    private final ServerSocket server;
+    private final ArrayList<Socket> sockets;
+    private final ArrayList<DataOutputStream> clients;
+    private CrawlerController controller;
+
+    /**
+     * Constructor - listens for clients on the given loopback port.
+     * @param port to listen on, or 0 for any free port
+     * @throws IOException if the port could not be bound
+     */
+    public ControlServer(int port) throws IOException {
+
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.sockets = new ArrayList<Socket>();
+        this.clients = new ArrayList<DataOutputStream>();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return control channel port
+     */
+    public int getPort(){
+
+        return server.getLocalPort();
+    }
+
+    /**
+     * Starts accepting clients on a background thread, passing their
+     * commands to the controller.
+     * @param controller to carry out the commands
+     */
+    public void start(CrawlerController controller){
+
+        this.controller = controller;
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptClients();
+            }
+        }, "control-channel");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Accepts clients until the server socket is closed, serving each on its
+     * own thread.
+     */
+    private void acceptClients(){
+
+        while(!server.isClosed()){
+
+            try {
+
+                final Socket socket = server.accept();
+                socket.setTcpNoDelay(true); // Acks are small, send them right away
+
+                final DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream()));
+
+                synchronized (clients){
+                    sockets.add(socket);
+                    clients.add(out);
+                }
+
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serveClient(socket, out);
+                    }
+                }, "control-client");
+
+                thread.setDaemon(true);
+                thread.start();
+
+            } catch (IOException e) {
+
+                if(!server.isClosed()){
+                    System.err.println("Control channel connection could not be accepted");
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads command frames from the client until it disconnects, answering
+     * each with an ack or nack frame.
+     * @param socket of the client
+     * @param out stream of the client
+     */
+    private void serveClient(Socket socket, DataOutputStream out){
+
+        try {
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            while(true){
+
+                Frame frame = Frame.read(in, MAX_COMMAND_LENGTH);
+
+                if(frame.getType() == FrameType.COMMAND){
+
+                    String response = controller.executeCommand(frame.getText());
+
+                    send(out, Frame.request(response != null ? FrameType.ACK : FrameType.NACK,
+                            frame.getRequestId(), response != null ? response : REJECTED));
+                }
+            }
+
+        } catch (IOException e) {
+            // Client disconnected or sent an invalid frame
+        }
+
+        synchronized (clients){
+
+            int index = clients.indexOf(out);
+
+            if(index >= 0){
+                clients.remove(index);
+                sockets.remove(index);
+            }
+        }
+
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println("Control channel connection could not be closed");
+        }
+    }
+
+    /**
+     * Sends the frame to the client, flushing it right away.
+     * @param out stream of the client
+     * @param frame to send
+     * @throws IOException if the frame could not be sent
+     */
+    private void send(DataOutputStream out, Frame frame) throws IOException {
+
+        synchronized (out){
+            frame.write(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends each client an end frame, notifying them the crawl has ended so
+     * the controller can be stopped.
+     */
+    public void sendEnd(){
+
+        synchronized (clients){
+
+            for(DataOutputStream out : clients){
+
+                try {
+                    send(out, new Frame(FrameType.END, new byte[0]));
+                } catch (IOException e) {
+                    System.err.println("Control channel end could not be sent");
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops listening and disconnects the clients.
+     */
+    public void close(){
+
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Control channel could not be closed");
+        }
+
+        synchronized (clients){
+
+            for(Socket socket : sockets){
+
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    System.err.println("Control channel connection could not be closed");
+                }
+            }
+
+            sockets.clear();
+            clients.clear();
+        }
+    }
+}
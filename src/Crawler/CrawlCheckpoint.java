@@ -0,0 +1,844 @@
+package Crawler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Periodic, incremental checkpoints of a crawl, which a crashed or stopped
+ * crawl can be resumed from. A checkpoint is kept in two files:
+ *  - the graph log, "name", appended with the URLs, domains, pages, invalid
+ *    URLs, links and link flag changes added to the graph since the last
+ *    checkpoint
+ *  - the state file, "name.state", replaced on each checkpoint with the
+ *    frontier, the limit counter and the number of each kind of graph entry
+ *    the checkpoint covers
+ *
+ * The crawl thread only takes the counts of the graph and the log of the
+ * frontier's changes between pages, then a writer thread brings its replica
+ * of the frontier up to date, appends the new graph entries to the log,
+ * forces it to disk and replaces the state file. A checkpoint is skipped if
+ * the last one is still being written. Log blocks past the
+ * counts of the state file, left by a crash while writing, are cut off when
+ * the crawl is resumed.
+ *
+ * # Block Layout:
+ * int32 magic, int32 payload length, int32 CRC32 of the payload, payload
+ *
+ * Log payload: int32 index of the first entry of each section, int32 entry
+ * count of each section, then the entries of the URL, domain, page, invalid
+ * URL, link and link change sections in that order.
+ * State payload: byte version, sequence, source URL, limit counter, the
+ * entry count of each section, then the frontier.
+ *
+ * Integers and strings are encoded as in BinaryPageCodec.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class CrawlCheckpoint {
+
+    public static final String STATE_EXTENSION = ".state";
+
+    private static final int LOG_MAGIC = 0x43524C47;   // CRLG
+    private static final int STATE_MAGIC = 0x43525354; // CRST
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int BLOCK_SIZE = 1 << 23;
+    private static final int CHUNK_SIZE = 1024;
+
+    // Sections of a log block, in the order they're written and restored
+    private static final int URLS = 0;
+    private static final int DOMAINS = 1;
+    private static final int PAGES = 2;
+    private static final int INVALID_URLS = 3;
+    private static final int LINKS = 4;
+    private static final int CHANGED_LINKS = 5;
+    private static final int SECTION_COUNT = 6;
+
+    private final String fileName;
+    private final int[] written; // Entries of each section in the log
+    private FileChannel log;
+    private long logLength;
+    private long sequence;
+    private long interval;
+    private long lastCheckpoint;
+    private Thread writer;
+    private FrontierReplica frontier; // Only changed by the writer between checkpoints
+    private volatile boolean failed;
+
+    // State read from the checkpoint being resumed
+    private String sourceUrl;
+    private int limitCounter;
+    private byte[] state;
+    private int frontierPosition;
+
+    /**
+     * Constructor - builds an empty checkpoint of the given file.
+     * @param fileName of the graph log, the state file is the name followed
+     *                 by STATE_EXTENSION
+     */
+    public CrawlCheckpoint(String fileName){
+
+        this.fileName = fileName;
+        this.written = new int[SECTION_COUNT];
+    }
+
+    /**
+     * Reads the state of a checkpoint and checks its graph log holds every
+     * entry the state covers, so it can be restored.
+     * @param fileName of the graph log
+     * @return checkpoint to restore
+     * @throws IOException if the checkpoint can't be read or is incomplete
+     */
+    public static CrawlCheckpoint load(String fileName) throws IOException {
+
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(fileName);
+        checkpoint.readState();
+        checkpoint.scanLog();
+
+        return checkpoint;
+    }
+
+    /**
+     * Returns the URL of the source page of the checkpointed crawl.
+     * @return source URL
+     */
+    public String getSourceUrl(){
+
+        return sourceUrl;
+    }
+
+    /**
+     * Returns the number of pages indexed by the checkpointed crawl, counted
+     * against its page limit.
+     * @return limit counter
+     */
+    public int getLimitCounter(){
+
+        return limitCounter;
+    }
+
+    /**
+     * Checks whether the checkpoint is kept in the given file.
+     * @param fileName of a graph log
+     * @return true if it's the checkpoint's graph log and false otherwise
+     */
+    public boolean isFile(String fileName){
+
+        return Paths.get(this.fileName).toAbsolutePath().normalize()
+                .equals(Paths.get(fileName).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Restores the graph and frontier of a loaded checkpoint. The graph must
+     * be new with the source URL of the checkpoint, its source page becoming
+     * the first page restored.
+     * @param graph to restore the pages, links, domains and invalid URLs into
+     * @param queBaStack to restore the frontier into
+     * @throws IOException if the graph log can't be read
+     */
+    public void restore(WebGraph graph, QueBaStack queBaStack) throws IOException {
+
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+
+        try {
+
+            long position = 0;
+
+            while(position < logLength){
+
+                byte[] payload = readBlock(channel, position, LOG_MAGIC);
+                restoreBlock(payload, graph);
+                position += HEADER_SIZE + payload.length;
+            }
+
+        } finally {
+            channel.close();
+        }
+
+        queBaStack.readFrom(new BinaryPageCodec.Decoder(state, frontierPosition));
+    }
+
+    /**
+     * Opens the checkpoint for writing. A loaded checkpoint is appended to
+     * after the entries it was restored with, and a new one is started empty.
+     * With periodic checkpoints, a replica of the frontier is taken and its
+     * changes are logged from then on.
+     * @param interval in milliseconds between checkpoints, 0 to only write
+     *                 the final checkpoint
+     * @param queBaStack holding the frontier
+     * @throws IOException if the graph log can't be opened
+     */
+    public void open(long interval, QueBaStack queBaStack) throws IOException {
+
+        this.interval = interval;
+        this.lastCheckpoint = System.currentTimeMillis();
+
+        log = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(logLength);
+        log.position(logLength);
+
+        if(interval > 0){
+            frontier = queBaStack.replicate();
+        }
+    }
+
+    /**
+     * Starts a checkpoint if the interval has passed since the last one and
+     * it has been written. Only the counts of the graph, the log of the
+     * frontier's changes and the pages in flight are taken on the calling
+     * thread, which must be the one changing the graph, between pages. Pages
+     * still being fetched, and entries parked by the pool, are put back at
+     * the end of the checkpointed frontier, so they're fetched on resume.
+     * @param graph of the crawl
+     * @param queBaStack holding the frontier
+     * @param fetchPool holding the pages being fetched
+     * @param limitCounter of the crawl
+     * @return true if a checkpoint was started and false otherwise
+     */
+    public boolean checkpointIfDue(final WebGraph graph, QueBaStack queBaStack,
+                                   FetchPool fetchPool, final int limitCounter){
+
+        long now = System.currentTimeMillis();
+
+        if(failed || interval <= 0 || now - lastCheckpoint < interval
+                || (writer != null && writer.isAlive())){
+            return false;
+        }
+
+        lastCheckpoint = now;
+
+        final int[] counts = countEntries(graph);
+        final IntArray changes = queBaStack.takeLog();
+        final ArrayList<FrontierEntry> pending = fetchPool.getPendingEntries();
+
+        writer = new Thread(new Runnable(){
+
+            @Override
+            public void run(){
+
+                frontier.apply(changes);
+                writeCheckpoint(graph, counts, pending, limitCounter);
+            }
+        }, "checkpoint-writer");
+
+        writer.start();
+
+        return true;
+    }
+
+    /**
+     * Waits for a checkpoint being written, writes a final checkpoint and
+     * closes the graph log.
+     * @param graph of the crawl
+     * @param queBaStack holding the frontier
+     * @param limitCounter of the crawl
+     */
+    public void close(WebGraph graph, QueBaStack queBaStack, int limitCounter){
+
+        awaitWriter();
+
+        if(frontier == null){
+            frontier = queBaStack.replicate();
+        } else {
+            frontier.apply(queBaStack.takeLog());
+        }
+
+        queBaStack.stopLog();
+
+        writeCheckpoint(graph, countEntries(graph), new ArrayList<FrontierEntry>(), limitCounter);
+
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.err.println("Checkpoint " + fileName + " could not be closed.");
+        }
+    }
+
+    /**
+     * Waits for the checkpoint being written, if there is one.
+     */
+    private void awaitWriter(){
+
+        if(writer != null){
+
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                System.err.println("Thread interrupted exception");
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries of each section in the graph.
+     * @param graph to count
+     * @return entry count of each section
+     */
+    private static int[] countEntries(WebGraph graph){
+
+        int[] counts = new int[SECTION_COUNT];
+
+        counts[URLS] = graph.getURLCount();
+        counts[DOMAINS] = graph.getDomainCount();
+        counts[PAGES] = graph.getWebPageCount();
+        counts[INVALID_URLS] = graph.getInvalidURLCount();
+        counts[LINKS] = graph.getLinkCount();
+        counts[CHANGED_LINKS] = graph.getChangedLinkCount();
+
+        return counts;
+    }
+
+    /**
+     * Appends the graph entries up to the counts to the log, forces it to
+     * disk, then replaces the state file. Checkpointing stops if either
+     * can't be written.
+     * @param graph of the crawl
+     * @param counts of the graph entries the checkpoint covers
+     * @param pending entries taken from the frontier and not yet indexed,
+     *                written after the frontier replica
+     * @param limitCounter of the crawl
+     */
+    private void writeCheckpoint(WebGraph graph, int[] counts, ArrayList<FrontierEntry> pending,
+                                 int limitCounter){
+
+        if(failed){
+            return;
+        }
+
+        try {
+
+            OutputBuffer buffer = new OutputBuffer(1 << 16);
+
+            while(!isWritten(counts)){
+
+                buffer.reset();
+                reserve(buffer, HEADER_SIZE + SECTION_COUNT * 8);
+
+                for(int section = 0; section < SECTION_COUNT; section++){
+                    writeSection(section, graph, counts[section], buffer);
+                }
+
+                logLength += writeBlock(log, LOG_MAGIC, buffer);
+            }
+
+            log.force(false);
+
+            buffer.reset();
+            reserve(buffer, HEADER_SIZE);
+
+            buffer.write(VERSION);
+            BinaryPageCodec.writeLong(buffer, ++sequence);
+            BinaryPageCodec.writeString(buffer, graph.getURL(0));
+            BinaryPageCodec.writeVarint(buffer, limitCounter);
+
+            for(int section = 0; section < SECTION_COUNT; section++){
+                BinaryPageCodec.writeVarint(buffer, counts[section]);
+            }
+
+            frontier.writeTo(buffer, pending);
+            writeState(buffer);
+
+        } catch(IOException e) {
+
+            failed = true;
+            System.err.println("Checkpoint " + fileName + " could not be written.");
+        }
+    }
+
+    /**
+     * Checks whether the log holds every entry up to the counts.
+     * @param counts of each section
+     * @return true if every entry is written and false otherwise
+     */
+    private boolean isWritten(int[] counts){
+
+        for(int section = 0; section < SECTION_COUNT; section++){
+
+            if(written[section] < counts[section]){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the entries of a section not yet in the log to the block, up to
+     * the count or until the block is full, filling in the section's place
+     * in the block's table.
+     * @param section to write
+     * @param graph to copy the entries from
+     * @param count of the section's entries the checkpoint covers
+     * @param buffer holding the block
+     */
+    private void writeSection(int section, WebGraph graph, int count, OutputBuffer buffer){
+
+        int from = written[section];
+        int to = from;
+
+        while(to < count && buffer.size() < BLOCK_SIZE){
+            to += writeEntries(section, graph, to, Math.min(CHUNK_SIZE, count - to), buffer);
+        }
+
+        buffer.setInt(HEADER_SIZE + section * 4, from);
+        buffer.setInt(HEADER_SIZE + (SECTION_COUNT + section) * 4, to - from);
+        written[section] = to;
+    }
+
+    /**
+     * Writes a chunk of a section's entries to the block.
+     * @param section to write
+     * @param graph to copy the entries from
+     * @param from index of the first entry
+     * @param length of the chunk
+     * @param buffer holding the block
+     * @return number of entries written
+     */
+    private static int writeEntries(int section, WebGraph graph, int from, int length, OutputBuffer buffer){
+
+        int count;
+
+        if(section == URLS){
+
+            for(int i = 0; i < length; i++){
+                BinaryPageCodec.writeString(buffer, graph.getURL(from + i));
+            }
+
+            count = length;
+
+        } else if(section == DOMAINS){
+
+            Domain[] domains = new Domain[length];
+            count = graph.copyDomains(from, domains);
+
+            for(int i = 0; i < count; i++){
+                BinaryPageCodec.writeString(buffer, domains[i].getDomainName());
+            }
+
+        } else if(section == PAGES){
+
+            WebPage[] pages = new WebPage[length];
+            count = graph.copyWebPages(from, pages);
+
+            for(int i = 0; i < count; i++){
+                writePage(pages[i], buffer);
+            }
+
+        } else if(section == INVALID_URLS){
+
+            InvalidURL[] records = new InvalidURL[length];
+            count = graph.copyInvalidURLRecords(from, records);
+
+            for(int i = 0; i < count; i++){
+
+                BinaryPageCodec.writeString(buffer, records[i].getUrl());
+                BinaryPageCodec.writeString(buffer, records[i].getReason().name());
+                BinaryPageCodec.writeInt(buffer, records[i].getStatusCode());
+                BinaryPageCodec.writeLong(buffer, records[i].getTimestamp());
+            }
+
+        } else if(section == LINKS){
+
+            int[] sourceIds = new int[length];
+            int[] targetIds = new int[length];
+            int[] ownerIds = new int[length];
+            byte[] flags = new byte[length];
+
+            count = graph.copyWebLinks(from, sourceIds, targetIds, flags);
+            graph.copyLinkOwners(from, ownerIds);
+
+            for(int i = 0; i < count; i++){
+
+                BinaryPageCodec.writeVarint(buffer, sourceIds[i]);
+                BinaryPageCodec.writeVarint(buffer, targetIds[i]);
+                buffer.write(flags[i]);
+                BinaryPageCodec.writeInt(buffer, ownerIds[i]);
+            }
+
+        } else {
+
+            int[] links = new int[length];
+            byte[] flags = new byte[length];
+            count = graph.copyChangedLinks(from, links, flags);
+
+            for(int i = 0; i < count; i++){
+
+                BinaryPageCodec.writeVarint(buffer, links[i]);
+                buffer.write(flags[i]);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the indexed values of a page to the block. The IP address isn't
+     * kept, since it's looked up each time it's asked for.
+     * @param page to write
+     * @param buffer holding the block
+     */
+    private static void writePage(WebPage page, OutputBuffer buffer){
+
+        BinaryPageCodec.writeString(buffer, page.getUrl());
+        BinaryPageCodec.writeInt(buffer, page.getHeight());
+        BinaryPageCodec.writeInt(buffer, page.getGroupId());
+        BinaryPageCodec.writeString(buffer, page.getTitle());
+        BinaryPageCodec.writeString(buffer, page.getUserAgent());
+
+        Boolean searchTermFound = page.searchTermFound();
+        buffer.write(searchTermFound == null ? 2 : (searchTermFound ? 1 : 0));
+
+        ArrayList<String> keywords = page.getKeywords();
+
+        if(keywords == null){
+            BinaryPageCodec.writeVarint(buffer, 0);
+        } else {
+
+            BinaryPageCodec.writeVarint(buffer, keywords.size() + 1);
+
+            for(String keyword : keywords){
+                BinaryPageCodec.writeString(buffer, keyword);
+            }
+        }
+
+        BinaryPageCodec.writeInt(buffer, page.getWordCount());
+        BinaryPageCodec.writeInt(buffer, page.getCharCount());
+        BinaryPageCodec.writeInt(buffer, page.getByteCount());
+        BinaryPageCodec.writeInt(buffer, page.getNumberOfImages());
+        buffer.write(page.isDeadEnd() ? 1 : 0);
+        BinaryPageCodec.writeInt(buffer, page.getTargetLinkCount());
+    }
+
+    /**
+     * Restores the entries of a log block into the graph, checking each
+     * section starts where the graph left off.
+     * @param payload of the block
+     * @param graph to restore into
+     * @throws IOException if a section doesn't follow on from the graph
+     */
+    private static void restoreBlock(byte[] payload, WebGraph graph) throws IOException {
+
+        int[] counts = countEntries(graph);
+        BinaryPageCodec.Decoder in = new BinaryPageCodec.Decoder(payload, SECTION_COUNT * 8);
+
+        for(int section = 0; section < SECTION_COUNT; section++){
+
+            int from = getInt(payload, section * 4);
+            int count = getInt(payload, (SECTION_COUNT + section) * 4);
+
+            if(count > 0 && from != counts[section]){
+                throw new IOException("Checkpoint section " + section + " starts at " + from
+                        + " rather than " + counts[section]);
+            }
+
+            for(int i = 0; i < count; i++){
+                restoreEntry(section, in, graph);
+            }
+        }
+    }
+
+    /**
+     * Restores a section entry into the graph.
+     * @param section of the entry
+     * @param in decoder positioned at the entry
+     * @param graph to restore into
+     */
+    private static void restoreEntry(int section, BinaryPageCodec.Decoder in, WebGraph graph){
+
+        if(section == URLS){
+
+            graph.internURL(in.readString());
+
+        } else if(section == DOMAINS){
+
+            graph.addDomain(in.readString());
+
+        } else if(section == PAGES){
+
+            String url = in.readString();
+            int height = in.readInt();
+
+            // The first page of a crawl is always its source
+            WebPage page = graph.getWebPageCount() == 0 ? graph.getSource() : new WebPage(url, height);
+
+            page.setHeight(height);
+            page.setGroupId(in.readInt());
+            page.setTitle(in.readString());
+            page.setUserAgent(in.readString());
+
+            int searchTermFound = in.readByte();
+            page.setSearchTermFound(searchTermFound == 2 ? null : searchTermFound == 1);
+
+            int keywordCount = in.readVarint();
+            ArrayList<String> keywords = null;
+
+            if(keywordCount > 0){
+
+                keywords = new ArrayList<String>(keywordCount - 1);
+
+                for(int i = 0; i < keywordCount - 1; i++){
+                    keywords.add(in.readString());
+                }
+            }
+
+            page.setKeywords(keywords);
+            page.setWordCount(in.readInt());
+            page.setCharCount(in.readInt());
+            page.setByteCount(in.readInt());
+            page.setNumberOfImages(in.readInt());
+            page.setDeadEnd(in.readByte() != 0);
+            page.setTargetLinkCount(in.readInt());
+            page.setState(State.INDEXED);
+
+            graph.addWebPage(page);
+
+        } else if(section == INVALID_URLS){
+
+            String url = in.readString();
+            InvalidReason reason = InvalidReason.valueOf(in.readString());
+            int statusCode = in.readInt();
+
+            graph.restoreInvalidURL(new InvalidURL(url, reason, statusCode, in.readLong()));
+
+        } else if(section == LINKS){
+
+            int sourceId = in.readVarint();
+            int targetId = in.readVarint();
+            byte flags = in.readByte();
+
+            graph.restoreLink(sourceId, targetId, flags, in.readInt());
+
+        } else {
+
+            int link = in.readVarint();
+            graph.restoreLinkFlags(link, in.readByte());
+        }
+    }
+
+    /**
+     * Reads the state file, keeping the frontier to be restored.
+     * @throws IOException if the state file can't be read or is corrupt
+     */
+    private void readState() throws IOException {
+
+        FileChannel channel = FileChannel.open(Paths.get(fileName + STATE_EXTENSION), StandardOpenOption.READ);
+
+        try {
+            state = readBlock(channel, 0, STATE_MAGIC);
+        } finally {
+            channel.close();
+        }
+
+        BinaryPageCodec.Decoder in = new BinaryPageCodec.Decoder(state, 0);
+
+        int version = in.readByte();
+
+        if(version != VERSION){
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+
+        sequence = in.readLong();
+        sourceUrl = in.readString();
+        limitCounter = in.readVarint();
+
+        for(int section = 0; section < SECTION_COUNT; section++){
+            written[section] = in.readVarint();
+        }
+
+        frontierPosition = in.position;
+    }
+
+    /**
+     * Scans the graph log for the blocks holding the entries the state
+     * covers, checking each block is intact and follows on from the last.
+     * @throws IOException if the log ends before the entries of the state
+     */
+    private void scanLog() throws IOException {
+
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        int[] counts = new int[SECTION_COUNT];
+        long position = 0;
+
+        try {
+
+            while(!isCovered(counts)){
+
+                byte[] payload = readBlock(channel, position, LOG_MAGIC);
+
+                for(int section = 0; section < SECTION_COUNT; section++){
+
+                    int from = getInt(payload, section * 4);
+                    int count = getInt(payload, (SECTION_COUNT + section) * 4);
+
+                    if(count > 0 && from != counts[section]){
+                        throw new IOException("Checkpoint log " + fileName + " is out of order");
+                    }
+
+                    counts[section] += count;
+                }
+
+                position += HEADER_SIZE + payload.length;
+            }
+
+        } finally {
+            channel.close();
+        }
+
+        logLength = position;
+    }
+
+    /**
+     * Checks whether the counts reach the entries covered by the state.
+     * @param counts of each section
+     * @return true if every section is covered and false otherwise
+     */
+    private boolean isCovered(int[] counts){
+
+        for(int section = 0; section < SECTION_COUNT; section++){
+
+            if(counts[section] < written[section]){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the state block to a temporary file, forces it to disk and moves
+     * it over the state file, so the state file is always complete.
+     * @param buffer holding the state block
+     * @throws IOException if the state file can't be written
+     */
+    private void writeState(OutputBuffer buffer) throws IOException {
+
+        Path state = Paths.get(fileName + STATE_EXTENSION);
+        Path temporary = Paths.get(fileName + STATE_EXTENSION + ".tmp");
+
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            writeBlock(channel, STATE_MAGIC, buffer);
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+
+        Files.move(temporary, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fills in the header of the block in the buffer and writes it to the
+     * channel.
+     * @param channel to write to
+     * @param magic number of the block
+     * @param buffer holding the block after a reserved header
+     * @return number of bytes written
+     * @throws IOException if the block can't be written
+     */
+    private static int writeBlock(FileChannel channel, int magic, OutputBuffer buffer) throws IOException {
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, buffer.size() - HEADER_SIZE);
+
+        buffer.setInt(0, magic);
+        buffer.setInt(4, buffer.size() - HEADER_SIZE);
+        buffer.setInt(8, (int) crc.getValue());
+
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.array(), 0, buffer.size());
+
+        while(bytes.hasRemaining()){
+            channel.write(bytes);
+        }
+
+        return buffer.size();
+    }
+
+    /**
+     * Reads the payload of the block at the position, checking its magic
+     * number, length and checksum.
+     * @param channel to read from
+     * @param position of the block
+     * @param magic number of the block
+     * @return payload of the block
+     * @throws IOException if the block is cut short or corrupt
+     */
+    private byte[] readBlock(FileChannel channel, long position, int magic) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        readFully(channel, header, position);
+
+        if(header.getInt(0) != magic || header.getInt(4) < 0
+                || position + HEADER_SIZE + header.getInt(4) > channel.size()){
+            throw new IOException("Checkpoint " + fileName + " is corrupt at " + position);
+        }
+
+        byte[] payload = new byte[header.getInt(4)];
+        readFully(channel, ByteBuffer.wrap(payload), position + HEADER_SIZE);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        if((int) crc.getValue() != header.getInt(8)){
+            throw new IOException("Checkpoint " + fileName + " is corrupt at " + position);
+        }
+
+        return payload;
+    }
+
+    /**
+     * Fills the buffer from the channel starting at the position.
+     * @param channel to read from
+     * @param buffer to fill
+     * @param position to read from
+     * @throws IOException if the channel ends before the buffer is full
+     */
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+
+        while(buffer.hasRemaining()){
+
+            int read = channel.read(buffer, position);
+
+            if(read < 0){
+                throw new IOException("Checkpoint " + fileName + " ends at " + position);
+            }
+
+            position += read;
+        }
+    }
+
+    /**
+     * Writes zeros to the buffer, reserving room filled in later.
+     * @param buffer to write to
+     * @param length to reserve
+     */
+    private static void reserve(OutputBuffer buffer, int length){
+
+        for(int i = 0; i < length; i++){
+            buffer.write(0);
+        }
+    }
+
+    /**
+     * Returns the big-endian int at the position of the bytes.
+     * @param bytes to read from
+     * @param position of the int
+     * @return int read
+     */
+    private static int getInt(byte[] bytes, int position){
+
+        return ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16)
+                | ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+    }
+}
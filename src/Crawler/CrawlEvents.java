@@ -0,0 +1,138 @@
+package Crawler;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events of the crawl stages, so a recording of a crawl can
+ * show where its time goes alongside the GC and lock events of the JVM.
+ * Every event is disabled by default, so an event left in the crawl costs a
+ * check of its enabled state until it's turned on in the recording
+ * settings, for example with
+ * -XX:StartFlightRecording:settings=crawl.jfc where crawl.jfc enables
+ * crawler.Fetch, crawler.Parse, crawler.AttachLinks, crawler.Serialize and
+ * crawler.Frontier. The fields of an event are only filled in once it's
+ * known the event will be committed.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public final class CrawlEvents {
+
+    /**
+     * Private Constructor - event classes only.
+     */
+    private CrawlEvents(){
+    }
+
+    /**
+     * Connection to a page and download of its body.
+     */
+    @Name("crawler.Fetch")
+    @Label("Page Fetch")
+    @Category("Web Crawler")
+    @Description("Lookup, connection and body download of a page")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class FetchEvent extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("Host")
+        String host;
+
+        @Label("Status Code")
+        int status;
+
+        @Label("Body Size")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * Parse of a page's html document.
+     */
+    @Name("crawler.Parse")
+    @Label("Page Parse")
+    @Category("Web Crawler")
+    @Description("Parse of the html document of a page")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class ParseEvent extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("Body Size")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * Attachment of a page's links to the graph.
+     */
+    @Name("crawler.AttachLinks")
+    @Label("Attach Links")
+    @Category("Web Crawler")
+    @Description("Attachment of the links of a page to the graph")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class AttachLinksEvent extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("Links")
+        int links;
+
+        @Label("New Links")
+        int newLinks;
+    }
+
+    /**
+     * Serialization of a page for the outputs.
+     */
+    @Name("crawler.Serialize")
+    @Label("Page Serialize")
+    @Category("Web Crawler")
+    @Description("Serialization of a page and its hand off to the outputs")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class SerializeEvent extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("Record Size")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * Insertion or removal of frontier entries.
+     */
+    @Name("crawler.Frontier")
+    @Label("Frontier Operation")
+    @Category("Web Crawler")
+    @Description("Insertion or removal of entries in the crawl frontier")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class FrontierEvent extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Entries")
+        int entries;
+
+        @Label("Frontier Size")
+        int frontierSize;
+    }
+}
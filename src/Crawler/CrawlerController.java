@@ -5,20 +5,79 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Crawler Controller which runs on the main process and controls a threaded
  * crawler execution. Once a threaded crawl is executed, commands from stdin
  * will control option features such as the search type, pause / resume,
- * cyclic / acyclic links, and implementing a delay.
+ * cyclic / acyclic links, and implementing a delay. With a control server
+ * set, the commands are read from its socket clients instead of stdin.
  *
  * @author Seth Dovgan
  * @version 18JAN19
  */
 public class CrawlerController {
 
+    private static final String PAUSE_CRAWL = "P";
+    private static final String RESUME_CRAWL = "R";
+    private static final String STOP_CONTROLLER = "ACK";
+    private static final String BREADTH_FIRST = "B";
+    private static final String DEPTH_FIRST = "D";
+    private static final String RANDOM = "X";
+    private static final String CYCLIC = "C";
+    private static final String ACYCLIC = "A";
+    private static final String DELAY = "DM";
+    private static final String ABS_LINKS = "ABS";
+    private static final String REL_LINKS = "REL";
+    private static final String ALL_LINKS = "ALL";
+    private static final String HEIGHT_LIMIT = "HL";
+    private static final String SEARCH_LIMIT = "SL";
+    private static final String SEARCH_TERM = "ST";
+    private static final String REQUEST_RATE = "RR";
+    private static final String BYTE_RATE = "RB";
+    private static final String HOST_REQUEST_RATE = "HR";
+    private static final String HOST_BYTE_RATE = "HB";
+    private static final String GROUP_REQUEST_RATE = "GR";
+    private static final String GROUP_BYTE_RATE = "GB";
+    private static final String WORKERS = "WK";
+    private static final String HOST_CONNECTIONS = "HC";
+    private static final String PARSE_THREADS = "PP";
+    private static final String EXPORT_EDGES = "EE";
+    private static final String EXPORT_GRAPHML = "EG";
+    private static final String EXPORT_COLUMNS = "EC";
+    private static final String PAGE_RANK = "PR";
+    private static final String HITS = "HT";
+    private static final String STRUCTURE = "SA";
+    private static final String STATS = "STATS";
+    private static final String DRAIN = "DRAIN";
+    private static final int DRAIN_SECONDS = 30;
+    private static final String ACCEPTED = "OK";
+
     private BufferedReader reader;
+    private ControlServer server;
+    private boolean stopped;
+
+    // Crawler options controlled by the commands
+    private Object lock;
+    private AtomicBoolean paused;
+    private AtomicInteger delay;
+    private AtomicBoolean cyclic;
+    private AtomicInteger linkType;
+    private QueBaStack queBaStack;
+    private AtomicInteger height;
+    private AtomicInteger limit;
+    private AtomicBoolean enableSearchTerm;
+    private AtomicReference<String> searchTerm;
+    private RateLimiter rateLimiter;
+    private AtomicReference<WebGraph> graph;
+    private AtomicReference<MetricsRegistry> metrics;
+    private AtomicInteger workers;
+    private AtomicInteger hostConnections;
+    private AtomicInteger parseThreads;
+    private AtomicLong drainDeadline;
+    private AtomicBoolean drained;
 
     /**
      * Constructor. Setups the stdin communication reader used to read in and
@@ -27,10 +86,22 @@ public class CrawlerController {
     public CrawlerController(){
 
         reader = new BufferedReader(new InputStreamReader(System.in));
+        server = null;
+        stopped = false;
+    }
+
+    /**
+     * Sets the control server to read commands from in place of stdin.
+     * @param server to read commands from
+     */
+    public void setControlServer(ControlServer server){
+
+        this.server = server;
     }
 
     /**
-     * Controls the crawler through changing the given thread safe options.
+     * Controls the crawler through changing the given thread safe options,
+     * until the stop command is received.
      *
      * @param lock object used to maintain states between thread and main process
      * @param paused option for the crawler
@@ -38,6 +109,18 @@ public class CrawlerController {
      * @param cyclic option for the crawler
      * @param linkType option for the crawler
      * @param queBaStack morphing data structure for changing search types
+     * @param height limit option for the crawler
+     * @param limit search limit option for the crawler
+     * @param enableSearchTerm option for the crawler
+     * @param searchTerm option for the crawler
+     * @param rateLimiter applied to each page fetch of the crawler
+     * @param graph being built by the crawler, exported on request
+     * @param metrics of the crawl, reported on request
+     * @param workers option for the crawler
+     * @param hostConnections option for the crawler
+     * @param parseThreads option for the crawler
+     * @param drainDeadline of the crawler, 0 if it's not draining
+     * @param drained set by the crawler once its outputs are flushed
      */
     public void controlCrawler(final Object lock,
                                final AtomicBoolean paused,
@@ -48,177 +131,562 @@ public class CrawlerController {
                                final AtomicInteger height,
                                final AtomicInteger limit,
                                final AtomicBoolean enableSearchTerm,
-                               final AtomicReference<String> searchTerm){
+                               final AtomicReference<String> searchTerm,
+                               final RateLimiter rateLimiter,
+                               final AtomicReference<WebGraph> graph,
+                               final AtomicReference<MetricsRegistry> metrics,
+                               final AtomicInteger workers,
+                               final AtomicInteger hostConnections,
+                               final AtomicInteger parseThreads,
+                               final AtomicLong drainDeadline,
+                               final AtomicBoolean drained){
+
+        synchronized (this){
+
+            this.lock = lock;
+            this.paused = paused;
+            this.delay = delay;
+            this.cyclic = cyclic;
+            this.linkType = linkType;
+            this.queBaStack = queBaStack;
+            this.height = height;
+            this.limit = limit;
+            this.enableSearchTerm = enableSearchTerm;
+            this.searchTerm = searchTerm;
+            this.rateLimiter = rateLimiter;
+            this.graph = graph;
+            this.metrics = metrics;
+            this.workers = workers;
+            this.hostConnections = hostConnections;
+            this.parseThreads = parseThreads;
+            this.drainDeadline = drainDeadline;
+            this.drained = drained;
+        }
+
+        if(server != null){
+
+            // Commands are carried out on the server's client threads
+            server.start(this);
+
+            synchronized (this){
+
+                while(!stopped){
+
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        System.err.println("Controller interrupted exception");
+                    }
+                }
+            }
+
+        } else {
+
+            // Check to make sure the thread is not destroyed before reading in
+            // another command
+            while(!isStopped()){
+
+                try {
+
+                    // Read in the command from stdin
+                    String command = reader.readLine();
+
+                    if(command != null){
+                        executeCommand(command);
+                    }
+
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the stop command has been received.
+     * @return true if the controller is stopped and false otherwise
+     */
+    private synchronized boolean isStopped(){
+
+        return stopped;
+    }
+
+    /**
+     * Carries out a single command. Commands may come from several socket
+     * clients at once, so they are carried out one at a time. The STATS
+     * command responds with the metrics report, which is also printed to
+     * stderr when the commands are read from stdin, since stdout carries the
+     * pages. The DRAIN command responds once the crawl has ended, waiting
+     * for it without holding up other commands.
+     * @param command to carry out
+     * @return response to the command, or null if it was unknown, invalid or
+     * had no effect
+     */
+    public String executeCommand(String command){
+
+        if(command.startsWith(DRAIN)){
+
+            if(!startDrain(command)){
+                return null;
+            }
+
+            awaitDrained();
+            return ACCEPTED;
+        }
+
+        return carryOutCommand(command);
+    }
+
+    /**
+     * Carries out a command other than DRAIN, one at a time.
+     * @param command to carry out
+     * @return response to the command, or null if it was unknown, invalid or
+     * had no effect
+     */
+    private synchronized String carryOutCommand(String command){
+
+        boolean accepted = true;
+        String response = ACCEPTED;
+
+        if(command.compareTo(PAUSE_CRAWL) == 0 && !paused.get()){
+
+            paused.set(true); // Pause Crawler Thread
+
+            synchronized (lock){
+                lock.notifyAll(); // Notify search to resume execution
+            }
+
+        } else if(command.compareTo(RESUME_CRAWL) == 0 && paused.get()){
+
+            paused.set(false); // Resume Crawler Thread
+
+            synchronized (lock){
+                lock.notifyAll(); // Notify search to resume execution
+            }
+
+        } else if(command.compareTo(STOP_CONTROLLER) == 0){
+
+            // Modify crawler search limit
+            synchronized (limit){
+                limit.set(0);
+            }
+
+            // Resume a paused crawl so it can end
+            paused.set(false);
+
+            synchronized (lock){
+                lock.notifyAll();
+            }
+
+            // Exit the controlling loop
+            stopped = true;
+            notifyAll();
+
+        } else if(command.compareTo(BREADTH_FIRST) == 0){
+
+            // Change graph search to Breadth-first search
+            synchronized (queBaStack){
+                queBaStack.setDataStructureType(DataStructureType.QUEUE);
+            }
+
+        } else if(command.compareTo(DEPTH_FIRST) == 0){
+
+            // Change graph search to Depth-first search
+            synchronized (queBaStack){
+                queBaStack.setDataStructureType(DataStructureType.STACK);
+            }
+
+        } else if(command.compareTo(RANDOM) == 0){
+
+            // Change graph search to Random Search
+            synchronized (queBaStack){
+                queBaStack.setDataStructureType(DataStructureType.BAG);
+            }
+
+        } else if(command.compareTo(CYCLIC) == 0){
+
+            // Toggle on cyclic links
+            synchronized (cyclic){
+                cyclic.set(true);
+            }
+
+        } else if(command.compareTo(ACYCLIC) == 0){
+
+            // Toggle off cyclic links
+            synchronized (cyclic){
+                cyclic.set(false);
+            }
+
+        } else if(command.compareTo(ABS_LINKS) == 0){
+
+            // Toggle ABS Links
+            synchronized (linkType){
+                linkType.set(LinkType.ABS.getId());
+            }
+
+        } else if(command.compareTo(REL_LINKS) == 0){
+
+            // Toggle REL Links
+            synchronized (linkType){
+                linkType.set(LinkType.REL.getId());
+            }
+
+        } else if(command.compareTo(ALL_LINKS) == 0){
+
+            // Toggle ALL Links
+            synchronized (linkType){
+                linkType.set(LinkType.ALL.getId());
+            }
+
+        } else if(command.startsWith(DELAY)){
+
+            // Add crawling delay to the crawler
+            synchronized (delay){
+                int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-        final String PAUSE_CRAWL = "P";
-        final String RESUME_CRAWL = "R";
-        final String STOP_CONTROLLER = "ACK";
-        final String BREADTH_FIRST = "B";
-        final String DEPTH_FIRST = "D";
-        final String RANDOM = "X";
-        final String CYCLIC = "C";
-        final String ACYCLIC = "A";
-        final String DELAY = "DM";
-        final String ABS_LINKS = "ABS";
-        final String REL_LINKS = "REL";
-        final String ALL_LINKS = "ALL";
-        final String HEIGHT_LIMIT = "HL";
-        final String SEARCH_LIMIT = "SL";
-        final String SEARCH_TERM = "ST";
+                if(temp >= 0){
+                    delay.set(temp);
+                } else {
+                    accepted = false;
+                }
+            }
 
-        boolean stopController = false;
+        } else if(command.startsWith(HEIGHT_LIMIT)) {
 
-        // Check to make sure the thread is not destroyed before reading in
-        // another command
-        while(!stopController){
+            // Add height limit to the crawler
+            synchronized (height){
+                int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-            try {
+                if(temp >= 0){
+                    height.set(temp);
+                } else {
+                    accepted = false;
+                }
+            }
 
-                // Read in the command from stdin
-                String command = reader.readLine();
+        } else if(command.startsWith(SEARCH_LIMIT)){
 
-                if(command != null){
+            // Modify crawler search limit
+            synchronized (limit){
+                int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                    if(command.compareTo(PAUSE_CRAWL) == 0 && !paused.get()){
+                if(temp >= 0){
+                    limit.set(temp);
+                } else {
+                    accepted = false;
+                }
+            }
 
-                        paused.set(true); // Pause Crawler Thread
+        } else if(command.startsWith(REQUEST_RATE)){
 
-                        synchronized (lock){
-                            lock.notifyAll(); // Notify search to resume execution
-                        }
+            // Modify global requests per second, rate limiter is thread safe
+            int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                    } else if(command.compareTo(RESUME_CRAWL) == 0 && paused.get()){
+            if(temp >= 0){
+                rateLimiter.setGlobalRequestRate(temp);
+            } else {
+                accepted = false;
+            }
+
+        } else if(command.startsWith(BYTE_RATE)){
+
+            // Modify global bytes per second
+            int temp = Validation.isValidInteger(command.substring(2, command.length()));
+
+            if(temp >= 0){
+                rateLimiter.setGlobalByteRate(temp);
+            } else {
+                accepted = false;
+            }
 
-                        paused.set(false); // Resume Crawler Thread
+        } else if(command.startsWith(HOST_REQUEST_RATE)){
 
-                        synchronized (lock){
-                            lock.notifyAll(); // Notify search to resume execution
-                        }
+            // Modify requests per second for each host
+            int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                    } else if(command.compareTo(STOP_CONTROLLER) == 0){
+            if(temp >= 0){
+                rateLimiter.setHostRequestRate(temp);
+            } else {
+                accepted = false;
+            }
 
-                        // Modify crawler search limit
-                        synchronized (limit){
-                            limit.set(0);
-                        }
+        } else if(command.startsWith(HOST_BYTE_RATE)){
 
-                        // Exit the controlling loop
-                        stopController = true;
+            // Modify bytes per second for each host
+            int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                    } else if(command.compareTo(BREADTH_FIRST) == 0){
+            if(temp >= 0){
+                rateLimiter.setHostByteRate(temp);
+            } else {
+                accepted = false;
+            }
 
-                        // Change graph search to Breadth-first search
-                        synchronized (queBaStack){
-                            queBaStack.setDataStructureType(DataStructureType.QUEUE);
-                        }
+        } else if(command.startsWith(GROUP_REQUEST_RATE)){
 
-                    } else if(command.compareTo(DEPTH_FIRST) == 0){
+            // Modify requests per second for each domain group
+            int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                        // Change graph search to Depth-first search
-                        synchronized (queBaStack){
-                            queBaStack.setDataStructureType(DataStructureType.STACK);
-                        }
+            if(temp >= 0){
+                rateLimiter.setGroupRequestRate(temp);
+            } else {
+                accepted = false;
+            }
 
-                    } else if(command.compareTo(RANDOM) == 0){
+        } else if(command.startsWith(GROUP_BYTE_RATE)){
 
-                        // Change graph search to Random Search
-                        synchronized (queBaStack){
-                            queBaStack.setDataStructureType(DataStructureType.BAG);
-                        }
+            // Modify bytes per second for each domain group
+            int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                    } else if(command.compareTo(CYCLIC) == 0){
+            if(temp >= 0){
+                rateLimiter.setGroupByteRate(temp);
+            } else {
+                accepted = false;
+            }
 
-                        // Toggle on cyclic links
-                        synchronized (cyclic){
-                            cyclic.set(true);
-                        }
+        } else if(command.startsWith(WORKERS)){
 
-                    } else if(command.compareTo(ACYCLIC) == 0){
+            // Modify the fetch workers, retired workers finish their page first
+            synchronized (workers){
+                int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                        // Toggle off cyclic links
-                        synchronized (cyclic){
-                            cyclic.set(false);
-                        }
+                if(temp >= 1){
+                    workers.set(temp);
+                } else {
+                    accepted = false;
+                }
+            }
 
-                    } else if(command.compareTo(ABS_LINKS) == 0){
+        } else if(command.startsWith(HOST_CONNECTIONS)){
 
-                        // Toggle ABS Links
-                        synchronized (linkType){
-                            linkType.set(LinkType.ABS.getId());
-                        }
+            // Modify the pages fetched from a host at once, 0 for no limit
+            synchronized (hostConnections){
+                int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                    } else if(command.compareTo(REL_LINKS) == 0){
+                if(temp >= 0){
+                    hostConnections.set(temp);
+                } else {
+                    accepted = false;
+                }
+            }
 
-                        // Toggle REL Links
-                        synchronized (linkType){
-                            linkType.set(LinkType.REL.getId());
-                        }
+        } else if(command.startsWith(PARSE_THREADS)){
 
-                    } else if(command.compareTo(ALL_LINKS) == 0){
+            // Modify the parse threads, 0 to parse on the fetch workers
+            synchronized (parseThreads){
+                int temp = Validation.isValidInteger(command.substring(2, command.length()));
 
-                        // Toggle ALL Links
-                        synchronized (linkType){
-                            linkType.set(LinkType.ALL.getId());
-                        }
+                if(temp >= 0){
+                    parseThreads.set(temp);
+                } else {
+                    accepted = false;
+                }
+            }
 
-                    } else if(command.substring(0, 2).compareTo(DELAY) == 0){
+        } else if(command.startsWith(EXPORT_EDGES)){
 
-                        // Add crawling delay to the crawler
-                        synchronized (delay){
-                            int temp = Validation.isValidInteger(command.substring(2, command.length()));
+            // Export the graph as a CSV edge list in the background
+            accepted = startExport(graph.get(), ExportFormat.EDGES, command.substring(2).trim());
 
-                            if(temp >= 0){
-                                delay.set(temp);
-                            }
-                        }
+        } else if(command.startsWith(EXPORT_GRAPHML)){
 
-                    } else if(command.substring(0, 2).compareTo(HEIGHT_LIMIT) == 0) {
+            // Export the graph as GraphML in the background
+            accepted = startExport(graph.get(), ExportFormat.GRAPHML, command.substring(2).trim());
 
-                        // Add height limit to the crawler
-                        synchronized (height){
-                            int temp = Validation.isValidInteger(command.substring(2, command.length()));
+        } else if(command.startsWith(EXPORT_COLUMNS)){
 
-                            if(temp >= 0){
-                                height.set(temp);
-                            }
-                        }
+            // Export the graph as column files in the background
+            accepted = startExport(graph.get(), ExportFormat.COLUMNS, command.substring(2).trim());
 
-                    } else if(command.substring(0, 2).compareTo(SEARCH_LIMIT) == 0){
+        } else if(command.startsWith(PAGE_RANK)){
 
-                        // Modify crawler search limit
-                        synchronized (limit){
-                            int temp = Validation.isValidInteger(command.substring(2, command.length()));
+            // Rank the pages so far in the background, with the damping
+            // factor following the command if given
+            double temp = command.length() > PAGE_RANK.length()
+                    ? Validation.isValidFraction(command.substring(PAGE_RANK.length()))
+                    : LinkAnalysis.DEFAULT_DAMPING_FACTOR;
 
-                            if(temp >= 0){
-                                limit.set(temp);
-                            }
-                        }
+            if(temp >= 0){
+                accepted = startRanking(graph.get(), false, temp);
+            } else {
+                accepted = false;
+            }
 
-                    } else if(command.substring(0, 2).compareTo(SEARCH_TERM) == 0){
+        } else if(command.compareTo(HITS) == 0){
 
-                        String option = Validation.getOptionFromArgument(command, SEARCH_TERM);
+            // Score the hubs and authorities so far in the background
+            accepted = startRanking(graph.get(), true, LinkAnalysis.DEFAULT_DAMPING_FACTOR);
 
-                        if(option != null){
+        } else if(command.compareTo(STRUCTURE) == 0){
 
-                            Argument type = Validation.getOptionType(option);
+            // Analyze the structure of the graph so far in the background
+            accepted = startStructureAnalysis(graph.get());
 
-                            // Modify Search Term
-                            synchronized (enableSearchTerm){
+        } else if(command.compareTo(STATS) == 0){
 
-                                if(type == Argument.OPTION){
-                                    searchTerm.set(option);
-                                    enableSearchTerm.set(true);
-                                } else {
-                                    enableSearchTerm.set(false);
-                                }
-                            }
-                        }
+            // Report the metrics of the crawl so far
+            response = metrics.get().getReport();
+
+            if(server == null){
+                System.err.print(response);
+            }
+
+        } else if(command.startsWith(SEARCH_TERM)){
+
+            String option = Validation.getOptionFromArgument(command, SEARCH_TERM);
+
+            if(option != null){
+
+                Argument type = Validation.getOptionType(option);
+
+                // Modify Search Term
+                synchronized (enableSearchTerm){
+
+                    if(type == Argument.OPTION){
+                        searchTerm.set(option);
+                        enableSearchTerm.set(true);
+                    } else {
+                        enableSearchTerm.set(false);
                     }
                 }
 
-            } catch (IOException e) {
-                e.printStackTrace();
+            } else {
+                accepted = false;
+            }
+
+        } else { // Unknown command, or pause / resume when already paused / resumed
+            accepted = false;
+        }
+        return accepted ? response : null;
+    }
+
+    /**
+     * Stops the crawl from starting new pages. The pages in flight are
+     * finished until the deadline in seconds following the command, or
+     * DRAIN_SECONDS if none is given.
+     * @param command to drain the crawl
+     * @return true if the drain was started and false if the deadline is
+     * invalid
+     */
+    private synchronized boolean startDrain(String command){
+
+        int seconds = command.length() > DRAIN.length()
+                ? Validation.isValidInteger(command.substring(DRAIN.length())) : DRAIN_SECONDS;
+
+        if(seconds < 0){
+            return false;
+        }
+
+        // Keep the deadline of a drain already started
+        synchronized (drainDeadline){
+
+            if(drainDeadline.get() == 0){
+                drainDeadline.set(System.currentTimeMillis() + seconds * 1000L);
+            }
+        }
+
+        // Resume a paused crawl so it can drain
+        paused.set(false);
+
+        synchronized (lock){
+            lock.notifyAll();
+        }
+
+        return true;
+    }
+
+    /**
+     * Waits for a draining crawl to end, once the final checkpoint is
+     * written and the outputs flushed and closed. Other commands are carried
+     * out while it waits.
+     */
+    private void awaitDrained(){
+
+        synchronized (drained){
+
+            while(!drained.get()){
+
+                try {
+                    drained.wait();
+                } catch (InterruptedException e) {
+                    System.err.println("Controller interrupted exception");
+                    return;
+                }
             }
         }
     }
+
+    /**
+     * Starts exporting the graph on a background thread while the crawl
+     * continues.
+     * @param graph to export
+     * @param format to export the graph in
+     * @param path of the export
+     * @return true if the export was started and false otherwise
+     */
+    private boolean startExport(WebGraph graph, ExportFormat format, String path){
+
+        if(graph != null && Validation.isValidString(path)){
+            new GraphExporter(graph, format, path).start();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Starts ranking the pages of the graph on a background thread while the
+     * crawl continues, so the scores are included in later exports.
+     * @param graph to rank
+     * @param hits true to rank with HITS and false for PageRank
+     * @param dampingFactor of PageRank
+     * @return true if the ranking was started and false otherwise
+     */
+    private boolean startRanking(final WebGraph graph, final boolean hits, final double dampingFactor){
+
+        if(graph != null){
+
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+
+                    LinkAnalysis analysis = new LinkAnalysis();
+                    analysis.setDampingFactor(dampingFactor);
+
+                    if(hits){
+                        analysis.rankHubsAndAuthorities(graph);
+                    } else {
+                        analysis.rankPages(graph);
+                    }
+                }
+            }, "link-analysis").start();
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Starts analyzing the structure of the graph on a background thread
+     * while the crawl continues, so the results are included in later
+     * exports.
+     * @param graph to analyze
+     * @return true if the analysis was started and false otherwise
+     */
+    private boolean startStructureAnalysis(final WebGraph graph){
+
+        if(graph != null){
+
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    new StructureAnalysis().analyze(graph);
+                }
+            }, "structure-analysis").start();
+
+            return true;
+        }
+
+        return false;
+    }
 }
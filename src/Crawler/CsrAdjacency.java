@@ -0,0 +1,131 @@
+package Crawler;
+
+/**
+ * Compressed sparse row adjacency of a graph. The neighbors of node n are
+ * stored from getOffset(n) up to getOffset(n + 1), along with the index of
+ * the link each neighbor was reached by. Nodes are the indexes of the pages
+ * in their graph.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class CsrAdjacency {
+
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int[] links;
+
+    /**
+     * Constructor - builds the adjacency of the links from the from nodes to
+     * the to nodes with a counting sort, keeping the links of each node in
+     * the order they were added.
+     * @param nodeCount number of nodes
+     * @param from node of each link
+     * @param to node of each link
+     * @param linkCount number of links
+     */
+    CsrAdjacency(int nodeCount, IntArray from, IntArray to, int linkCount){
+
+        offsets = new int[nodeCount + 1];
+        neighbors = new int[linkCount];
+        links = new int[linkCount];
+
+        for(int i = 0; i < linkCount; i++){
+            offsets[from.get(i) + 1]++;
+        }
+
+        for(int i = 0; i < nodeCount; i++){
+            offsets[i + 1] += offsets[i];
+        }
+
+        // Use a copy of the offsets as the next free position of each node
+        int[] next = new int[nodeCount];
+        System.arraycopy(offsets, 0, next, 0, nodeCount);
+
+        for(int i = 0; i < linkCount; i++){
+
+            int position = next[from.get(i)]++;
+
+            neighbors[position] = to.get(i);
+            links[position] = i;
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the adjacency.
+     * @return node count
+     */
+    public int getNodeCount(){
+
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of links in the adjacency.
+     * @return link count
+     */
+    public int getLinkCount(){
+
+        return neighbors.length;
+    }
+
+    /**
+     * Returns the position of the node's first neighbor.
+     * @param node to get the offset of
+     * @return offset of the node's neighbors
+     */
+    public int getOffset(int node){
+
+        return offsets[node];
+    }
+
+    /**
+     * Returns the number of neighbors of the node.
+     * @param node to get the degree of
+     * @return node degree
+     */
+    public int getDegree(int node){
+
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * Returns the neighbor at the position.
+     * @param position of the neighbor
+     * @return neighbor node
+     */
+    public int getNeighbor(int position){
+
+        return neighbors[position];
+    }
+
+    /**
+     * Returns the link the neighbor at the position was reached by.
+     * @param position of the neighbor
+     * @return link index
+     */
+    public int getLink(int position){
+
+        return links[position];
+    }
+
+    /**
+     * Returns the offsets array, for algorithms that walk the adjacency
+     * directly. The array is shared and must not be modified.
+     * @return offsets of each node, with one entry more than nodes
+     */
+    public int[] getOffsets(){
+
+        return offsets;
+    }
+
+    /**
+     * Returns the neighbors array, for algorithms that walk the adjacency
+     * directly. The array is shared and must not be modified.
+     * @return neighbors of every node
+     */
+    public int[] getNeighbors(){
+
+        return neighbors;
+    }
+}
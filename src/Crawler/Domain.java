@@ -11,6 +11,8 @@ public class Domain {
 
     private String domainName;
     private int domainId;
+    private Integer linkCount;
+    private Integer componentCount;
 
     /**
      * Default Constructor - builds a base class with default values for the
@@ -71,6 +73,44 @@ public class Domain {
         this.domainId = domainId;
     }
 
+    /**
+     * Returns the number of links between pages of the domain, or null if
+     * the graph hasn't been analyzed.
+     * @return link count within the domain
+     */
+    public Integer getLinkCount() {
+
+        return linkCount;
+    }
+
+    /**
+     * Set the number of links between pages of the domain.
+     * @param linkCount within the domain
+     */
+    public void setLinkCount(Integer linkCount) {
+
+        this.linkCount = linkCount;
+    }
+
+    /**
+     * Returns the number of strongly connected components of the domain's
+     * pages, or null if the graph hasn't been analyzed.
+     * @return component count of the domain
+     */
+    public Integer getComponentCount() {
+
+        return componentCount;
+    }
+
+    /**
+     * Set the number of strongly connected components of the domain's pages.
+     * @param componentCount of the domain
+     */
+    public void setComponentCount(Integer componentCount) {
+
+        this.componentCount = componentCount;
+    }
+
     /**
      * Returns a string representation of the domain.
      * @return string representation of the domain
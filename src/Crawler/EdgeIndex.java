@@ -0,0 +1,150 @@
+package Crawler;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash index of the links of a graph, from the packed
+ * (source id, target id) pair of a link to the index of the first link
+ * added between them. Keys and values are kept in primitive arrays with
+ * linear probing, so a lookup is a few array reads with no boxing.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class EdgeIndex {
+
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] keys;
+    private int[] values; // NONE marks an empty slot
+    private int size;
+
+    /**
+     * Constructor - builds an empty index.
+     */
+    public EdgeIndex(){
+
+        keys = new long[INITIAL_CAPACITY];
+        values = new int[INITIAL_CAPACITY];
+        Arrays.fill(values, NONE);
+        size = 0;
+    }
+
+    /**
+     * Packs the source and target ids of a link into a key.
+     * @param sourceId of the link
+     * @param targetId of the link
+     * @return key of the link
+     */
+    public static long key(int sourceId, int targetId){
+
+        return ((long) sourceId << 32) | (targetId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the link index stored for the key.
+     * @param key of the link
+     * @return link index, or NONE if there is none
+     */
+    public int get(long key){
+
+        int mask = values.length - 1;
+
+        for(int slot = slot(key, mask); values[slot] != NONE; slot = (slot + 1) & mask){
+
+            if(keys[slot] == key){
+                return values[slot];
+            }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * Stores the link index for the key, unless the key already has one.
+     * @param key of the link
+     * @param link index to store, must not be negative
+     * @return true if the index was stored and false if the key was present
+     */
+    public boolean putIfAbsent(long key, int link){
+
+        // Keep the table at most half full so probe runs stay short
+        if((size + 1) * 2 > values.length){
+            resize(values.length * 2);
+        }
+
+        int mask = values.length - 1;
+        int slot = slot(key, mask);
+
+        for(; values[slot] != NONE; slot = (slot + 1) & mask){
+
+            if(keys[slot] == key){
+                return false;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = link;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Returns the number of keys in the index.
+     * @return key count
+     */
+    public int size(){
+
+        return size;
+    }
+
+    /**
+     * Rehashes the keys into a table of the given capacity.
+     * @param capacity of the new table, a power of two
+     */
+    private void resize(int capacity){
+
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NONE);
+
+        int mask = capacity - 1;
+
+        for(int i = 0; i < oldValues.length; i++){
+
+            if(oldValues[i] != NONE){
+
+                int slot = slot(oldKeys[i], mask);
+
+                while(values[slot] != NONE){
+                    slot = (slot + 1) & mask;
+                }
+
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the home slot of the key, mixing its bits so sequential ids
+     * spread across the table.
+     * @param key to hash
+     * @param mask of the table
+     * @return slot of the key
+     */
+    private static int slot(long key, int mask){
+
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,16 @@
+package Crawler;
+
+/**
+ * Formats a web graph can be exported in.
+ *  - EDGES: CSV edge list of source id, target id, cyclic and bidirectional
+ *  - GRAPHML: GraphML document of the pages and links
+ *  - COLUMNS: directory with a single column CSV file for each field of the
+ *             pages, links, domains and invalid URLs
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public enum ExportFormat {
+
+    EDGES, GRAPHML, COLUMNS
+}
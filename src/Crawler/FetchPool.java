@@ -0,0 +1,480 @@
+package Crawler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of worker threads fetching the pages of a crawl, with an optional
+ * pool of threads parsing them. The crawl thread hands each page to the
+ * pool with an indexer of its own and takes the pages back in the order
+ * they finish, so the graph and frontier are still only changed by the
+ * crawl thread. Each page is admitted through the rate limiter by the
+ * worker fetching it.
+ *
+ * The number of workers and parse threads can be changed while pages are
+ * in flight. Threads are added straight away, and a retired thread finishes
+ * the page it's working on first. With no parse threads, pages are parsed
+ * by the worker that fetched them. The pages in flight are bounded by the
+ * workers and parse threads, so fetched pages don't pile up waiting to be
+ * parsed.
+ *
+ * The pages in flight to each host are counted, so the crawl can hold back
+ * the pages of a host at its connection limit. Held back entries are parked
+ * in the pool, up to MAX_PARKED, letting the pages of other hosts behind
+ * them in the frontier go first, and are handed out again once their host
+ * has room.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class FetchPool {
+
+    public static final int MAX_PARKED = 1024;
+
+    private final RateLimiter rateLimiter;
+    private final ThreadPoolExecutor fetchers;
+    private final ThreadPoolExecutor parsers;
+    private final LinkedBlockingQueue<Fetch> finished;
+    private final AtomicInteger fetching;     // Pages handed to the workers and not yet fetched
+    private volatile int parseThreads;
+
+    // Only used by the crawl thread
+    private final ArrayList<Fetch> inFlight;
+    private final HashMap<String, Integer> hostFetches;
+    private final LinkedHashMap<String, ArrayDeque<FrontierEntry>> parked;
+    private int parkedCount;
+    private int workers;
+
+    /**
+     * Constructor - starts a pool with the given number of threads.
+     * @param rateLimiter each page is admitted through
+     * @param workers fetching pages, at least 1
+     * @param parseThreads parsing pages, 0 to parse on the workers
+     */
+    public FetchPool(RateLimiter rateLimiter, int workers, int parseThreads){
+
+        this.rateLimiter = rateLimiter;
+        this.fetchers = createPool("crawl-fetcher");
+        this.parsers = createPool("crawl-parser");
+        this.finished = new LinkedBlockingQueue<Fetch>();
+        this.fetching = new AtomicInteger(0);
+        this.inFlight = new ArrayList<Fetch>();
+        this.hostFetches = new HashMap<String, Integer>();
+        this.parked = new LinkedHashMap<String, ArrayDeque<FrontierEntry>>();
+
+        resize(workers, parseThreads);
+    }
+
+    /**
+     * Builds a pool of daemon threads, resized with setPoolSize.
+     * @param name prefix of the pool's threads
+     * @return thread pool
+     */
+    private static ThreadPoolExecutor createPool(final String name){
+
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+
+                    private final AtomicInteger count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+
+                        Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Changes the number of workers and parse threads. Fewer threads are
+     * retired as they finish their current page.
+     * @param workers fetching pages, at least 1
+     * @param parseThreads parsing pages, 0 to parse on the workers
+     */
+    public void resize(int workers, int parseThreads){
+
+        this.workers = Math.max(1, workers);
+        this.parseThreads = Math.max(0, parseThreads);
+
+        setPoolSize(fetchers, this.workers);
+        setPoolSize(parsers, Math.max(1, this.parseThreads));
+    }
+
+    /**
+     * Sets the number of threads of the pool, keeping the core size within
+     * the maximum size as they're changed. The queue is unbounded, so the
+     * pool runs the core number of threads.
+     * @param pool to resize
+     * @param size of the pool
+     */
+    private static void setPoolSize(ThreadPoolExecutor pool, int size){
+
+        if(size > pool.getMaximumPoolSize()){
+
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+
+        } else if(size < pool.getMaximumPoolSize()){
+
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
+        }
+    }
+
+    /**
+     * Checks whether a worker is free for another page. Pages fetched and
+     * waiting to be parsed or taken back count against the parse threads, so
+     * no more pages are fetched than can be parsed.
+     * @return true if a page can be handed to the pool and false otherwise
+     */
+    public boolean hasFreeWorker(){
+
+        return fetching.get() < workers && inFlight.size() < workers + parseThreads;
+    }
+
+    /**
+     * Checks whether the host has fewer pages in flight than its connection
+     * limit.
+     * @param hostname of the page
+     * @param hostConnections limit of pages in flight to a host, 0 for
+     *                        unlimited
+     * @return true if a page of the host can be handed to the pool and false
+     * otherwise
+     */
+    public boolean hasHostRoom(String hostname, int hostConnections){
+
+        if(hostConnections <= 0){
+            return true;
+        }
+
+        Integer count = hostFetches.get(hostname);
+
+        return count == null || count < hostConnections;
+    }
+
+    /**
+     * Checks whether another entry can be parked.
+     * @return true if fewer than MAX_PARKED entries are parked and false
+     * otherwise
+     */
+    public boolean canPark(){
+
+        return parkedCount < MAX_PARKED;
+    }
+
+    /**
+     * Parks the entry of a host at its connection limit until the host has
+     * room.
+     * @param hostname of the entry's page
+     * @param entry taken from the frontier
+     */
+    public void park(String hostname, FrontierEntry entry){
+
+        ArrayDeque<FrontierEntry> entries = parked.get(hostname);
+
+        if(entries == null){
+            entries = new ArrayDeque<FrontierEntry>();
+            parked.put(hostname, entries);
+        }
+
+        entries.add(entry);
+        parkedCount++;
+    }
+
+    /**
+     * Takes the first parked entry of the host parked longest that has room
+     * for another page.
+     * @param hostConnections limit of pages in flight to a host, 0 for
+     *                        unlimited
+     * @return parked entry, or null if no host with parked entries has room
+     */
+    public FrontierEntry unpark(int hostConnections){
+
+        if(parkedCount == 0){
+            return null;
+        }
+
+        Iterator<Map.Entry<String, ArrayDeque<FrontierEntry>>> hosts = parked.entrySet().iterator();
+
+        while(hosts.hasNext()){
+
+            Map.Entry<String, ArrayDeque<FrontierEntry>> host = hosts.next();
+
+            if(hasHostRoom(host.getKey(), hostConnections)){
+
+                FrontierEntry entry = host.getValue().poll();
+
+                if(host.getValue().isEmpty()){
+                    hosts.remove();
+                }
+
+                parkedCount--;
+
+                return entry;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Drops the parked entries.
+     */
+    public void clearParked(){
+
+        parked.clear();
+        parkedCount = 0;
+    }
+
+    /**
+     * Hands a page to the pool to be fetched and parsed.
+     * @param entry of the page taken from the frontier
+     * @param page to fetch
+     * @param indexer of the page, set to its url
+     */
+    public void submit(FrontierEntry entry, WebPage page, WebPageIndexer indexer){
+
+        final Fetch fetch = new Fetch(entry, page, indexer);
+
+        inFlight.add(fetch);
+        count(page.getHostname(), 1);
+        fetching.incrementAndGet();
+
+        fetchers.execute(new Runnable() {
+            @Override
+            public void run() {
+                fetch(fetch);
+            }
+        });
+    }
+
+    /**
+     * Fetches the page on a worker, then parses it on the worker or hands it
+     * to the parse threads. Once the pool is closed, the page is parsed on
+     * the worker. An error thrown fetching the page fails it, so it's always
+     * handed back to the crawl thread.
+     * @param fetch of the page
+     */
+    private void fetch(final Fetch fetch){
+
+        try {
+
+            String hostname = fetch.page.getHostname();
+
+            rateLimiter.acquireRequest(hostname);
+            fetch.retrieved = fetch.indexer.fetchHtml();
+            rateLimiter.chargeBytes(hostname, fetch.indexer.getResponseByteCount());
+
+        } catch (RuntimeException e) {
+
+            System.err.println("Page " + fetch.page.getUrl() + " could not be fetched: " + e);
+            fetch.indexer.fail(e);
+            fetch.retrieved = false;
+
+        } finally {
+            fetching.decrementAndGet();
+        }
+
+        if(fetch.retrieved && parseThreads > 0){
+
+            try {
+
+                parsers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        parse(fetch);
+                    }
+                });
+
+                return;
+
+            } catch (RejectedExecutionException e) {
+                // Pool closed, parsed on the worker
+            }
+        }
+
+        parse(fetch);
+    }
+
+    /**
+     * Parses a fetched page and hands it back to the crawl thread. An error
+     * thrown parsing the page fails it.
+     * @param fetch of the page
+     */
+    private void parse(Fetch fetch){
+
+        try {
+
+            if(fetch.retrieved){
+                fetch.retrieved = fetch.indexer.parseHtml();
+            }
+
+        } catch (RuntimeException e) {
+
+            System.err.println("Page " + fetch.page.getUrl() + " could not be parsed: " + e);
+            fetch.indexer.fail(e);
+            fetch.retrieved = false;
+
+        } finally {
+            finished.add(fetch);
+        }
+    }
+
+    /**
+     * Waits up to the given time for the next page to finish.
+     * @param timeout in milliseconds
+     * @return fetch of the finished page, or null if none finished in time
+     * or interrupted
+     */
+    public Fetch poll(long timeout){
+
+        try {
+
+            Fetch fetch = finished.poll(timeout, TimeUnit.MILLISECONDS);
+
+            if(fetch != null){
+                inFlight.remove(fetch);
+                count(fetch.page.getHostname(), -1);
+            }
+
+            return fetch;
+
+        } catch (InterruptedException e) {
+
+            System.err.println("Thread interrupted exception");
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Changes the number of pages in flight to the host.
+     * @param hostname of the page
+     * @param change to the count
+     */
+    private void count(String hostname, int change){
+
+        Integer count = hostFetches.get(hostname);
+        int updated = (count == null ? 0 : count) + change;
+
+        if(updated > 0){
+            hostFetches.put(hostname, updated);
+        } else {
+            hostFetches.remove(hostname);
+        }
+    }
+
+    /**
+     * Returns the number of pages handed to the pool and not yet taken back.
+     * @return pages in flight
+     */
+    public int size(){
+
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the frontier entries of the pages in flight, followed by the
+     * parked entries, which are taken out of the frontier but not yet
+     * indexed.
+     * @return entries in flight and parked
+     */
+    public ArrayList<FrontierEntry> getPendingEntries(){
+
+        ArrayList<FrontierEntry> entries = new ArrayList<FrontierEntry>(inFlight.size() + parkedCount);
+
+        for(Fetch fetch : inFlight){
+            entries.add(fetch.entry);
+        }
+
+        for(ArrayDeque<FrontierEntry> hostEntries : parked.values()){
+            entries.addAll(hostEntries);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Stops the pool's threads. Pages still in flight are abandoned, their
+     * workers stopping once the page has been fetched.
+     */
+    public void close(){
+
+        fetchers.shutdownNow();
+        parsers.shutdownNow();
+    }
+
+    /**
+     * Page handed to the pool, along with its frontier entry and the indexer
+     * fetching it.
+     */
+    public static class Fetch {
+
+        private final FrontierEntry entry;
+        private final WebPage page;
+        private final WebPageIndexer indexer;
+        private boolean retrieved;
+
+        /**
+         * Constructor - builds the fetch of a page.
+         * @param entry of the page taken from the frontier
+         * @param page to fetch
+         * @param indexer of the page
+         */
+        Fetch(FrontierEntry entry, WebPage page, WebPageIndexer indexer){
+
+            this.entry = entry;
+            this.page = page;
+            this.indexer = indexer;
+        }
+
+        /**
+         * Returns the frontier entry of the page.
+         * @return frontier entry
+         */
+        public FrontierEntry getEntry(){
+
+            return entry;
+        }
+
+        /**
+         * Returns the page fetched.
+         * @return web page
+         */
+        public WebPage getPage(){
+
+            return page;
+        }
+
+        /**
+         * Returns the indexer that fetched the page.
+         * @return indexer of the page
+         */
+        public WebPageIndexer getIndexer(){
+
+            return indexer;
+        }
+
+        /**
+         * Returns whether the page was retrieved.
+         * @return true if the page was retrieved and false otherwise
+         */
+        public boolean isRetrieved(){
+
+            return retrieved;
+        }
+    }
+}
@@ -1,20 +1,68 @@
 package Crawler;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
- * Writes the JSON web pages to a file.
+ * Writes the JSON web pages to a file, one page per line, through a file
+ * channel with a large direct buffer. Binary pages are length-prefixed, so
+ * they are written back to back without line separators.
+ *
+ * The output can be rotated into numbered segments (name.00000, name.00001,
+ * ...) by size and/or time, so long crawls can be consumed while they are
+ * still being written. Each completed segment is forced to disk and then
+ * appended to a manifest (name.manifest) as a tab separated line of the
+ * segment name, page count, byte count and completion time, which downstream
+ * jobs can follow to process segments incrementally.
+ *
+ * With a compression codec set, each segment is written as its own
+ * compressed stream (name.00000.gz, ...) so it can be decompressed without
+ * the others. Compression is done by the thread writing the pages, which is
+ * the output writer thread rather than the crawl.
+ *
+ * Durability follows the sync policy. With BATCH, one fsync is done for each
+ * flush, which the output writer does once per batch of pages, so many pages
+ * share a single fsync.
  *
  * @author Seth Dovgan
  * @version 22FEB18
  */
-public class FileProcessor {
+public class FileProcessor implements OutputSink {
+
+    private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator").getBytes();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final String MANIFEST_EXTENSION = ".manifest";
 
-    private PrintWriter writer;
+    private ChannelOutputStream writer;
+    private OutputStream out;
+    private CompressionCodec codec;
     private String fileName;
 
+    // Rotation and durability settings
+    private long rotateBytes;
+    private long rotateMillis;
+    private SyncPolicy syncPolicy;
+    private long syncIntervalMillis;
+
+    // Current segment
+    private int segmentIndex;
+    private String segmentName;
+    private long segmentRecords;
+    private long segmentBytes;
+    private long segmentStarted;
+    private long lastSync;
+    private long syncedPosition;
+    private FileChannel manifest;
+    private boolean lineSeparated;
+
     /**
      * Constructor. Sets the name of the file to write the Json strings to
      * @param fileName to write the Json string to
@@ -22,6 +70,62 @@ public class FileProcessor {
     public FileProcessor(String fileName){
 
         this.fileName = fileName;
+        this.rotateBytes = 0;
+        this.rotateMillis = 0;
+        this.syncPolicy = SyncPolicy.BATCH;
+        this.syncIntervalMillis = 1000;
+        this.lineSeparated = true;
+    }
+
+    /**
+     * Sets the codec used to compress the file, or null for no compression.
+     * @param codec to compress with
+     */
+    public void setCompression(CompressionCodec codec){
+
+        this.codec = codec;
+    }
+
+    /**
+     * Sets whether each record is followed by a line separator.
+     * @param lineSeparated true for line separated records and false otherwise
+     */
+    public void setLineSeparated(boolean lineSeparated){
+
+        this.lineSeparated = lineSeparated;
+    }
+
+    /**
+     * Sets the size and age at which the output is rotated into a new
+     * segment. A value of 0 disables that trigger, and if both are 0 a single
+     * file is written.
+     * @param rotateBytes of pages written before a segment is rotated
+     * @param rotateMillis since a segment was started before it is rotated
+     */
+    public void setRotation(long rotateBytes, long rotateMillis){
+
+        this.rotateBytes = rotateBytes;
+        this.rotateMillis = rotateMillis;
+    }
+
+    /**
+     * Sets when written pages are forced to disk.
+     * @param syncPolicy to use
+     * @param syncIntervalMillis minimum time between syncs for the INTERVAL policy
+     */
+    public void setSyncPolicy(SyncPolicy syncPolicy, long syncIntervalMillis){
+
+        this.syncPolicy = syncPolicy;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    /**
+     * Returns whether the output is rotated into segments.
+     * @return true if rotation is enabled and false otherwise
+     */
+    public boolean isRotated(){
+
+        return rotateBytes > 0 || rotateMillis > 0;
     }
 
     /**
@@ -30,21 +134,121 @@ public class FileProcessor {
      */
     public void setup(){
 
-        File outputFile;
+        segmentIndex = 0;
+        lastSync = System.currentTimeMillis();
 
         try {
 
-            // Create a new file and writer
-            outputFile = new File(fileName);
-            writer = new PrintWriter(outputFile);
+            if(isRotated()){
+                manifest = FileChannel.open(Paths.get(fileName + MANIFEST_EXTENSION),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+
+            openSegment();
 
         // Print error message if file is not accessible
-        } catch(FileNotFoundException e){
+        } catch(IOException e){
 
             System.err.println("File " + fileName + " could not be found.");
         }
     }
 
+    /**
+     * Opens the next segment, or the single output file if rotation is
+     * disabled.
+     * @throws IOException if the file can't be created
+     */
+    private void openSegment() throws IOException {
+
+        segmentName = isRotated() ? String.format("%s.%05d", fileName, segmentIndex) : fileName;
+
+        if(codec != null){
+            segmentName += codec.getExtension();
+        }
+
+        segmentRecords = 0;
+        segmentBytes = 0;
+        segmentStarted = System.currentTimeMillis();
+        syncedPosition = 0;
+
+        Path path = Paths.get(segmentName);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        writer = new ChannelOutputStream(channel, BUFFER_SIZE);
+        out = writer;
+
+        // Closing the compressed stream finishes it, but the channel is kept
+        // open until the segment has been forced to disk
+        if(codec != null){
+
+            out = codec.compress(new FilterOutputStream(writer){
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    this.out.write(bytes, offset, length);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    this.out.flush();
+                }
+            });
+        }
+    }
+
+    /**
+     * Finishes, forces and closes the current segment, and records it in the
+     * manifest if the output is rotated. The manifest holds the size of the
+     * segment on disk.
+     * @throws IOException if the segment or manifest can't be written
+     */
+    private void closeSegment() throws IOException {
+
+        if(out != writer){
+            out.close();
+        }
+
+        writer.force();
+
+        long fileBytes = writer.getPosition();
+
+        writer.close();
+        writer = null;
+        out = null;
+
+        if(manifest != null){
+
+            String entry = Paths.get(segmentName).getFileName() + "\t" + segmentRecords + "\t"
+                    + fileBytes + "\t" + System.currentTimeMillis() + "\n";
+
+            ByteBuffer bytes = ByteBuffer.wrap(entry.getBytes(UTF_8));
+
+            while(bytes.hasRemaining()){
+                manifest.write(bytes);
+            }
+
+            manifest.force(false);
+        }
+
+        segmentIndex++;
+    }
+
+    /**
+     * Rotates to a new segment if the current one has reached its size or age.
+     * @throws IOException if the segments can't be written
+     */
+    private void rotateIfDue() throws IOException {
+
+        if(segmentRecords > 0 && ((rotateBytes > 0 && segmentBytes >= rotateBytes)
+                || (rotateMillis > 0 && System.currentTimeMillis() - segmentStarted >= rotateMillis))){
+
+            closeSegment();
+            openSegment();
+        }
+    }
+
     /**
      * Close the open file writer.
      */
@@ -52,7 +256,18 @@ public class FileProcessor {
 
         // Check if the writer has been initialized first
         if(writer != null){
-            writer.close();
+
+            try {
+
+                closeSegment();
+
+                if(manifest != null){
+                    manifest.close();
+                }
+
+            } catch(IOException e) {
+                System.err.println("File " + fileName + " could not be closed.");
+            }
         }
     }
 
@@ -62,6 +277,87 @@ public class FileProcessor {
      */
     public void writeJSONToFile(String json){
 
-        writer.println(json);
+        byte[] bytes = json.getBytes(UTF_8);
+        writeRecord(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Appends the given record to the file followed by a line separator if
+     * enabled, rotating to a new segment first if the current one is due.
+     * @param bytes containing the record
+     * @param offset of the record in the bytes
+     * @param length of the record
+     */
+    @Override
+    public void writeRecord(byte[] bytes, int offset, int length){
+
+        // Check if the writer has been initialized first
+        if(writer != null){
+
+            try {
+
+                rotateIfDue();
+
+                out.write(bytes, offset, length);
+                segmentBytes += length;
+
+                if(lineSeparated){
+                    out.write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+                    segmentBytes += LINE_SEPARATOR.length;
+                }
+
+                segmentRecords++;
+
+            } catch(IOException e) {
+                System.err.println("File " + fileName + " could not be written to.");
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file and syncs them to disk if the
+     * sync policy calls for it. Segments past their age are rotated.
+     */
+    @Override
+    public void flush(){
+
+        if(writer != null){
+
+            try {
+
+                rotateIfDue();
+
+                long now = System.currentTimeMillis();
+
+                // Sync flush the compressor so the pages written so far are readable
+                if(out != writer){
+                    out.flush();
+                }
+
+                // Only sync when records were written since the last sync
+                if(writer.getPosition() > syncedPosition && (syncPolicy == SyncPolicy.BATCH
+                        || (syncPolicy == SyncPolicy.INTERVAL && now - lastSync >= syncIntervalMillis))){
+
+                    writer.force();
+                    syncedPosition = writer.getPosition();
+                    lastSync = now;
+
+                } else {
+                    writer.flush();
+                }
+
+            } catch(IOException e) {
+                System.err.println("File " + fileName + " could not be written to.");
+            }
+        }
+    }
+
+    /**
+     * Closes the file.
+     */
+    @Override
+    public void close(){
+
+        teardown();
     }
 }
@@ -0,0 +1,161 @@
+package Crawler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Message sent over the socket control and data channels. Each frame is
+ * written as a 4 byte big-endian payload length, a 1 byte frame type and the
+ * payload. Command, ack and nack frames start their payload with a 4 byte
+ * request id followed by UTF-8 text, so a reply can be matched to the
+ * command it answers. Page frames hold a serialized page exactly as it would
+ * be written to stdout, and end frames have no payload.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class Frame {
+
+    public static final int HEADER_SIZE = 5;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final FrameType type;
+    private final byte[] payload;
+
+    /**
+     * Constructor - builds a frame of the given type and payload.
+     * @param type of the frame
+     * @param payload of the frame
+     */
+    public Frame(FrameType type, byte[] payload){
+
+        this.type = type;
+        this.payload = payload;
+    }
+
+    /**
+     * Builds a frame of a request id and text, as used by command, ack and
+     * nack frames.
+     * @param type of the frame
+     * @param requestId of the command
+     * @param text of the frame
+     * @return frame of the request
+     */
+    public static Frame request(FrameType type, int requestId, String text){
+
+        byte[] bytes = text.getBytes(UTF_8);
+        byte[] payload = new byte[4 + bytes.length];
+
+        payload[0] = (byte) (requestId >>> 24);
+        payload[1] = (byte) (requestId >>> 16);
+        payload[2] = (byte) (requestId >>> 8);
+        payload[3] = (byte) requestId;
+        System.arraycopy(bytes, 0, payload, 4, bytes.length);
+
+        return new Frame(type, payload);
+    }
+
+    /**
+     * Returns the type of the frame.
+     * @return frame type
+     */
+    public FrameType getType(){
+
+        return type;
+    }
+
+    /**
+     * Returns the payload of the frame.
+     * @return frame payload
+     */
+    public byte[] getPayload(){
+
+        return payload;
+    }
+
+    /**
+     * Returns the request id of a command, ack or nack frame.
+     * @return request id of the frame
+     */
+    public int getRequestId(){
+
+        return ((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16)
+                | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+    }
+
+    /**
+     * Returns the text of a command, ack or nack frame.
+     * @return text of the frame
+     */
+    public String getText(){
+
+        return new String(payload, 4, payload.length - 4, UTF_8);
+    }
+
+    /**
+     * Writes the frame to the stream in a single write without flushing it,
+     * so an unbuffered socket stream sends it as one segment.
+     * @param out to write the frame to
+     * @throws IOException if the frame could not be written
+     */
+    public void write(DataOutputStream out) throws IOException {
+
+        byte[] bytes = new byte[HEADER_SIZE + payload.length];
+
+        bytes[0] = (byte) (payload.length >>> 24);
+        bytes[1] = (byte) (payload.length >>> 16);
+        bytes[2] = (byte) (payload.length >>> 8);
+        bytes[3] = (byte) payload.length;
+        bytes[4] = (byte) type.getId();
+        System.arraycopy(payload, 0, bytes, HEADER_SIZE, payload.length);
+
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a frame of the given bytes to the stream without flushing it.
+     * @param out to write the frame to
+     * @param type of the frame
+     * @param bytes containing the payload
+     * @param offset of the payload in the bytes
+     * @param length of the payload
+     * @throws IOException if the frame could not be written
+     */
+    public static void write(DataOutputStream out, FrameType type, byte[] bytes,
+                             int offset, int length) throws IOException {
+
+        out.writeInt(length);
+        out.writeByte(type.getId());
+        out.write(bytes, offset, length);
+    }
+
+    /**
+     * Reads a frame from the stream.
+     * @param in to read the frame from
+     * @param maxLength of the payloads accepted
+     * @return frame read
+     * @throws IOException if the stream ended or the frame is invalid
+     */
+    public static Frame read(DataInputStream in, int maxLength) throws IOException {
+
+        int length = in.readInt();
+        FrameType type = FrameType.getType(in.readUnsignedByte());
+
+        if(length < 0 || length > maxLength || type == null){
+            throw new IOException("Invalid frame");
+        }
+
+        if((type == FrameType.COMMAND || type == FrameType.ACK || type == FrameType.NACK)
+                && length < 4){
+            throw new IOException("Frame missing request id");
+        }
+
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+
+        return new Frame(type, payload);
+    }
+}
@@ -0,0 +1,59 @@
+package Crawler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Frame Type enum. Types of the frames sent over the socket control and data
+ * channels.
+ *  - COMMAND: controller command sent to the crawler, with a request id
+ *  - ACK: command with the request id was carried out
+ *  - NACK: command with the request id was unknown or ignored
+ *  - PAGE: serialized web page, in the crawl's output format
+ *  - END: the crawl has ended
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public enum FrameType {
+
+    COMMAND(1),
+    ACK(2),
+    NACK(3),
+    PAGE(4),
+    END(5);
+
+    private int id;
+    private static final Map<Integer, FrameType> frameTypesByValue = new HashMap<Integer, FrameType>();
+
+    static {
+        for (FrameType type : FrameType.values()) {
+            frameTypesByValue.put(type.id, type);
+        }
+    }
+
+    /**
+     * Base Constructor.
+     * @param id of the frame type
+     */
+    FrameType(int id){
+        this.id = id;
+    }
+
+    /**
+     * Returns the integer id associated with the Frame Type.
+     * @return id for the frame type
+     */
+    public int getId(){
+        return id;
+    }
+
+    /**
+     * Returns the frame type associated with the id.
+     * @param id to get the corresponding frame type
+     * @return frame type corresponding to the id, or null if there is none
+     */
+    public static FrameType getType(int id){
+        return frameTypesByValue.get(id);
+    }
+}
@@ -0,0 +1,58 @@
+package Crawler;
+
+/**
+ * Link waiting in the frontier of a crawl to be indexed. Only the id of the
+ * link's URL in the graph's URL arena, its height and the id of the page it
+ * was found on are kept, and a web page is only built for it once it's taken
+ * from the frontier to be indexed.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class FrontierEntry {
+
+    private final int urlId;
+    private final int height;
+    private final int parentId;
+
+    /**
+     * Constructor - builds the entry of a link.
+     * @param urlId of the link's URL in the graph
+     * @param height of the link's page in the graph
+     * @param parentId of the page the link was found on, or
+     *                 WebPage.UNASSIGNED_ID for the source page
+     */
+    public FrontierEntry(int urlId, int height, int parentId){
+
+        this.urlId = urlId;
+        this.height = height;
+        this.parentId = parentId;
+    }
+
+    /**
+     * Returns the id of the link's URL in the graph.
+     * @return URL id
+     */
+    public int getUrlId(){
+
+        return urlId;
+    }
+
+    /**
+     * Returns the height of the link's page in the graph.
+     * @return height of the page
+     */
+    public int getHeight(){
+
+        return height;
+    }
+
+    /**
+     * Returns the id of the page the link was found on.
+     * @return parent page id, or WebPage.UNASSIGNED_ID for the source page
+     */
+    public int getParentId(){
+
+        return parentId;
+    }
+}
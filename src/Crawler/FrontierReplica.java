@@ -0,0 +1,261 @@
+package Crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Replica of the frontier held in a QueBaStack, kept by a checkpoint and
+ * brought up to date from the log of the changes made to the structure, so
+ * the crawl only hands over the log rather than copying the frontier.
+ *
+ * Entries are kept in the order they were inserted, removed entries are
+ * only marked, and a Fenwick tree of the entries still in the frontier finds
+ * the entry at an index of the structure in log time. Removed entries are
+ * compacted away once they outnumber the entries left.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+class FrontierReplica {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] urlIds;       // URL id of each entry inserted
+    private int[] heights;      // Height of each entry inserted
+    private int[] parentIds;    // Parent page id of each entry inserted
+    private int[] tree;         // Fenwick tree of the entries left, from index 1
+    private final BitSet left;  // Entries inserted and not removed
+    private int count;          // Entries inserted since the last compaction
+    private int size;           // Entries left
+    private int type;
+    private int next;
+    private int nextRandom;
+
+    /**
+     * Constructor - builds a replica of the entries, type and positions of a
+     * structure.
+     * @param urlIds of the entries
+     * @param heights of the entries
+     * @param parentIds of the entries
+     * @param size of the structure
+     * @param type id of the structure
+     * @param next QUEUE index of the structure
+     * @param nextRandom index of the structure
+     */
+    FrontierReplica(int[] urlIds, int[] heights, int[] parentIds, int size, int type, int next, int nextRandom){
+
+        int capacity = Math.max(INITIAL_CAPACITY, size);
+
+        this.urlIds = Arrays.copyOf(urlIds, capacity);
+        this.heights = Arrays.copyOf(heights, capacity);
+        this.parentIds = Arrays.copyOf(parentIds, capacity);
+        this.tree = new int[capacity + 1];
+        this.left = new BitSet(capacity);
+        this.type = type;
+        this.next = next;
+        this.nextRandom = nextRandom;
+
+        this.left.set(0, size);
+        this.count = size;
+        this.size = size;
+
+        buildTree();
+    }
+
+    /**
+     * Applies the changes of a log taken from the structure.
+     * @param log of changes
+     */
+    void apply(IntArray log){
+
+        int i = 0;
+
+        while(i < log.size()){
+
+            int change = log.get(i);
+
+            if(change == QueBaStack.LOG_INSERT){
+
+                insert(log.get(i + 1), log.get(i + 2), log.get(i + 3));
+                i += 4;
+
+            } else if(change == QueBaStack.LOG_REMOVE){
+
+                removeAt(log.get(i + 1));
+                i += 2;
+
+            } else if(change == QueBaStack.LOG_CLEAR){
+
+                left.clear();
+                count = 0;
+                size = 0;
+                i += 1;
+
+            } else {
+
+                type = log.get(i + 1);
+                next = log.get(i + 2);
+                nextRandom = log.get(i + 3);
+                i += 4;
+            }
+        }
+    }
+
+    /**
+     * Writes the type, positions and entries of the replica in the format of
+     * QueBaStack.writeTo, followed by the given entries as if they had been
+     * inserted last.
+     * @param buffer to write to
+     * @param extra entries written after those of the replica
+     */
+    void writeTo(OutputBuffer buffer, ArrayList<FrontierEntry> extra){
+
+        BinaryPageCodec.writeVarint(buffer, type);
+        BinaryPageCodec.writeVarint(buffer, next);
+        BinaryPageCodec.writeVarint(buffer, nextRandom);
+        BinaryPageCodec.writeVarint(buffer, size + extra.size());
+
+        for(int i = left.nextSetBit(0); i >= 0; i = left.nextSetBit(i + 1)){
+
+            BinaryPageCodec.writeVarint(buffer, urlIds[i]);
+            BinaryPageCodec.writeVarint(buffer, heights[i]);
+            BinaryPageCodec.writeInt(buffer, parentIds[i]);
+        }
+
+        for(FrontierEntry entry : extra){
+
+            BinaryPageCodec.writeVarint(buffer, entry.getUrlId());
+            BinaryPageCodec.writeVarint(buffer, entry.getHeight());
+            BinaryPageCodec.writeInt(buffer, entry.getParentId());
+        }
+    }
+
+    /**
+     * Inserts an entry at the end of the replica.
+     * @param urlId of the entry's URL
+     * @param height of the entry's page
+     * @param parentId of the page the entry was found on
+     */
+    private void insert(int urlId, int height, int parentId){
+
+        if(count == urlIds.length){
+
+            int capacity = count + (count >> 1) + 1;
+
+            urlIds = Arrays.copyOf(urlIds, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            parentIds = Arrays.copyOf(parentIds, capacity);
+            tree = Arrays.copyOf(tree, capacity + 1);
+        }
+
+        urlIds[count] = urlId;
+        heights[count] = height;
+        parentIds[count] = parentId;
+        left.set(count);
+        count++;
+        size++;
+
+        // The new node covers itself and the nodes below it within its range
+        tree[count] = 1 + prefixSum(count - 1) - prefixSum(count - (count & -count));
+    }
+
+    /**
+     * Removes the entry at an index of the structure, compacting the replica
+     * once the removed entries outnumber the entries left.
+     * @param index of the entry in the structure
+     */
+    private void removeAt(int index){
+
+        int position = find(index + 1);
+
+        left.clear(position);
+        size--;
+
+        for(int node = position + 1; node <= count; node += node & -node){
+            tree[node]--;
+        }
+
+        if(count - size > size && count > INITIAL_CAPACITY){
+            compact();
+        }
+    }
+
+    /**
+     * Returns the position of the entry left with the given rank.
+     * @param rank of the entry, from 1
+     * @return position of the entry
+     */
+    private int find(int rank){
+
+        int position = 0;
+
+        for(int step = Integer.highestOneBit(Math.max(1, count)); step > 0; step >>= 1){
+
+            if(position + step <= count && tree[position + step] < rank){
+                position += step;
+                rank -= tree[position];
+            }
+        }
+
+        return position;
+    }
+
+    /**
+     * Returns the number of entries left in the first positions.
+     * @param length of the prefix
+     * @return entries left in the prefix
+     */
+    private int prefixSum(int length){
+
+        int sum = 0;
+
+        for(int node = length; node > 0; node -= node & -node){
+            sum += tree[node];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Moves the entries left to the front of the replica, dropping the removed
+     * entries.
+     */
+    private void compact(){
+
+        int to = 0;
+
+        for(int i = left.nextSetBit(0); i >= 0; i = left.nextSetBit(i + 1)){
+
+            urlIds[to] = urlIds[i];
+            heights[to] = heights[i];
+            parentIds[to] = parentIds[i];
+            to++;
+        }
+
+        left.clear();
+        left.set(0, size);
+        count = size;
+
+        buildTree();
+    }
+
+    /**
+     * Builds the Fenwick tree of the first count entries, all of them left.
+     */
+    private void buildTree(){
+
+        Arrays.fill(tree, 0);
+
+        for(int node = 1; node <= count; node++){
+
+            tree[node]++;
+
+            int parent = node + (node & -node);
+
+            if(parent <= count){
+                tree[parent] += tree[node];
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package Crawler;
+
+import java.util.BitSet;
+
+/**
+ * Primitive storage for the links of a web graph. Pages are nodes numbered
+ * by the order they were added, and links are stored as parallel int arrays
+ * of their source and target nodes, with the cyclic and bidirectional flags
+ * in bitsets. This takes around 16 bytes per link rather than the objects
+ * and lists of a link per page.
+ *
+ * A link can be owned by a page, which lists it as one of its predecessor
+ * links. The owner of each link is kept, and the owned links of each page
+ * are chained through an int array in the order they were added.
+ *
+ * Compressed sparse row forward and reverse adjacencies are built from the
+ * link arrays when they are first asked for, and kept until another link is
+ * added.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class GraphCore {
+
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Links
+    private final IntArray linkSource;
+    private final IntArray linkTarget;
+    private final IntArray ownedNext;
+    private final IntArray linkOwner;
+    private final BitSet cyclic;
+    private final BitSet bidirectional;
+
+    // Nodes
+    private final IntArray ownedHead;
+    private final IntArray ownedTail;
+    private final IntArray ownedCount;
+
+    private CsrAdjacency forward;
+    private CsrAdjacency reverse;
+
+    /**
+     * Constructor - builds an empty core.
+     */
+    public GraphCore(){
+
+        linkSource = new IntArray(INITIAL_CAPACITY);
+        linkTarget = new IntArray(INITIAL_CAPACITY);
+        ownedNext = new IntArray(INITIAL_CAPACITY);
+        linkOwner = new IntArray(INITIAL_CAPACITY);
+        cyclic = new BitSet();
+        bidirectional = new BitSet();
+
+        ownedHead = new IntArray(INITIAL_CAPACITY);
+        ownedTail = new IntArray(INITIAL_CAPACITY);
+        ownedCount = new IntArray(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds a node.
+     * @return index of the node
+     */
+    public int addNode(){
+
+        ownedHead.add(NONE);
+        ownedTail.add(NONE);
+
+        return ownedCount.add(0);
+    }
+
+    /**
+     * Adds a link between two nodes.
+     * @param source node of the link
+     * @param target node of the link
+     * @param isCyclic link
+     * @param isBidirectional link
+     * @param owner node listing the link as a predecessor link, or NONE
+     * @return index of the link
+     */
+    public int addLink(int source, int target, boolean isCyclic, boolean isBidirectional, int owner){
+
+        int link = linkSource.add(source);
+        linkTarget.add(target);
+        ownedNext.add(NONE);
+        linkOwner.add(owner);
+
+        cyclic.set(link, isCyclic);
+        bidirectional.set(link, isBidirectional);
+
+        // Append the link to the end of the owner's chain
+        if(owner != NONE){
+
+            if(ownedTail.get(owner) == NONE){
+                ownedHead.set(owner, link);
+            } else {
+                ownedNext.set(ownedTail.get(owner), link);
+            }
+
+            ownedTail.set(owner, link);
+            ownedCount.set(owner, ownedCount.get(owner) + 1);
+        }
+
+        forward = null;
+        reverse = null;
+
+        return link;
+    }
+
+    /**
+     * Returns the number of nodes.
+     * @return node count
+     */
+    public int getNodeCount(){
+
+        return ownedCount.size();
+    }
+
+    /**
+     * Returns the number of links.
+     * @return link count
+     */
+    public int getLinkCount(){
+
+        return linkSource.size();
+    }
+
+    /**
+     * Returns the source node of the link.
+     * @param link index
+     * @return source node
+     */
+    public int getSource(int link){
+
+        return linkSource.get(link);
+    }
+
+    /**
+     * Returns the target node of the link.
+     * @param link index
+     * @return target node
+     */
+    public int getTarget(int link){
+
+        return linkTarget.get(link);
+    }
+
+    /**
+     * Returns whether the link is cyclic.
+     * @param link index
+     * @return true if cyclic and false otherwise
+     */
+    public boolean isCyclic(int link){
+
+        return cyclic.get(link);
+    }
+
+    /**
+     * Sets whether the link is cyclic.
+     * @param link index
+     * @param isCyclic value to set
+     */
+    public void setCyclic(int link, boolean isCyclic){
+
+        cyclic.set(link, isCyclic);
+    }
+
+    /**
+     * Returns whether the link is bidirectional.
+     * @param link index
+     * @return true if bidirectional and false otherwise
+     */
+    public boolean isBidirectional(int link){
+
+        return bidirectional.get(link);
+    }
+
+    /**
+     * Sets whether the link is bidirectional.
+     * @param link index
+     * @param isBidirectional value to set
+     */
+    public void setBidirectional(int link, boolean isBidirectional){
+
+        bidirectional.set(link, isBidirectional);
+    }
+
+    /**
+     * Returns the number of cyclic links.
+     * @return cyclic link count
+     */
+    public int getCyclicCount(){
+
+        return cyclic.cardinality();
+    }
+
+    /**
+     * Returns the number of bidirectional links.
+     * @return bidirectional link count
+     */
+    public int getBidirectionalCount(){
+
+        return bidirectional.cardinality();
+    }
+
+    /**
+     * Returns the number of links owned by the node.
+     * @param node index
+     * @return owned link count
+     */
+    public int getOwnedCount(int node){
+
+        return ownedCount.get(node);
+    }
+
+    /**
+     * Returns the node listing the link as a predecessor link.
+     * @param link index
+     * @return owner node, or NONE
+     */
+    public int getOwner(int link){
+
+        return linkOwner.get(link);
+    }
+
+    /**
+     * Returns the first link owned by the node.
+     * @param node index
+     * @return first owned link, or NONE
+     */
+    public int getFirstOwned(int node){
+
+        return ownedHead.get(node);
+    }
+
+    /**
+     * Returns the link owned by the same node after the given link.
+     * @param link index
+     * @return next owned link, or NONE
+     */
+    public int getNextOwned(int link){
+
+        return ownedNext.get(link);
+    }
+
+    /**
+     * Returns the forward adjacency, from each node to the targets of its
+     * links.
+     * @return forward adjacency
+     */
+    public CsrAdjacency getForwardAdjacency(){
+
+        if(forward == null){
+            forward = new CsrAdjacency(getNodeCount(), linkSource, linkTarget, getLinkCount());
+        }
+
+        return forward;
+    }
+
+    /**
+     * Returns the reverse adjacency, from each node to the sources of the
+     * links to it.
+     * @return reverse adjacency
+     */
+    public CsrAdjacency getReverseAdjacency(){
+
+        if(reverse == null){
+            reverse = new CsrAdjacency(getNodeCount(), linkTarget, linkSource, getLinkCount());
+        }
+
+        return reverse;
+    }
+}
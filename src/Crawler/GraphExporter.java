@@ -0,0 +1,600 @@
+package Crawler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Exports a web graph as a CSV edge list, a GraphML document or a directory
+ * of column files on a background thread. The pages and links are copied out
+ * of the graph in fixed size chunks and written straight to the file, so the
+ * memory used doesn't grow with the graph and the crawl can keep adding to
+ * the graph during the export. Only the pages, links, domains and invalid
+ * URLs in the graph when the export starts are exported.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class GraphExporter implements Runnable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CHUNK_SIZE = 4096;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String[] PAGE_COLUMNS = {"id", "url", "hostname", "groupId", "title", "height",
+            "wordCount", "charCount", "byteCount", "numberOfImages", "isDeadEnd", "targetLinkCount",
+            "pageRank", "hubScore", "authorityScore", "strongComponent", "weakComponent", "distance"};
+    private static final String[] LINK_COLUMNS = {"source", "target", "cyclic", "bidirectional"};
+    private static final String[] DOMAIN_COLUMNS = {"id", "name", "linkCount", "componentCount"};
+    private static final String[] INVALID_URL_COLUMNS = {"url"};
+
+    private final WebGraph graph;
+    private final ExportFormat format;
+    private final String path;
+
+    private final WebPage[] pageChunk;
+    private final int[] linkSourceChunk;
+    private final int[] linkTargetChunk;
+    private final byte[] linkFlagChunk;
+    private int pageCount;
+    private int linkCount;
+    private volatile int exportedPages;
+    private volatile int exportedLinks;
+    private volatile boolean succeeded;
+    private Thread thread;
+
+    /**
+     * Constructor - builds an exporter of the graph to the path.
+     * @param graph to export
+     * @param format to export the graph in
+     * @param path of the file, or the directory for the COLUMNS format
+     */
+    public GraphExporter(WebGraph graph, ExportFormat format, String path){
+
+        this.graph = graph;
+        this.format = format;
+        this.path = path;
+        this.pageChunk = new WebPage[CHUNK_SIZE];
+        this.linkSourceChunk = new int[CHUNK_SIZE];
+        this.linkTargetChunk = new int[CHUNK_SIZE];
+        this.linkFlagChunk = new byte[CHUNK_SIZE];
+    }
+
+    /**
+     * Starts the export on a background thread.
+     */
+    public void start(){
+
+        thread = new Thread(this, "graph-exporter");
+        thread.start();
+    }
+
+    /**
+     * Waits for a background export to finish.
+     * @return true if the export succeeded and false otherwise
+     */
+    public boolean join(){
+
+        if(thread != null){
+
+            try {
+                thread.join();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return succeeded;
+    }
+
+    /**
+     * Returns the number of pages exported so far.
+     * @return exported page count
+     */
+    public int getExportedPageCount(){
+
+        return exportedPages;
+    }
+
+    /**
+     * Returns the number of links exported so far.
+     * @return exported link count
+     */
+    public int getExportedLinkCount(){
+
+        return exportedLinks;
+    }
+
+    /**
+     * Exports the graph on the calling thread.
+     */
+    @Override
+    public void run(){
+
+        // Fix the end of the export so pages crawled during it aren't included
+        pageCount = graph.getWebPageCount();
+        linkCount = graph.getLinkCount();
+
+        try {
+
+            if(format == ExportFormat.EDGES){
+                exportEdges();
+            } else if(format == ExportFormat.GRAPHML){
+                exportGraphML();
+            } else {
+                exportColumns();
+            }
+
+            succeeded = true;
+
+        } catch(IOException e) {
+            System.err.println("Export to " + path + " failed.");
+        }
+    }
+
+    /**
+     * Writes a CSV edge list with a header line.
+     * @throws IOException if the file can't be written
+     */
+    private void exportEdges() throws IOException {
+
+        Writer writer = openWriter(new File(path));
+
+        try {
+
+            writer.write("source,target,cyclic,bidirectional\n");
+
+            for(int from = 0; from < linkCount; from += CHUNK_SIZE){
+
+                int count = copyLinks(from);
+
+                for(int i = 0; i < count; i++){
+
+                    writer.write(Integer.toString(linkSourceChunk[i]));
+                    writer.write(',');
+                    writer.write(Integer.toString(linkTargetChunk[i]));
+                    writer.write(',');
+                    writer.write(Boolean.toString(isCyclic(i)));
+                    writer.write(',');
+                    writer.write(Boolean.toString(isBidirectional(i)));
+                    writer.write('\n');
+                }
+
+                exportedLinks = from + count;
+            }
+
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes a GraphML document with a node for each page and an edge for
+     * each link.
+     * @throws IOException if the file can't be written
+     */
+    private void exportGraphML() throws IOException {
+
+        Writer writer = openWriter(new File(path));
+
+        try {
+
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+            writer.write("  <key id=\"url\" for=\"node\" attr.name=\"url\" attr.type=\"string\"/>\n");
+            writer.write("  <key id=\"hostname\" for=\"node\" attr.name=\"hostname\" attr.type=\"string\"/>\n");
+            writer.write("  <key id=\"title\" for=\"node\" attr.name=\"title\" attr.type=\"string\"/>\n");
+            writer.write("  <key id=\"groupId\" for=\"node\" attr.name=\"groupId\" attr.type=\"int\"/>\n");
+            writer.write("  <key id=\"height\" for=\"node\" attr.name=\"height\" attr.type=\"int\"/>\n");
+            writer.write("  <key id=\"wordCount\" for=\"node\" attr.name=\"wordCount\" attr.type=\"int\"/>\n");
+            writer.write("  <key id=\"byteCount\" for=\"node\" attr.name=\"byteCount\" attr.type=\"int\"/>\n");
+            writer.write("  <key id=\"isDeadEnd\" for=\"node\" attr.name=\"isDeadEnd\" attr.type=\"boolean\"/>\n");
+            writer.write("  <key id=\"pageRank\" for=\"node\" attr.name=\"pageRank\" attr.type=\"double\"/>\n");
+            writer.write("  <key id=\"hubScore\" for=\"node\" attr.name=\"hubScore\" attr.type=\"double\"/>\n");
+            writer.write("  <key id=\"authorityScore\" for=\"node\" attr.name=\"authorityScore\" attr.type=\"double\"/>\n");
+            writer.write("  <key id=\"strongComponent\" for=\"node\" attr.name=\"strongComponent\" attr.type=\"int\"/>\n");
+            writer.write("  <key id=\"weakComponent\" for=\"node\" attr.name=\"weakComponent\" attr.type=\"int\"/>\n");
+            writer.write("  <key id=\"distance\" for=\"node\" attr.name=\"distance\" attr.type=\"int\"/>\n");
+            writer.write("  <key id=\"cyclic\" for=\"edge\" attr.name=\"cyclic\" attr.type=\"boolean\"/>\n");
+            writer.write("  <key id=\"bidirectional\" for=\"edge\" attr.name=\"bidirectional\" attr.type=\"boolean\"/>\n");
+            writer.write("  <graph id=\"G\" edgedefault=\"directed\">\n");
+
+            for(int from = 0; from < pageCount; from += CHUNK_SIZE){
+
+                int count = copyPages(from);
+
+                for(int i = 0; i < count; i++){
+
+                    WebPage page = pageChunk[i];
+
+                    writer.write("    <node id=\"n" + page.getId() + "\">");
+                    writeData(writer, "url", page.getUrl());
+                    writeData(writer, "hostname", page.getHostname());
+                    writeData(writer, "title", page.getTitle());
+                    writeData(writer, "groupId", Integer.toString(page.getGroupId()));
+                    writeData(writer, "height", Integer.toString(page.getHeight()));
+                    writeData(writer, "wordCount", Integer.toString(page.getWordCount()));
+                    writeData(writer, "byteCount", Integer.toString(page.getByteCount()));
+                    writeData(writer, "isDeadEnd", Boolean.toString(page.isDeadEnd()));
+                    writeData(writer, "pageRank", toString(page.getPageRank()));
+                    writeData(writer, "hubScore", toString(page.getHubScore()));
+                    writeData(writer, "authorityScore", toString(page.getAuthorityScore()));
+                    writeData(writer, "strongComponent", toString(page.getStrongComponent()));
+                    writeData(writer, "weakComponent", toString(page.getWeakComponent()));
+                    writeData(writer, "distance", toString(page.getDistance()));
+                    writer.write("</node>\n");
+                }
+
+                exportedPages = from + count;
+            }
+
+            for(int from = 0; from < linkCount; from += CHUNK_SIZE){
+
+                int count = copyLinks(from);
+
+                for(int i = 0; i < count; i++){
+
+                    writer.write("    <edge source=\"n" + linkSourceChunk[i] + "\" target=\"n"
+                            + linkTargetChunk[i] + "\">");
+                    writeData(writer, "cyclic", Boolean.toString(isCyclic(i)));
+                    writeData(writer, "bidirectional", Boolean.toString(isBidirectional(i)));
+                    writer.write("</edge>\n");
+                }
+
+                exportedLinks = from + count;
+            }
+
+            writer.write("  </graph>\n");
+            writer.write("</graphml>\n");
+
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes a directory with a CSV file for each column of the pages, links,
+     * domains and invalid URLs, named table.column.csv. Each file has the
+     * column name on its first line followed by one value per line, in the
+     * same order in every file of a table.
+     * @throws IOException if the files can't be written
+     */
+    private void exportColumns() throws IOException {
+
+        File directory = new File(path);
+
+        if(!directory.isDirectory() && !directory.mkdirs()){
+            throw new IOException("Directory " + path + " could not be created.");
+        }
+
+        Writer[] writers = openColumns(directory, "pages", PAGE_COLUMNS);
+
+        try {
+
+            for(int from = 0; from < pageCount; from += CHUNK_SIZE){
+
+                int count = copyPages(from);
+
+                for(int i = 0; i < count; i++){
+
+                    WebPage page = pageChunk[i];
+
+                    writeLine(writers[0], Integer.toString(page.getId()));
+                    writeLine(writers[1], escapeCsv(page.getUrl()));
+                    writeLine(writers[2], escapeCsv(page.getHostname()));
+                    writeLine(writers[3], Integer.toString(page.getGroupId()));
+                    writeLine(writers[4], escapeCsv(page.getTitle()));
+                    writeLine(writers[5], Integer.toString(page.getHeight()));
+                    writeLine(writers[6], Integer.toString(page.getWordCount()));
+                    writeLine(writers[7], Integer.toString(page.getCharCount()));
+                    writeLine(writers[8], Integer.toString(page.getByteCount()));
+                    writeLine(writers[9], Integer.toString(page.getNumberOfImages()));
+                    writeLine(writers[10], Boolean.toString(page.isDeadEnd()));
+                    writeLine(writers[11], Integer.toString(page.getTargetLinkCount()));
+                    writeLine(writers[12], escapeCsv(toString(page.getPageRank())));
+                    writeLine(writers[13], escapeCsv(toString(page.getHubScore())));
+                    writeLine(writers[14], escapeCsv(toString(page.getAuthorityScore())));
+                    writeLine(writers[15], escapeCsv(toString(page.getStrongComponent())));
+                    writeLine(writers[16], escapeCsv(toString(page.getWeakComponent())));
+                    writeLine(writers[17], escapeCsv(toString(page.getDistance())));
+                }
+
+                exportedPages = from + count;
+            }
+
+        } finally {
+            closeColumns(writers);
+        }
+
+        writers = openColumns(directory, "links", LINK_COLUMNS);
+
+        try {
+
+            for(int from = 0; from < linkCount; from += CHUNK_SIZE){
+
+                int count = copyLinks(from);
+
+                for(int i = 0; i < count; i++){
+
+                    writeLine(writers[0], Integer.toString(linkSourceChunk[i]));
+                    writeLine(writers[1], Integer.toString(linkTargetChunk[i]));
+                    writeLine(writers[2], Boolean.toString(isCyclic(i)));
+                    writeLine(writers[3], Boolean.toString(isBidirectional(i)));
+                }
+
+                exportedLinks = from + count;
+            }
+
+        } finally {
+            closeColumns(writers);
+        }
+
+        writers = openColumns(directory, "domains", DOMAIN_COLUMNS);
+
+        try {
+
+            Domain[] chunk = new Domain[CHUNK_SIZE];
+            int domainCount = graph.getDomainCount();
+
+            for(int from = 0; from < domainCount; from += CHUNK_SIZE){
+
+                int count = Math.min(graph.copyDomains(from, chunk), domainCount - from);
+
+                for(int i = 0; i < count; i++){
+                    writeLine(writers[0], Integer.toString(chunk[i].getDomainId()));
+                    writeLine(writers[1], escapeCsv(chunk[i].getDomainName()));
+                    writeLine(writers[2], escapeCsv(toString(chunk[i].getLinkCount())));
+                    writeLine(writers[3], escapeCsv(toString(chunk[i].getComponentCount())));
+                }
+            }
+
+        } finally {
+            closeColumns(writers);
+        }
+
+        writers = openColumns(directory, "invalid", INVALID_URL_COLUMNS);
+
+        try {
+
+            String[] chunk = new String[CHUNK_SIZE];
+            int invalidURLCount = graph.getInvalidURLCount();
+
+            for(int from = 0; from < invalidURLCount; from += CHUNK_SIZE){
+
+                int count = Math.min(graph.copyInvalidURLs(from, chunk), invalidURLCount - from);
+
+                for(int i = 0; i < count; i++){
+                    writeLine(writers[0], escapeCsv(chunk[i]));
+                }
+            }
+
+        } finally {
+            closeColumns(writers);
+        }
+    }
+
+    /**
+     * Copies the next chunk of pages out of the graph, up to the page count
+     * fixed at the start of the export.
+     * @param from index of the first page
+     * @return number of pages copied
+     */
+    private int copyPages(int from){
+
+        return Math.min(graph.copyWebPages(from, pageChunk), pageCount - from);
+    }
+
+    /**
+     * Copies the next chunk of links out of the graph, up to the link count
+     * fixed at the start of the export.
+     * @param from index of the first link
+     * @return number of links copied
+     */
+    private int copyLinks(int from){
+
+        return Math.min(graph.copyWebLinks(from, linkSourceChunk, linkTargetChunk, linkFlagChunk),
+                linkCount - from);
+    }
+
+    /**
+     * Returns whether the link at the position in the chunk is cyclic.
+     * @param position of the link in the chunk
+     * @return true if cyclic and false otherwise
+     */
+    private boolean isCyclic(int position){
+
+        return (linkFlagChunk[position] & BinaryPageCodec.CYCLIC) != 0;
+    }
+
+    /**
+     * Returns whether the link at the position in the chunk is bidirectional.
+     * @param position of the link in the chunk
+     * @return true if bidirectional and false otherwise
+     */
+    private boolean isBidirectional(int position){
+
+        return (linkFlagChunk[position] & BinaryPageCodec.BIDIRECTIONAL) != 0;
+    }
+
+    /**
+     * Opens a buffered UTF-8 writer to the file.
+     * @param file to write to
+     * @return writer to the file
+     * @throws IOException if the file can't be created
+     */
+    private static Writer openWriter(File file) throws IOException {
+
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a writer for each column of the table and writes the column
+     * name as its first line.
+     * @param directory to create the files in
+     * @param table name
+     * @param columns of the table
+     * @return writer of each column
+     * @throws IOException if a file can't be created
+     */
+    private static Writer[] openColumns(File directory, String table, String[] columns) throws IOException {
+
+        Writer[] writers = new Writer[columns.length];
+
+        try {
+
+            for(int i = 0; i < columns.length; i++){
+                writers[i] = openWriter(new File(directory, table + "." + columns[i] + ".csv"));
+                writeLine(writers[i], columns[i]);
+            }
+
+        } catch(IOException e) {
+
+            closeColumns(writers);
+            throw e;
+        }
+
+        return writers;
+    }
+
+    /**
+     * Closes every opened column writer.
+     * @param writers to close
+     * @throws IOException if a writer can't be closed
+     */
+    private static void closeColumns(Writer[] writers) throws IOException {
+
+        IOException failure = null;
+
+        for(Writer writer : writers){
+
+            if(writer != null){
+
+                try {
+                    writer.close();
+                } catch(IOException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        if(failure != null){
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes the value followed by a new line.
+     * @param writer to write to
+     * @param value to write
+     * @throws IOException if the value can't be written
+     */
+    private static void writeLine(Writer writer, String value) throws IOException {
+
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    /**
+     * Writes a GraphML data element, leaving it out for null values.
+     * @param writer to write to
+     * @param key of the data
+     * @param value of the data
+     * @throws IOException if the data can't be written
+     */
+    private static void writeData(Writer writer, String key, String value) throws IOException {
+
+        if(value == null){
+            return;
+        }
+
+        writer.write("<data key=\"");
+        writer.write(key);
+        writer.write("\">");
+        writer.write(escapeXml(value));
+        writer.write("</data>");
+    }
+
+    /**
+     * Returns the result of an analysis as a string, or null if there is no
+     * result yet.
+     * @param result to convert
+     * @return result string or null
+     */
+    private static String toString(Number result){
+
+        return result == null ? null : result.toString();
+    }
+
+    /**
+     * Quotes a CSV value if it contains a comma, quote or line break, with
+     * quotes doubled. Null values are written as an empty field.
+     * @param value to escape
+     * @return CSV field
+     */
+    static String escapeCsv(String value){
+
+        if(value == null){
+            return "";
+        }
+
+        for(int i = 0; i < value.length(); i++){
+
+            char c = value.charAt(i);
+
+            if(c == ',' || c == '"' || c == '\n' || c == '\r'){
+                return "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Escapes the XML markup characters of a value and drops the control
+     * characters XML doesn't allow.
+     * @param value to escape
+     * @return XML text
+     */
+    static String escapeXml(String value){
+
+        StringBuilder builder = null;
+
+        for(int i = 0; i < value.length(); i++){
+
+            char c = value.charAt(i);
+            String replacement = null;
+
+            if(c == '&'){
+                replacement = "&amp;";
+            } else if(c == '<'){
+                replacement = "&lt;";
+            } else if(c == '>'){
+                replacement = "&gt;";
+            } else if(c == '"'){
+                replacement = "&quot;";
+            } else if(c < 0x20 && c != '\t' && c != '\n' && c != '\r'){
+                replacement = "";
+            }
+
+            if(replacement != null && builder == null){
+                builder = new StringBuilder(value.length() + 16);
+                builder.append(value, 0, i);
+            }
+
+            if(builder != null){
+
+                if(replacement != null){
+                    builder.append(replacement);
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+
+        return builder == null ? value : builder.toString();
+    }
+}
@@ -0,0 +1,233 @@
+package Crawler;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a web graph, kept up to date as pages and links are added
+ * and link flags change, so reading them never scans the graph. Counters
+ * are striped LongAdders, so they can be polled from other threads, such as
+ * a live dashboard, without contending with the writers or taking the
+ * graph's lock. Reads during a crawl are a recent view rather than an exact
+ * snapshot of the counters together.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class GraphStatistics {
+
+    private final LongAdder pages;
+    private final LongAdder links;
+    private final LongAdder cyclicLinks;
+    private final LongAdder bidirectionalLinks;
+    private final LongAdder invalidURLs;
+    private final ConcurrentHashMap<Integer, LongAdder> pagesPerDomain;
+    private final ConcurrentHashMap<Integer, LongAdder> pagesPerHeight;
+
+    /**
+     * Constructor - builds statistics of an empty graph.
+     */
+    public GraphStatistics(){
+
+        pages = new LongAdder();
+        links = new LongAdder();
+        cyclicLinks = new LongAdder();
+        bidirectionalLinks = new LongAdder();
+        invalidURLs = new LongAdder();
+        pagesPerDomain = new ConcurrentHashMap<Integer, LongAdder>();
+        pagesPerHeight = new ConcurrentHashMap<Integer, LongAdder>();
+    }
+
+    /**
+     * Counts a page added to the graph.
+     * @param domainId of the page
+     * @param height of the page
+     */
+    void pageAdded(int domainId, int height){
+
+        pages.increment();
+        counter(pagesPerDomain, domainId).increment();
+        counter(pagesPerHeight, height).increment();
+    }
+
+    /**
+     * Counts a link added to the graph.
+     * @param isCyclic link
+     * @param isBidirectional link
+     */
+    void linkAdded(boolean isCyclic, boolean isBidirectional){
+
+        links.increment();
+
+        if(isCyclic){
+            cyclicLinks.increment();
+        }
+
+        if(isBidirectional){
+            bidirectionalLinks.increment();
+        }
+    }
+
+    /**
+     * Counts a link becoming cyclic or no longer being cyclic.
+     * @param isCyclic new value of the link
+     */
+    void cyclicChanged(boolean isCyclic){
+
+        cyclicLinks.add(isCyclic ? 1 : -1);
+    }
+
+    /**
+     * Counts a link becoming bidirectional or no longer being bidirectional.
+     * @param isBidirectional new value of the link
+     */
+    void bidirectionalChanged(boolean isBidirectional){
+
+        bidirectionalLinks.add(isBidirectional ? 1 : -1);
+    }
+
+    /**
+     * Counts an invalid URL added to the graph.
+     */
+    void invalidURLAdded(){
+
+        invalidURLs.increment();
+    }
+
+    /**
+     * Returns the number of pages in the graph.
+     * @return page count
+     */
+    public long getPageCount(){
+
+        return pages.sum();
+    }
+
+    /**
+     * Returns the number of links in the graph.
+     * @return link count
+     */
+    public long getLinkCount(){
+
+        return links.sum();
+    }
+
+    /**
+     * Returns the number of cyclic links in the graph.
+     * @return cyclic link count
+     */
+    public long getCyclicLinkCount(){
+
+        return cyclicLinks.sum();
+    }
+
+    /**
+     * Returns the number of acyclic links in the graph.
+     * @return acyclic link count
+     */
+    public long getAcyclicLinkCount(){
+
+        return links.sum() - cyclicLinks.sum();
+    }
+
+    /**
+     * Returns the number of bidirectional links in the graph.
+     * @return bidirectional link count
+     */
+    public long getBidirectionalLinkCount(){
+
+        return bidirectionalLinks.sum();
+    }
+
+    /**
+     * Returns the number of invalid URLs in the graph.
+     * @return invalid URL count
+     */
+    public long getInvalidURLCount(){
+
+        return invalidURLs.sum();
+    }
+
+    /**
+     * Returns the number of pages in the domain.
+     * @param domainId of the domain
+     * @return page count of the domain
+     */
+    public long getPageCountOfDomain(int domainId){
+
+        LongAdder counter = pagesPerDomain.get(domainId);
+
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the number of pages at the height.
+     * @param height in the graph
+     * @return page count at the height
+     */
+    public long getPageCountAtHeight(int height){
+
+        LongAdder counter = pagesPerHeight.get(height);
+
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the number of pages in each domain, ordered by domain id.
+     * @return page count of each domain id
+     */
+    public TreeMap<Integer, Long> getDomainHistogram(){
+
+        return histogram(pagesPerDomain);
+    }
+
+    /**
+     * Returns the number of pages at each height, ordered by height.
+     * @return page count of each height
+     */
+    public TreeMap<Integer, Long> getHeightHistogram(){
+
+        return histogram(pagesPerHeight);
+    }
+
+    /**
+     * Returns the counter of the key, adding it on first use.
+     * @param counters to get the counter from
+     * @param key of the counter
+     * @return counter of the key
+     */
+    private static LongAdder counter(ConcurrentHashMap<Integer, LongAdder> counters, int key){
+
+        LongAdder counter = counters.get(key);
+
+        if(counter == null){
+
+            LongAdder created = new LongAdder();
+            counter = counters.putIfAbsent(key, created);
+
+            if(counter == null){
+                counter = created;
+            }
+        }
+
+        return counter;
+    }
+
+    /**
+     * Sums each counter into an ordered histogram.
+     * @param counters to sum
+     * @return ordered histogram
+     */
+    private static TreeMap<Integer, Long> histogram(ConcurrentHashMap<Integer, LongAdder> counters){
+
+        TreeMap<Integer, Long> histogram = new TreeMap<Integer, Long>();
+
+        for(Map.Entry<Integer, LongAdder> entry : counters.entrySet()){
+            histogram.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return histogram;
+    }
+}
@@ -0,0 +1,63 @@
+package Crawler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression using the JDK deflater. Flushes use a sync flush, so the
+ * pages written so far can be read back from the file before it is finished.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class GzipCodec implements CompressionCodec {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int level;
+
+    /**
+     * Constructor - uses the default compression level.
+     */
+    public GzipCodec(){
+
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor - uses the given compression level.
+     * @param level from 1 (fastest) to 9 (smallest)
+     */
+    public GzipCodec(int level){
+
+        this.level = level;
+    }
+
+    /**
+     * Wraps the output in a gzip stream.
+     * @param out to write the compressed bytes to
+     * @return gzip stream
+     * @throws IOException if the gzip header can't be written
+     */
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+
+        return new GZIPOutputStream(out, BUFFER_SIZE, true){
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * Returns the gzip file extension.
+     * @return ".gz"
+     */
+    @Override
+    public String getExtension(){
+
+        return ".gz";
+    }
+}
@@ -0,0 +1,81 @@
+package Crawler;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints, used in place of lists of boxed Integers
+ * so large graphs are stored without an object per element.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class IntArray {
+
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructor - builds an empty array with room for the given number of
+     * values.
+     * @param capacity initial number of values
+     */
+    public IntArray(int capacity){
+
+        values = new int[Math.max(1, capacity)];
+        size = 0;
+    }
+
+    /**
+     * Appends a value to the end of the array, growing it if it's full.
+     * @param value to append
+     * @return index of the value
+     */
+    public int add(int value){
+
+        if(size == values.length){
+            values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+        }
+
+        values[size] = value;
+
+        return size++;
+    }
+
+    /**
+     * Returns the value at the index.
+     * @param index of the value
+     * @return value at the index
+     */
+    public int get(int index){
+
+        return values[index];
+    }
+
+    /**
+     * Replaces the value at the index.
+     * @param index of the value
+     * @param value to set
+     */
+    public void set(int index, int value){
+
+        values[index] = value;
+    }
+
+    /**
+     * Returns the number of values in the array.
+     * @return number of values
+     */
+    public int size(){
+
+        return size;
+    }
+
+    /**
+     * Returns a copy of the values, trimmed to the size of the array.
+     * @return copy of the values
+     */
+    public int[] toArray(){
+
+        return Arrays.copyOf(values, size);
+    }
+}
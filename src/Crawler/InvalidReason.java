@@ -0,0 +1,16 @@
+package Crawler;
+
+/**
+ * Reasons a URL was found invalid and left out of the graph.
+ *  - STATUS_CODE: the server answered with a status code other than 200
+ *  - MALFORMED_URL: the URL could not be connected to as given
+ *  - FILTERED: the page was excluded by the link type filter
+ *  - UNKNOWN: no reason was given when the URL was added
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public enum InvalidReason {
+
+    STATUS_CODE, MALFORMED_URL, FILTERED, UNKNOWN
+}
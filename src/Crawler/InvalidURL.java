@@ -0,0 +1,94 @@
+package Crawler;
+
+/**
+ * Record of a URL found invalid during a crawl, with why and when it failed.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class InvalidURL {
+
+    public static final int NO_STATUS_CODE = -1;
+
+    private final String url;
+    private final InvalidReason reason;
+    private final int statusCode;
+    private final long timestamp;
+
+    /**
+     * Constructor - records the URL as failing now.
+     * @param url that failed
+     * @param reason the URL failed
+     * @param statusCode of the response or NO_STATUS_CODE if there was none
+     */
+    public InvalidURL(String url, InvalidReason reason, int statusCode){
+
+        this.url = url;
+        this.reason = reason;
+        this.statusCode = statusCode;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Constructor - records the URL as failing at the given time, used when
+     * a crawl is restored from a checkpoint.
+     * @param url that failed
+     * @param reason the URL failed
+     * @param statusCode of the response or NO_STATUS_CODE if there was none
+     * @param timestamp the URL failed, in milliseconds since the epoch
+     */
+    public InvalidURL(String url, InvalidReason reason, int statusCode, long timestamp){
+
+        this.url = url;
+        this.reason = reason;
+        this.statusCode = statusCode;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns the URL that failed.
+     * @return invalid URL
+     */
+    public String getUrl(){
+
+        return url;
+    }
+
+    /**
+     * Returns the reason the URL failed.
+     * @return failure reason
+     */
+    public InvalidReason getReason(){
+
+        return reason;
+    }
+
+    /**
+     * Returns the status code of the response or NO_STATUS_CODE if there was
+     * none.
+     * @return response status code
+     */
+    public int getStatusCode(){
+
+        return statusCode;
+    }
+
+    /**
+     * Returns the time the URL failed, in milliseconds since the epoch.
+     * @return failure time
+     */
+    public long getTimestamp(){
+
+        return timestamp;
+    }
+
+    /**
+     * Returns a string representation of the invalid URL.
+     * @return a string representation of the invalid URL
+     */
+    @Override
+    public String toString(){
+
+        return url + " [" + reason + (statusCode == NO_STATUS_CODE ? "" : " " + statusCode) + "]";
+    }
+}
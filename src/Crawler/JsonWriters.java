@@ -0,0 +1,45 @@
+package Crawler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Shared, pre-configured JSON writers used by every output path. Building an
+ * ObjectMapper introspects the JSON annotations of a class and fills its
+ * serializer cache, so the mapper is built once and the immutable, thread
+ * safe writers derived from it are reused for each page.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public final class JsonWriters {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Compact writer for web pages, the root serializer is resolved up front.
+     */
+    public static final ObjectWriter PAGE = MAPPER.writerFor(WebPage.class);
+
+    /**
+     * Indented writer for web pages, used for printing to the console.
+     */
+    public static final ObjectWriter PRETTY_PAGE = PAGE.with(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * Private Constructor - static writers only.
+     */
+    private JsonWriters(){
+    }
+
+    /**
+     * Returns the mapper the writers were built from, so other writers can
+     * share its serializer cache.
+     * @return shared object mapper
+     */
+    public static ObjectMapper getMapper(){
+
+        return MAPPER;
+    }
+}
@@ -0,0 +1,167 @@
+package Crawler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets, in the
+ * style of an HDR histogram. Each power of two is split into 8 linear
+ * buckets, so a percentile is within 12.5% of the recorded value across the
+ * whole range while the histogram stays a fixed 488 counters. Recording is
+ * lock free, a few atomic increments, so it can be done on every page by
+ * any thread while the histogram is read by another.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    /**
+     * Constructor - builds an empty histogram.
+     */
+    public LatencyHistogram(){
+
+        buckets = new AtomicLongArray(BUCKET_COUNT);
+        count = new LongAdder();
+        sum = new LongAdder();
+        max = new AtomicLong(0);
+    }
+
+    /**
+     * Records a latency.
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos){
+
+        long value = Math.max(0, nanos);
+
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+
+        long current = max.get();
+
+        while(value > current && !max.compareAndSet(current, value)){
+            current = max.get();
+        }
+    }
+
+    /**
+     * Records the time passed since the given start.
+     * @param startNanos from System.nanoTime() at the start
+     */
+    public void recordSince(long startNanos){
+
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     * @return latency count
+     */
+    public long getCount(){
+
+        return count.sum();
+    }
+
+    /**
+     * Returns the mean of the latencies recorded.
+     * @return mean latency in nanoseconds, or 0 if none were recorded
+     */
+    public double getMean(){
+
+        long total = count.sum();
+
+        return total == 0 ? 0 : (double) sum.sum() / total;
+    }
+
+    /**
+     * Returns the largest latency recorded.
+     * @return maximum latency in nanoseconds
+     */
+    public long getMax(){
+
+        return max.get();
+    }
+
+    /**
+     * Returns the latency at the given percentile, as the highest value of
+     * the bucket it falls in.
+     * @param percentile from 0 to 100
+     * @return latency in nanoseconds at the percentile, or 0 if none were
+     * recorded
+     */
+    public long getPercentile(double percentile){
+
+        long total = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if(total == 0){
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+
+        for(int i = 0; i < BUCKET_COUNT; i++){
+
+            seen += snapshot[i];
+
+            if(seen >= rank){
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Returns the bucket of a value. Values below 8 have a bucket each, then
+     * each power of two has 8 buckets.
+     * @param value to find the bucket of
+     * @return bucket index
+     */
+    private static int bucketOf(long value){
+
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest value that falls in a bucket.
+     * @param bucket index
+     * @return highest value of the bucket
+     */
+    private static long highestValueOf(int bucket){
+
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+}
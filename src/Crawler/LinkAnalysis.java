@@ -0,0 +1,503 @@
+package Crawler;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Ranks the pages of a web graph by its links with PageRank and HITS. Both
+ * run power iteration over the compressed sparse row adjacencies of the
+ * graph, holding the scores in primitive arrays. Each pass over the nodes is
+ * split into ranges run on a fork/join pool, with sums such as the change in
+ * the scores reduced up the task tree. Iteration stops once the total change
+ * of the scores falls below the tolerance or the iteration limit is reached.
+ *
+ * The adjacencies are taken from the graph when a ranking starts, so the
+ * crawl can keep adding to the graph while it runs. The scores are then
+ * written back onto the pages ranked.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class LinkAnalysis {
+
+    public static final double DEFAULT_DAMPING_FACTOR = 0.85;
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+    private static final int GRAIN = 1 << 14; // Nodes per task
+
+    private final ForkJoinPool pool;
+    private double dampingFactor;
+    private double tolerance;
+    private int maxIterations;
+    private int iterations;
+
+    /**
+     * Constructor - ranks on the common fork/join pool with the default
+     * settings.
+     */
+    public LinkAnalysis(){
+
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor - ranks on the given fork/join pool with the default
+     * settings.
+     * @param pool to run the ranking on
+     */
+    public LinkAnalysis(ForkJoinPool pool){
+
+        this.pool = pool;
+        this.dampingFactor = DEFAULT_DAMPING_FACTOR;
+        this.tolerance = DEFAULT_TOLERANCE;
+        this.maxIterations = DEFAULT_MAX_ITERATIONS;
+    }
+
+    /**
+     * Sets the probability of following a link rather than jumping to a
+     * random page in PageRank.
+     * @param dampingFactor between 0 and 1
+     */
+    public void setDampingFactor(double dampingFactor){
+
+        if(dampingFactor >= 0 && dampingFactor <= 1){
+            this.dampingFactor = dampingFactor;
+        } else {
+            System.err.println("Damping factor " + dampingFactor + " is not between 0 and 1.");
+        }
+    }
+
+    /**
+     * Sets the total change of the scores in an iteration below which the
+     * scores are taken as converged.
+     * @param tolerance of the iteration
+     */
+    public void setTolerance(double tolerance){
+
+        this.tolerance = Math.max(0, tolerance);
+    }
+
+    /**
+     * Sets the maximum number of iterations of a ranking.
+     * @param maxIterations of a ranking
+     */
+    public void setMaxIterations(int maxIterations){
+
+        this.maxIterations = Math.max(1, maxIterations);
+    }
+
+    /**
+     * Returns the number of iterations the last ranking ran.
+     * @return iteration count
+     */
+    public int getIterations(){
+
+        return iterations;
+    }
+
+    /**
+     * Ranks the pages of the graph with PageRank and sets the page rank of
+     * each page. The ranks of all the pages sum to one. Links of pages with
+     * no outgoing links are spread evenly across every page.
+     * @param graph to rank
+     * @return page ranks indexed by the page's index in the graph
+     */
+    public double[] rankPages(WebGraph graph){
+
+        CsrAdjacency forward;
+        CsrAdjacency reverse;
+
+        // Take both adjacencies of the same links
+        synchronized(graph){
+            forward = graph.getForwardAdjacency();
+            reverse = graph.getReverseAdjacency();
+        }
+
+        double[] ranks = pageRank(forward, reverse);
+
+        for(int i = 0; i < ranks.length; i++){
+            graph.getWebPage(i).setPageRank(ranks[i]);
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Ranks the pages of the graph with HITS and sets the hub and authority
+     * score of each page. Each score vector has a length of one.
+     * @param graph to rank
+     * @return hub scores, then authority scores, indexed by the page's index
+     * in the graph
+     */
+    public double[][] rankHubsAndAuthorities(WebGraph graph){
+
+        CsrAdjacency forward;
+        CsrAdjacency reverse;
+
+        // Take both adjacencies of the same links
+        synchronized(graph){
+            forward = graph.getForwardAdjacency();
+            reverse = graph.getReverseAdjacency();
+        }
+
+        double[][] scores = hits(forward, reverse);
+
+        for(int i = 0; i < scores[0].length; i++){
+
+            WebPage page = graph.getWebPage(i);
+
+            page.setHubScore(scores[0][i]);
+            page.setAuthorityScore(scores[1][i]);
+        }
+
+        return scores;
+    }
+
+    /**
+     * Runs PageRank over the adjacencies.
+     * @param forward adjacency of the graph
+     * @param reverse adjacency of the graph
+     * @return rank of each node
+     */
+    public double[] pageRank(CsrAdjacency forward, CsrAdjacency reverse){
+
+        int nodeCount = forward.getNodeCount();
+        double[] ranks = new double[nodeCount];
+        double[] next = new double[nodeCount];
+        double[] shares = new double[nodeCount];
+
+        iterations = 0;
+
+        if(nodeCount == 0){
+            return ranks;
+        }
+
+        Arrays.fill(ranks, 1.0 / nodeCount);
+
+        while(iterations < maxIterations){
+
+            // Share of each node's rank passed along each of its links
+            double dangling = pool.invoke(new ShareTask(forward, ranks, shares, 0, nodeCount));
+            double base = (1 - dampingFactor) / nodeCount + dampingFactor * dangling / nodeCount;
+
+            double change = pool.invoke(new PageRankTask(reverse, shares, ranks, next, base,
+                    dampingFactor, 0, nodeCount));
+
+            double[] swap = ranks;
+            ranks = next;
+            next = swap;
+            iterations++;
+
+            if(change < tolerance){
+                break;
+            }
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Runs HITS over the adjacencies.
+     * @param forward adjacency of the graph
+     * @param reverse adjacency of the graph
+     * @return hub scores, then authority scores of each node
+     */
+    public double[][] hits(CsrAdjacency forward, CsrAdjacency reverse){
+
+        int nodeCount = forward.getNodeCount();
+        double[] hubs = new double[nodeCount];
+        double[] authorities = new double[nodeCount];
+        double[] nextHubs = new double[nodeCount];
+        double[] nextAuthorities = new double[nodeCount];
+
+        iterations = 0;
+
+        if(nodeCount == 0){
+            return new double[][] {hubs, authorities};
+        }
+
+        Arrays.fill(hubs, 1.0 / Math.sqrt(nodeCount));
+
+        while(iterations < maxIterations){
+
+            // Authorities are pointed to by hubs, hubs point to authorities
+            double authorityNorm = Math.sqrt(pool.invoke(
+                    new NeighborSumTask(reverse, hubs, nextAuthorities, 0, nodeCount)));
+            double change = pool.invoke(
+                    new NormalizeTask(nextAuthorities, authorities, authorityNorm, 0, nodeCount));
+
+            double hubNorm = Math.sqrt(pool.invoke(
+                    new NeighborSumTask(forward, nextAuthorities, nextHubs, 0, nodeCount)));
+            change += pool.invoke(new NormalizeTask(nextHubs, hubs, hubNorm, 0, nodeCount));
+
+            double[] swap = hubs;
+            hubs = nextHubs;
+            nextHubs = swap;
+
+            swap = authorities;
+            authorities = nextAuthorities;
+            nextAuthorities = swap;
+            iterations++;
+
+            if(change < tolerance){
+                break;
+            }
+        }
+
+        return new double[][] {hubs, authorities};
+    }
+
+    /**
+     * Pass over a range of nodes returning a sum, split in half until the
+     * range is small enough to run directly.
+     */
+    private abstract static class RangeTask extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        final int from;
+        final int to;
+
+        /**
+         * Constructor - covers the nodes from up to to.
+         * @param from first node of the range
+         * @param to node after the last of the range
+         */
+        RangeTask(int from, int to){
+
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute(){
+
+            if(to - from <= GRAIN){
+                return run(from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+
+            RangeTask left = split(from, middle);
+            left.fork();
+
+            double right = split(middle, to).compute();
+
+            return left.join() + right;
+        }
+
+        /**
+         * Runs the pass over the range.
+         * @param from first node of the range
+         * @param to node after the last of the range
+         * @return sum of the range
+         */
+        abstract double run(int from, int to);
+
+        /**
+         * Returns the same pass over a part of the range.
+         * @param from first node of the part
+         * @param to node after the last of the part
+         * @return task of the part
+         */
+        abstract RangeTask split(int from, int to);
+    }
+
+    /**
+     * Divides the rank of each node across its links, returning the total
+     * rank of nodes without links.
+     */
+    private static class ShareTask extends RangeTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CsrAdjacency forward;
+        private final double[] ranks;
+        private final double[] shares;
+
+        ShareTask(CsrAdjacency forward, double[] ranks, double[] shares, int from, int to){
+
+            super(from, to);
+            this.forward = forward;
+            this.ranks = ranks;
+            this.shares = shares;
+        }
+
+        @Override
+        double run(int from, int to){
+
+            double dangling = 0;
+
+            for(int node = from; node < to; node++){
+
+                int degree = forward.getDegree(node);
+
+                if(degree == 0){
+                    dangling += ranks[node];
+                    shares[node] = 0;
+                } else {
+                    shares[node] = ranks[node] / degree;
+                }
+            }
+
+            return dangling;
+        }
+
+        @Override
+        RangeTask split(int from, int to){
+
+            return new ShareTask(forward, ranks, shares, from, to);
+        }
+    }
+
+    /**
+     * Gathers the shares of the links into each node, returning the total
+     * change of the ranks.
+     */
+    private static class PageRankTask extends RangeTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CsrAdjacency reverse;
+        private final double[] shares;
+        private final double[] ranks;
+        private final double[] next;
+        private final double base;
+        private final double dampingFactor;
+
+        PageRankTask(CsrAdjacency reverse, double[] shares, double[] ranks, double[] next,
+                     double base, double dampingFactor, int from, int to){
+
+            super(from, to);
+            this.reverse = reverse;
+            this.shares = shares;
+            this.ranks = ranks;
+            this.next = next;
+            this.base = base;
+            this.dampingFactor = dampingFactor;
+        }
+
+        @Override
+        double run(int from, int to){
+
+            int[] offsets = reverse.getOffsets();
+            int[] neighbors = reverse.getNeighbors();
+            double change = 0;
+
+            for(int node = from; node < to; node++){
+
+                double sum = 0;
+
+                for(int i = offsets[node]; i < offsets[node + 1]; i++){
+                    sum += shares[neighbors[i]];
+                }
+
+                next[node] = base + dampingFactor * sum;
+                change += Math.abs(next[node] - ranks[node]);
+            }
+
+            return change;
+        }
+
+        @Override
+        RangeTask split(int from, int to){
+
+            return new PageRankTask(reverse, shares, ranks, next, base, dampingFactor, from, to);
+        }
+    }
+
+    /**
+     * Sums the scores of each node's neighbors, returning the sum of the
+     * squares of the sums.
+     */
+    private static class NeighborSumTask extends RangeTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CsrAdjacency adjacency;
+        private final double[] scores;
+        private final double[] sums;
+
+        NeighborSumTask(CsrAdjacency adjacency, double[] scores, double[] sums, int from, int to){
+
+            super(from, to);
+            this.adjacency = adjacency;
+            this.scores = scores;
+            this.sums = sums;
+        }
+
+        @Override
+        double run(int from, int to){
+
+            int[] offsets = adjacency.getOffsets();
+            int[] neighbors = adjacency.getNeighbors();
+            double squares = 0;
+
+            for(int node = from; node < to; node++){
+
+                double sum = 0;
+
+                for(int i = offsets[node]; i < offsets[node + 1]; i++){
+                    sum += scores[neighbors[i]];
+                }
+
+                sums[node] = sum;
+                squares += sum * sum;
+            }
+
+            return squares;
+        }
+
+        @Override
+        RangeTask split(int from, int to){
+
+            return new NeighborSumTask(adjacency, scores, sums, from, to);
+        }
+    }
+
+    /**
+     * Divides each score by the norm, returning the total change from the
+     * previous scores.
+     */
+    private static class NormalizeTask extends RangeTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] scores;
+        private final double[] previous;
+        private final double norm;
+
+        NormalizeTask(double[] scores, double[] previous, double norm, int from, int to){
+
+            super(from, to);
+            this.scores = scores;
+            this.previous = previous;
+            this.norm = norm;
+        }
+
+        @Override
+        double run(int from, int to){
+
+            double change = 0;
+
+            for(int node = from; node < to; node++){
+
+                if(norm > 0){
+                    scores[node] /= norm;
+                }
+
+                change += Math.abs(scores[node] - previous[node]);
+            }
+
+            return change;
+        }
+
+        @Override
+        RangeTask split(int from, int to){
+
+            return new NormalizeTask(scores, previous, norm, from, to);
+        }
+    }
+}
@@ -12,7 +12,7 @@ package Crawler;
  * arg[0] url; String
  * arg[1] search type; "B" for breadth first, "D" for depth first or "X" for random
  * arg[2] search limit; Integer
- * arg[3-10] (optional)
+ * arg[3+] (optional)
  *  - STDOUT-true/false: send incremental json to STDOUT                        (Default true)
  *  - FILE-"name"/false: send incremental json to file name                     (Default false)
  *  - SEARCH-"term"/false: search for a term during the crawl                   (Default false)
@@ -22,6 +22,27 @@ package Crawler;
  *  - CUSTOMUA-"user agent"/false: set a custom user agent for the search       (Default false)
  *  - CYCLIC-true/false: Sets the graph results to cyclic or acyclic            (Default true)
  *  - LINK-ALL/REL/ABS: Sets the link types to search for                       (Default ALL)
+ *  - OVERFLOW-BLOCK/DROP/SPILL: Output handling when the output buffer is full (Default SPILL)
+ *  - BUFFER-1024: Sets the number of pages buffered for output                 (Default 1024)
+ *  - FLUSH-100: Sets the maximum milliseconds between output flushes           (Default 100)
+ *  - ROTATE-64/false: Rotates the file output every 64 MB                      (Default false)
+ *  - ROTATETIME-600/false: Rotates the file output every 600 seconds           (Default false)
+ *  - FSYNC-NONE/BATCH/1000: Syncs the file once per batch or every 1000 ms     (Default BATCH)
+ *  - FORMAT-JSON/BINARY: Writes pages as JSON or length-prefixed binary        (Default JSON)
+ *  - COMPRESS-GZIP/false: Compresses each file segment with gzip               (Default false)
+ *  - SNAPSHOT-"name"/false: write a graph snapshot to file name at the end     (Default false)
+ *  - PAGERANK-true/0.9/false: rank the pages with PageRank at the end, 0.9     (Default false)
+ *    setting the damping factor                                               (Default 0.85)
+ *  - HITS-true/false: score hubs and authorities with HITS at the end          (Default false)
+ *  - STRUCTURE-true/false: find components and distances at the end            (Default false)
+ *  - SOCKET-9000/false: control on loopback port 9000, pages on port 9001      (Default false)
+ *  - LATEATTACH-true/false: start without waiting for a data consumer          (Default false)
+ *  - CHECKPOINT-"name"/false: checkpoint the crawl to file name                (Default false)
+ *  - CHECKPOINTTIME-60/false: checkpoint every 60 seconds, false for end only  (Default 60)
+ *  - RESUME-"name"/false: resume the crawl from the checkpoint file name       (Default false)
+ *  - WORKERS-4: Sets the number of workers fetching pages at once             (Default 1)
+ *  - HOSTCONN-2/false: limits the pages fetched from a host at once           (Default false)
+ *  - PARSERS-2/false: parses pages on 2 threads, false to parse on workers    (Default false)
  *
  * # Error Code List:
  * 101 - Invalid URL
@@ -44,8 +65,30 @@ package Crawler;
  *  - Height Limit: HL
  *  - Search Limit: SL
  *  - Search Term: ST
+ *  - Global Requests Per Second: RR (0 for unlimited)
+ *  - Global Bytes Per Second: RB (0 for unlimited)
+ *  - Host Requests Per Second: HR (0 for unlimited)
+ *  - Host Bytes Per Second: HB (0 for unlimited)
+ *  - Domain Group Requests Per Second: GR (0 for unlimited)
+ *  - Domain Group Bytes Per Second: GB (0 for unlimited)
+ *  - Export CSV Edge List: EE"file"
+ *  - Export GraphML: EG"file"
+ *  - Export Column Files: EC"directory"
+ *  - Rank Pages With PageRank: PR or PR0.9 for a damping factor of 0.9
+ *  - Score Hubs And Authorities With HITS: HT
+ *  - Analyze Components And Distances: SA
+ *  - Report Crawl Metrics: STATS
+ *  - Fetch Workers: WK (at least 1)
+ *  - Connections Per Host: HC (0 for unlimited)
+ *  - Parse Threads: PP (0 to parse on the fetch workers)
+ *  - Drain Crawl Within 30 Seconds: DRAIN or DRAIN30
  * *** USER MUST TYPE IN "ACK" COMMAND TO TERMINATE THE PROGRAM
  *
+ * # Socket Transport
+ * With the SOCKET option, commands are sent as frames to the control port
+ * and answered with ack/nack frames, and pages are sent as frames to every
+ * consumer attached to the data port (see Frame).
+ *
  * @author Seth Dovgan
  * @version 18JAN19
  */
@@ -102,6 +145,29 @@ public class Main {
         final String CUSTOM_USER_AGENT = "CUSTOMUA-";
         final String CYCLIC = "CYCLIC-";
         final String LINK_TYPE = "LINK-";
+        final String OVERFLOW = "OVERFLOW-";
+        final String BUFFER = "BUFFER-";
+        final String FLUSH = "FLUSH-";
+        final String ROTATE = "ROTATE-";
+        final String ROTATE_TIME = "ROTATETIME-";
+        final String FSYNC = "FSYNC-";
+        final String FORMAT = "FORMAT-";
+        final String COMPRESS = "COMPRESS-";
+        final String SNAPSHOT = "SNAPSHOT-";
+        final String PAGE_RANK = "PAGERANK-";
+        final String HITS = "HITS-";
+        final String STRUCTURE = "STRUCTURE-";
+        final String SOCKET = "SOCKET-";
+        final String LATE_ATTACH = "LATEATTACH-";
+        final String CHECKPOINT = "CHECKPOINT-";
+        final String CHECKPOINT_TIME = "CHECKPOINTTIME-";
+        final String RESUME = "RESUME-";
+        final String WORKERS = "WORKERS-";
+        final String HOST_CONNECTIONS = "HOSTCONN-";
+        final String PARSE_THREADS = "PARSERS-";
+
+        long rotateMegabytes = 0;
+        long rotateSeconds = 0;
 
         // Loop through the remaining argument options, starting from the
         // argument after the base arguments
@@ -258,10 +324,291 @@ public class Main {
                     }
                 }
 
+            // BLOCK / DROP / SPILL output overflow option
+            } else if(args[i].toLowerCase().contains(OVERFLOW.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], OVERFLOW);
+
+                if(option != null){
+
+                    if(option.toLowerCase().compareTo("BLOCK".toLowerCase()) == 0){
+                        crawler.setOverflowPolicy(OverflowPolicy.BLOCK);
+                    } else if(option.toLowerCase().compareTo("DROP".toLowerCase()) == 0){
+                        crawler.setOverflowPolicy(OverflowPolicy.DROP);
+                    } else if(option.toLowerCase().compareTo("SPILL".toLowerCase()) == 0){
+                        crawler.setOverflowPolicy(OverflowPolicy.SPILL);
+                    }
+                }
+
+            // Output buffer size option
+            } else if(args[i].toLowerCase().contains(BUFFER.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], BUFFER);
+
+                if(option != null){
+                    crawler.setOutputBufferSize(Validation.isValidInteger(option));
+                }
+
+            // Output flush interval option
+            } else if(args[i].toLowerCase().contains(FLUSH.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], FLUSH);
+
+                if(option != null){
+                    crawler.setFlushInterval(Validation.isValidInteger(option));
+                }
+
+            // File rotation by size option
+            } else if(args[i].toLowerCase().contains(ROTATE.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], ROTATE);
+
+                if(option != null && Validation.getOptionType(option) == Argument.OPTION){
+                    rotateMegabytes = Math.max(0, Validation.isValidInteger(option));
+                }
+
+            // File rotation by time option
+            } else if(args[i].toLowerCase().contains(ROTATE_TIME.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], ROTATE_TIME);
+
+                if(option != null && Validation.getOptionType(option) == Argument.OPTION){
+                    rotateSeconds = Math.max(0, Validation.isValidInteger(option));
+                }
+
+            // File sync policy option
+            } else if(args[i].toLowerCase().contains(FSYNC.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], FSYNC);
+
+                if(option != null){
+
+                    if(option.toLowerCase().compareTo("NONE".toLowerCase()) == 0){
+                        crawler.setSyncPolicy(SyncPolicy.NONE, 0);
+                    } else if(option.toLowerCase().compareTo("BATCH".toLowerCase()) == 0){
+                        crawler.setSyncPolicy(SyncPolicy.BATCH, 0);
+                    } else if(Validation.isValidInteger(option) > 0){
+                        crawler.setSyncPolicy(SyncPolicy.INTERVAL, Validation.isValidInteger(option));
+                    }
+                }
+
+            // JSON / BINARY output format option
+            } else if(args[i].toLowerCase().contains(FORMAT.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], FORMAT);
+
+                if(option != null){
+
+                    if(option.toLowerCase().compareTo("JSON".toLowerCase()) == 0){
+                        crawler.setOutputFormat(OutputFormat.JSON);
+                    } else if(option.toLowerCase().compareTo("BINARY".toLowerCase()) == 0){
+                        crawler.setOutputFormat(OutputFormat.BINARY);
+                    }
+                }
+
+            // GZIP / false file compression option
+            } else if(args[i].toLowerCase().contains(COMPRESS.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], COMPRESS);
+
+                if(option != null && option.toLowerCase().compareTo("GZIP".toLowerCase()) == 0){
+                    crawler.setCompression(new GzipCodec());
+                }
+
+            // Graph snapshot file option
+            } else if(args[i].toLowerCase().contains(SNAPSHOT.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], SNAPSHOT);
+
+                if(option != null && Validation.getOptionType(option) == Argument.OPTION){
+                    crawler.setSnapshotFile(option);
+                }
+
+            // PageRank Option
+            } else if(args[i].toLowerCase().contains(PAGE_RANK.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], PAGE_RANK);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.TRUE){
+                        crawler.setPageRank(true);
+                    } else if(type == Argument.FALSE){
+                        crawler.setPageRank(false);
+                    } else {
+
+                        double temp = Validation.isValidFraction(option);
+
+                        if(temp >= 0){
+                            crawler.setPageRank(true);
+                            crawler.setDampingFactor(temp);
+                        } else {
+                            System.err.print("Invalid Command Line Argument: " + args[i]);
+                        }
+                    }
+                }
+
+            // HITS Option
+            } else if(args[i].toLowerCase().contains(HITS.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], HITS);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.TRUE){
+                        crawler.setHits(true);
+                    } else if(type == Argument.FALSE){
+                        crawler.setHits(false);
+                    }
+                }
+
+            // Structure Analysis Option
+            } else if(args[i].toLowerCase().contains(STRUCTURE.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], STRUCTURE);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.TRUE){
+                        crawler.setStructureAnalysis(true);
+                    } else if(type == Argument.FALSE){
+                        crawler.setStructureAnalysis(false);
+                    }
+                }
+
+            // Socket Transport Option
+            } else if(args[i].toLowerCase().contains(SOCKET.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], SOCKET);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.OPTION){
+                        crawler.setSocketPort(Validation.isValidInteger(option));
+                    } else if(type == Argument.FALSE){
+                        crawler.setSocketPort(0);
+                    }
+                }
+
+            // Late attach option
+            } else if(args[i].toLowerCase().contains(LATE_ATTACH.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], LATE_ATTACH);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.TRUE){
+                        crawler.setLateAttach(true);
+                    } else if(type == Argument.FALSE){
+                        crawler.setLateAttach(false);
+                    }
+                }
+
+            // Checkpoint file option
+            } else if(args[i].toLowerCase().contains(CHECKPOINT.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], CHECKPOINT);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.OPTION){
+                        crawler.setCheckpointFile(option);
+                    } else if(type == Argument.FALSE){
+                        crawler.setCheckpointFile(null);
+                    }
+                }
+
+            // Checkpoint interval option
+            } else if(args[i].toLowerCase().contains(CHECKPOINT_TIME.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], CHECKPOINT_TIME);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.OPTION){
+                        crawler.setCheckpointInterval(Math.max(0, Validation.isValidInteger(option)));
+                    } else if(type == Argument.FALSE){
+                        crawler.setCheckpointInterval(0);
+                    }
+                }
+
+            // Resume from checkpoint option
+            } else if(args[i].toLowerCase().contains(RESUME.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], RESUME);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.OPTION){
+                        crawler.setResumeFile(option);
+                    } else if(type == Argument.FALSE){
+                        crawler.setResumeFile(null);
+                    }
+                }
+
+            // Fetch workers option
+            } else if(args[i].toLowerCase().contains(WORKERS.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], WORKERS);
+
+                if(option != null && Validation.getOptionType(option) == Argument.OPTION){
+                    crawler.setWorkers(Validation.isValidInteger(option));
+                }
+
+            // Connections per host option
+            } else if(args[i].toLowerCase().contains(HOST_CONNECTIONS.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], HOST_CONNECTIONS);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.OPTION){
+                        crawler.setHostConnections(Validation.isValidInteger(option));
+                    } else if(type == Argument.FALSE){
+                        crawler.setHostConnections(0);
+                    }
+                }
+
+            // Parse threads option
+            } else if(args[i].toLowerCase().contains(PARSE_THREADS.toLowerCase())){
+
+                option = Validation.getOptionFromArgument(args[i], PARSE_THREADS);
+
+                if(option != null){
+
+                    Argument type = Validation.getOptionType(option);
+
+                    if(type == Argument.OPTION){
+                        crawler.setParseThreads(Validation.isValidInteger(option));
+                    } else if(type == Argument.FALSE){
+                        crawler.setParseThreads(0);
+                    }
+                }
+
             } else { // Send invalid command to stderr but still conduct crawl
                 System.err.print("Invalid Command Line Argument: " + args[i]);
             }
         }
+
+        crawler.setFileRotation(rotateMegabytes, rotateSeconds);
     }
 
     /**
@@ -0,0 +1,162 @@
+package Crawler;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the live metrics of a crawl: counters, gauges and latency
+ * histograms, each looked up by name. A metric is created the first time
+ * its name is asked for, and callers keep the returned metric so recording
+ * is only the metric's own lock free update. Counters are striped
+ * LongAdders, gauges AtomicLongs and latencies LatencyHistograms, so the
+ * registry can be read by the controller while the crawl records.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class MetricsRegistry {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final ConcurrentHashMap<String, LongAdder> counters;
+    private final ConcurrentHashMap<String, AtomicLong> gauges;
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms;
+    private final long startNanos;
+
+    /**
+     * Constructor - builds an empty registry, timing rates from now.
+     */
+    public MetricsRegistry(){
+
+        counters = new ConcurrentHashMap<String, LongAdder>();
+        gauges = new ConcurrentHashMap<String, AtomicLong>();
+        histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the counter of the name, creating it if it's new.
+     * @param name of the counter
+     * @return counter of the name
+     */
+    public LongAdder counter(String name){
+
+        LongAdder counter = counters.get(name);
+
+        if(counter == null){
+
+            counters.putIfAbsent(name, new LongAdder());
+            counter = counters.get(name);
+        }
+
+        return counter;
+    }
+
+    /**
+     * Returns the gauge of the name, creating it if it's new.
+     * @param name of the gauge
+     * @return gauge of the name
+     */
+    public AtomicLong gauge(String name){
+
+        AtomicLong gauge = gauges.get(name);
+
+        if(gauge == null){
+
+            gauges.putIfAbsent(name, new AtomicLong());
+            gauge = gauges.get(name);
+        }
+
+        return gauge;
+    }
+
+    /**
+     * Returns the latency histogram of the name, creating it if it's new.
+     * @param name of the histogram
+     * @return histogram of the name
+     */
+    public LatencyHistogram histogram(String name){
+
+        LatencyHistogram histogram = histograms.get(name);
+
+        if(histogram == null){
+
+            histograms.putIfAbsent(name, new LatencyHistogram());
+            histogram = histograms.get(name);
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Returns the seconds passed since the registry was built.
+     * @return elapsed seconds
+     */
+    public double getElapsedSeconds(){
+
+        return (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Returns a report of every metric sorted by name. Counters are listed
+     * with their rate per second since the registry was built, and
+     * histograms with their count, mean, percentiles and maximum in
+     * milliseconds.
+     * @return metrics report
+     */
+    public String getReport(){
+
+        double elapsed = getElapsedSeconds();
+        StringBuilder report = new StringBuilder();
+
+        report.append(String.format("Elapsed: %.1f s%n", elapsed));
+
+        report.append("Counters (total, per second)").append(System.lineSeparator());
+
+        for(Map.Entry<String, LongAdder> entry : new TreeMap<String, LongAdder>(counters).entrySet()){
+
+            long value = entry.getValue().sum();
+
+            report.append(String.format("  %-24s %12d %12.1f%n", entry.getKey(), value,
+                    elapsed > 0 ? value / elapsed : 0));
+        }
+
+        report.append("Gauges").append(System.lineSeparator());
+
+        for(Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(gauges).entrySet()){
+            report.append(String.format("  %-24s %12d%n", entry.getKey(), entry.getValue().get()));
+        }
+
+        report.append(String.format("Latencies (ms)             %8s %9s %9s %9s %9s %9s%n",
+                "count", "mean", "p50", "p90", "p99", "max"));
+
+        for(Map.Entry<String, LatencyHistogram> entry
+                : new TreeMap<String, LatencyHistogram>(histograms).entrySet()){
+
+            LatencyHistogram histogram = entry.getValue();
+
+            report.append(String.format("  %-24s %8d %9.3f %9.3f %9.3f %9.3f %9.3f%n", entry.getKey(),
+                    histogram.getCount(),
+                    histogram.getMean() / NANOS_PER_MILLI,
+                    histogram.getPercentile(50) / NANOS_PER_MILLI,
+                    histogram.getPercentile(90) / NANOS_PER_MILLI,
+                    histogram.getPercentile(99) / NANOS_PER_MILLI,
+                    histogram.getMax() / NANOS_PER_MILLI));
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Prints the metrics report of the crawl.
+     */
+    public void printMetricsSummary(){
+
+        System.out.println("\n###    CRAWL METRICS    ###\n");
+        System.out.print(getReport());
+    }
+}
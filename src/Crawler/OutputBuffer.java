@@ -0,0 +1,46 @@
+package Crawler;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Reusable byte buffer used to serialize web pages. Exposes its backing array
+ * so serialized pages can be handed to the outputs without being copied.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class OutputBuffer extends ByteArrayOutputStream {
+
+    /**
+     * Constructor - builds a buffer with the given starting capacity.
+     * @param size starting capacity in bytes
+     */
+    public OutputBuffer(int size){
+
+        super(size);
+    }
+
+    /**
+     * Returns the backing array without copying. Only the first size() bytes
+     * are valid.
+     * @return backing array
+     */
+    public byte[] array(){
+
+        return buf;
+    }
+
+    /**
+     * Overwrites four bytes at the given position with a big-endian integer,
+     * used to fill in a length once it is known.
+     * @param position to write at
+     * @param value to write
+     */
+    public void setInt(int position, int value){
+
+        buf[position] = (byte) (value >>> 24);
+        buf[position + 1] = (byte) (value >>> 16);
+        buf[position + 2] = (byte) (value >>> 8);
+        buf[position + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,14 @@
+package Crawler;
+
+/**
+ * Formats the web pages of a crawl can be written in.
+ *  - JSON: JSON objects each followed by the "#!#" delimiter
+ *  - BINARY: length-prefixed binary records, read with BinaryPageReader
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public enum OutputFormat {
+
+    JSON, BINARY
+}
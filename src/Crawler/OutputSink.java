@@ -0,0 +1,31 @@
+package Crawler;
+
+/**
+ * Destination for the serialized web pages of a crawl, such as stdout or a
+ * file. Each page is serialized once and the same bytes are handed to every
+ * enabled sink, so a sink must not keep a reference to the bytes after a
+ * write returns.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public interface OutputSink {
+
+    /**
+     * Writes a single serialized record to the sink.
+     * @param bytes containing the record
+     * @param offset of the record in the bytes
+     * @param length of the record
+     */
+    void writeRecord(byte[] bytes, int offset, int length);
+
+    /**
+     * Flushes any buffered records to the sink's destination.
+     */
+    void flush();
+
+    /**
+     * Flushes and closes the sink.
+     */
+    void close();
+}
@@ -0,0 +1,16 @@
+package Crawler;
+
+/**
+ * Overflow policies of the asynchronous output writer, used when pages are
+ * produced faster than the outputs can consume them.
+ *  - BLOCK: the crawl waits for room in the buffer
+ *  - DROP: pages that don't fit in the buffer are not written
+ *  - SPILL: pages that don't fit in the buffer are queued on local disk
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public enum OverflowPolicy {
+
+    BLOCK, DROP, SPILL
+}
@@ -0,0 +1,93 @@
+package Crawler;
+
+import java.util.ArrayList;
+
+/**
+ * Output path for the pages of a crawl. Each page is serialized once and the
+ * same bytes are handed to every enabled sink.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class PageOutput {
+
+    private final PageSerializer serializer;
+    private final ArrayList<OutputSink> sinks;
+
+    /**
+     * Constructor - builds a JSON output with no sinks.
+     */
+    public PageOutput(){
+
+        this(OutputFormat.JSON);
+    }
+
+    /**
+     * Constructor - builds an output in the given format with no sinks.
+     * @param format to write pages in
+     */
+    public PageOutput(OutputFormat format){
+
+        serializer = new PageSerializer(format);
+        sinks = new ArrayList<OutputSink>();
+    }
+
+    /**
+     * Adds a sink to receive each page.
+     * @param sink to add
+     */
+    public void addSink(OutputSink sink){
+
+        sinks.add(sink);
+    }
+
+    /**
+     * Returns whether any sinks are enabled.
+     * @return true if there are sinks to write to and false otherwise
+     */
+    public boolean hasSinks(){
+
+        return !sinks.isEmpty();
+    }
+
+    /**
+     * Serializes the page and writes it to every sink.
+     * @param page to write
+     * @return size of the serialized page in bytes, or 0 if there are no
+     * sinks to write to
+     */
+    public int write(WebPage page){
+
+        if(sinks.isEmpty()){
+            return 0;
+        }
+
+        serializer.serialize(page);
+
+        for(OutputSink sink : sinks){
+            sink.writeRecord(serializer.getBuffer(), 0, serializer.getLength());
+        }
+
+        return serializer.getLength();
+    }
+
+    /**
+     * Flushes every sink.
+     */
+    public void flush(){
+
+        for(OutputSink sink : sinks){
+            sink.flush();
+        }
+    }
+
+    /**
+     * Closes every sink.
+     */
+    public void close(){
+
+        for(OutputSink sink : sinks){
+            sink.close();
+        }
+    }
+}
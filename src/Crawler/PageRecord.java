@@ -0,0 +1,237 @@
+package Crawler;
+
+import java.util.ArrayList;
+
+/**
+ * Web page decoded from the binary output format. Holds the same fields as
+ * the JSON output of a web page, with the predecessor links kept in
+ * parallel arrays rather than as objects.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class PageRecord {
+
+    int id;
+    String url;
+    String hostname;
+    String ipAddress;
+    int groupId;
+    String title;
+    String userAgent;
+    int height;
+    Boolean searchTermFound;
+    ArrayList<String> keywords;
+    int wordCount;
+    int charCount;
+    int byteCount;
+    int numberOfImages;
+    boolean isDeadEnd;
+    int targetLinkCount;
+    int[] linkSourceIds;
+    int[] linkTargetIds;
+    byte[] linkFlags;
+
+    /**
+     * Returns the web page id.
+     * @return web page id
+     */
+    public int getId() {
+
+        return id;
+    }
+
+    /**
+     * Returns the web page URL.
+     * @return web page URL
+     */
+    public String getUrl() {
+
+        return url;
+    }
+
+    /**
+     * Returns the web page hostname.
+     * @return web page hostname
+     */
+    public String getHostname() {
+
+        return hostname;
+    }
+
+    /**
+     * Returns the ip address for the web page host.
+     * @return web page host ip address
+     */
+    public String getIpAddress() {
+
+        return ipAddress;
+    }
+
+    /**
+     * Returns the web page domain group id.
+     * @return domain group id
+     */
+    public int getGroupId() {
+
+        return groupId;
+    }
+
+    /**
+     * Returns the web page title.
+     * @return web page title
+     */
+    public String getTitle() {
+
+        return title;
+    }
+
+    /**
+     * Returns the user agent used to retrieve the contents of the page.
+     * @return user agent
+     */
+    public String getUserAgent() {
+
+        return userAgent;
+    }
+
+    /**
+     * Returns the height of the web page in the graph.
+     * @return web page height
+     */
+    public int getHeight() {
+
+        return height;
+    }
+
+    /**
+     * Returns whether the search term was found in the web page.
+     * @return true if the search term was found, false or null otherwise
+     */
+    public Boolean searchTermFound() {
+
+        return searchTermFound;
+    }
+
+    /**
+     * Returns the keywords found in the web page.
+     * @return keywords or null if the page had none
+     */
+    public ArrayList<String> getKeywords() {
+
+        return keywords;
+    }
+
+    /**
+     * Returns the word count of the web page.
+     * @return web page word count
+     */
+    public int getWordCount() {
+
+        return wordCount;
+    }
+
+    /**
+     * Returns the char count of the web page.
+     * @return web page char count
+     */
+    public int getCharCount() {
+
+        return charCount;
+    }
+
+    /**
+     * Returns the byte count of the web page.
+     * @return web page byte count
+     */
+    public int getByteCount() {
+
+        return byteCount;
+    }
+
+    /**
+     * Returns the number of images the web page contains.
+     * @return number of web page images
+     */
+    public int getNumberOfImages() {
+
+        return numberOfImages;
+    }
+
+    /**
+     * Returns whether the web page is a dead end.
+     * @return true if the page is a dead end and false otherwise
+     */
+    public boolean isDeadEnd() {
+
+        return isDeadEnd;
+    }
+
+    /**
+     * Returns the number of target links in the web page.
+     * @return number of target links
+     */
+    public int getTargetLinkCount() {
+
+        return targetLinkCount;
+    }
+
+    /**
+     * Returns the number of predecessor links of the web page.
+     * @return number of predecessor links
+     */
+    public int getPredecessorLinkCount() {
+
+        return linkSourceIds.length;
+    }
+
+    /**
+     * Returns the source id of a predecessor link.
+     * @param index of the predecessor link
+     * @return source id of the link
+     */
+    public int getLinkSourceId(int index) {
+
+        return linkSourceIds[index];
+    }
+
+    /**
+     * Returns the target id of a predecessor link.
+     * @param index of the predecessor link
+     * @return target id of the link
+     */
+    public int getLinkTargetId(int index) {
+
+        return linkTargetIds[index];
+    }
+
+    /**
+     * Returns whether a predecessor link is cyclic.
+     * @param index of the predecessor link
+     * @return true if the link is cyclic and false otherwise
+     */
+    public boolean isLinkCyclic(int index) {
+
+        return (linkFlags[index] & BinaryPageCodec.CYCLIC) != 0;
+    }
+
+    /**
+     * Returns whether a predecessor link is bidirectional.
+     * @param index of the predecessor link
+     * @return true if the link is bidirectional and false otherwise
+     */
+    public boolean isLinkBidirectional(int index) {
+
+        return (linkFlags[index] & BinaryPageCodec.BIDIRECTIONAL) != 0;
+    }
+
+    /**
+     * String representation of the web page record.
+     * @return string representation of the web page record
+     */
+    @Override
+    public String toString() {
+
+        return id + " - " + url;
+    }
+}
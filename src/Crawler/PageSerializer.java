@@ -0,0 +1,98 @@
+package Crawler;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Serializes web pages into a reusable byte buffer, either with a streaming
+ * JSON generator followed by the "#!#" delimiter, or as a length-prefixed
+ * binary record. The buffer is reset and reused for each page, so no
+ * intermediate Strings are built. The bytes returned by
+ * getBuffer() are only valid until the next page is serialized.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class PageSerializer {
+
+    private static final byte[] DELIMITER = {'#', '!', '#'};
+    private static final byte[] EMPTY_PAGE = {'{', '}'};
+
+    private final JsonFactory factory;
+    private final OutputBuffer buffer;
+    private final OutputFormat format;
+
+    /**
+     * Constructor - builds a JSON serializer with an empty buffer.
+     */
+    public PageSerializer(){
+
+        this(OutputFormat.JSON);
+    }
+
+    /**
+     * Constructor - builds a serializer for the given format with an empty
+     * buffer.
+     * @param format to serialize pages in
+     */
+    public PageSerializer(OutputFormat format){
+
+        this.format = format;
+        factory = JsonWriters.getMapper().getFactory();
+        buffer = new OutputBuffer(8192);
+    }
+
+    /**
+     * Serializes the web page and its predecessor links into the buffer,
+     * replacing the previous page.
+     * @param page to serialize
+     */
+    public void serialize(WebPage page){
+
+        buffer.reset();
+
+        if(format == OutputFormat.BINARY){
+            BinaryPageCodec.encode(page, buffer);
+            return;
+        }
+
+        try {
+
+            JsonGenerator generator = factory.createGenerator(buffer, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            JsonWriters.PAGE.writeValue(generator, page);
+            generator.close();
+
+        } catch(IOException e) {
+
+            System.err.println("JSON processing Exception @" + page.getUrl());
+            buffer.reset();
+            buffer.write(EMPTY_PAGE, 0, EMPTY_PAGE.length);
+        }
+
+        buffer.write(DELIMITER, 0, DELIMITER.length);
+    }
+
+    /**
+     * Returns the buffer holding the last serialized page. Only the first
+     * getLength() bytes belong to the page.
+     * @return serialized page buffer
+     */
+    public byte[] getBuffer(){
+
+        return buffer.array();
+    }
+
+    /**
+     * Returns the number of bytes of the last serialized page.
+     * @return serialized page length
+     */
+    public int getLength(){
+
+        return buffer.size();
+    }
+}
@@ -1,7 +1,6 @@
 package Crawler;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -11,16 +10,35 @@ import java.util.Random;
  * of the QUEUE starts where the last STACK ended. This allows for graph
  * building to search wide (QUEUE) from the last point in deep search (STACK).
  *
+ * The structure holds frontier entries, kept as parallel primitive arrays of
+ * their URL ids, heights and parent ids, around 12 bytes per link. An entry
+ * object is only built when one is returned. The structure can be written
+ * to a checkpoint and read back from one. A checkpoint keeps a replica of the
+ * structure, brought up to date from a log of the changes made to it, so the
+ * crawl never copies the whole structure.
+ *
  * @author Seth Dovgan
  * @version 18JAN19
  */
 public class QueBaStack {
 
-    private List<WebPage> pages;    // List of web pages
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Changes written to the log
+    static final int LOG_INSERT = 0;     // URL id, height and parent id
+    static final int LOG_REMOVE = 1;     // Index of the entry
+    static final int LOG_CLEAR = 2;
+    static final int LOG_POSITIONS = 3;  // Type id, next and next random index
+
+    private int[] urlIds;           // URL id of each entry
+    private int[] heights;          // Height of each entry
+    private int[] parentIds;        // Parent page id of each entry
+    private int size;               // Number of entries
     private DataStructureType type; // Type of Data Structure to use
     private Random random;          // Random Number generator for bag
     private int nextRandom;         // Next random number (index)
     private int next;               // Next QUEUE (index)
+    private IntArray log;           // Changes since the log was taken, or null
 
     /**
      * Creates a new empty QueBaStack morphing data structure
@@ -29,80 +47,105 @@ public class QueBaStack {
     public QueBaStack(DataStructureType type){
 
         this.type = type;
-        pages = new ArrayList<WebPage>();
+        urlIds = new int[INITIAL_CAPACITY];
+        heights = new int[INITIAL_CAPACITY];
+        parentIds = new int[INITIAL_CAPACITY];
+        size = 0;
         random = new Random();
         nextRandom = 0;
         next = 0;
     }
 
     /**
-     * Inserts a web page into the data structure based on the selected
+     * Inserts a frontier entry into the data structure based on the selected
      * data structure behavior. Replaces ADD for a QUEUE and BAG and push for
      * a STACK.
-     * @param page to insert into the data structure
+     * @param urlId of the entry's URL
+     * @param height of the entry's page
+     * @param parentId of the page the entry was found on
      */
-    public void insert(WebPage page){
+    public void insert(int urlId, int height, int parentId){
 
-        pages.add(page);            // Add to end QUEUE/STACK/BAG
+        if(size == urlIds.length){
+
+            int capacity = size + (size >> 1) + 1;
+
+            urlIds = Arrays.copyOf(urlIds, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            parentIds = Arrays.copyOf(parentIds, capacity);
+        }
+
+        // Add to end QUEUE/STACK/BAG
+        urlIds[size] = urlId;
+        heights[size] = height;
+        parentIds[size] = parentId;
+        size++;
+
+        if(log != null){
+            log.add(LOG_INSERT);
+            log.add(urlId);
+            log.add(height);
+            log.add(parentId);
+        }
 
         // Set the next random index for a bag so the get and remove will return
-        // the same web page.
-        setNextRandom(pages.size());
+        // the same entry.
+        setNextRandom(size);
     }
 
     /**
-     * Returns a web page from the data structure based on the selected data
+     * Returns an entry from the data structure based on the selected data
      * structure behavior. Replaces poll for QUEUE, peek for STACK and
      * contains for BAG
-     * @return a web page or null if the structure is empty.
+     * @return an entry or null if the structure is empty.
      */
-    public WebPage get(){
+    public FrontierEntry get(){
 
-        // Get a web page from the beginning to replicate QUEUE behavior
+        // Get an entry from the beginning to replicate QUEUE behavior
         if(type == DataStructureType.QUEUE){
 
             // Use next index so behavior is left off from the last known
             // STACK position
-            if(next >= pages.size()){
-                next = pages.size() - 1;
+            if(next >= size){
+                next = size - 1;
             }
 
-            return pages.get(next);
+            return entryAt(next);
 
-        // Get a web page from the back to replicate STACK behavior
+        // Get an entry from the back to replicate STACK behavior
         } else if(type == DataStructureType.STACK){
 
-            return pages.get(pages.size() - 1);
+            return entryAt(size - 1);
 
         // Get a random page from the structure
         } else {
-            return pages.get(nextRandom);
+            return entryAt(nextRandom);
         }
     }
 
     /**
-     * Removes and returns a web page from the data structure based on the
+     * Removes and returns an entry from the data structure based on the
      * selected data structure behavior. Replaces remove for QUEUE and BAG,
      * peek for STACK.
-     * @return a web page or null if the data structure is empty.
+     * @return an entry or null if the data structure is empty.
      */
-    public WebPage remove(){
+    public FrontierEntry remove(){
 
-        // Remove a web page from the beginning to replicate QUEUE behavior
+        // Remove an entry from the beginning to replicate QUEUE behavior
         if(type == DataStructureType.QUEUE){
 
             // Use next index so behavior is left off from the last known
             // STACK position
-            if(next >= pages.size()){
-                next = pages.size() - 1;
+            if(next >= size){
+                next = size - 1;
             }
 
-            return pages.remove(next);
+            return removeAt(next);
 
-        // Remove a web page from the back to replicate STACK behavior
+        // Remove an entry from the back to replicate STACK behavior
         } else if(type == DataStructureType.STACK){
 
-            return pages.remove(pages.size() - 1);  // Remove From End STACK
+            return removeAt(size - 1);  // Remove From End STACK
 
         // Remove a random page from the structure
         } else {
@@ -110,9 +153,47 @@ public class QueBaStack {
             // Set the next random index so a get or remove will be looking at
             // the same page.
             int temp = nextRandom;
-            setNextRandom(pages.size() - 1);
-            return pages.remove(temp);
+            setNextRandom(size - 1);
+            return removeAt(temp);
+        }
+    }
+
+    /**
+     * Returns the entry at the index.
+     * @param index of the entry
+     * @return entry at the index
+     */
+    private FrontierEntry entryAt(int index){
+
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return new FrontierEntry(urlIds[index], heights[index], parentIds[index]);
+    }
+
+    /**
+     * Removes and returns the entry at the index, shifting the entries after
+     * it down.
+     * @param index of the entry
+     * @return entry removed
+     */
+    private FrontierEntry removeAt(int index){
+
+        FrontierEntry entry = entryAt(index);
+        int moved = size - index - 1;
+
+        System.arraycopy(urlIds, index + 1, urlIds, index, moved);
+        System.arraycopy(heights, index + 1, heights, index, moved);
+        System.arraycopy(parentIds, index + 1, parentIds, index, moved);
+        size--;
+
+        if(log != null){
+            log.add(LOG_REMOVE);
+            log.add(index);
         }
+
+        return entry;
     }
 
     /**
@@ -121,15 +202,28 @@ public class QueBaStack {
      */
     public boolean isEmpty(){
 
-        return pages.isEmpty();
+        return size == 0;
     }
 
     /**
-     * Clears all the web pages from the data structure.
+     * Returns the number of entries in the data structure.
+     * @return entry count
+     */
+    public int size(){
+
+        return size;
+    }
+
+    /**
+     * Clears all the entries from the data structure.
      */
     public void clear() {
 
-        pages.clear();
+        size = 0;
+
+        if(log != null){
+            log.add(LOG_CLEAR);
+        }
     }
 
     /**
@@ -154,11 +248,95 @@ public class QueBaStack {
         this.type = type;
     }
 
+    /**
+     * Writes the type, positions and entries of the structure to the buffer.
+     * @param buffer to write to
+     */
+    void writeTo(OutputBuffer buffer){
+
+        BinaryPageCodec.writeVarint(buffer, type.getId());
+        BinaryPageCodec.writeVarint(buffer, next);
+        BinaryPageCodec.writeVarint(buffer, nextRandom);
+        BinaryPageCodec.writeVarint(buffer, size);
+
+        for(int i = 0; i < size; i++){
+
+            BinaryPageCodec.writeVarint(buffer, urlIds[i]);
+            BinaryPageCodec.writeVarint(buffer, heights[i]);
+            BinaryPageCodec.writeInt(buffer, parentIds[i]);
+        }
+    }
+
+    /**
+     * Returns a replica of the entries, type and positions of the structure,
+     * and starts logging the changes made to it from then on, so the replica
+     * can be brought up to date with the log.
+     * @return replica of the structure
+     */
+    FrontierReplica replicate(){
+
+        log = new IntArray(INITIAL_CAPACITY);
+
+        return new FrontierReplica(urlIds, heights, parentIds, size, type.getId(), next, nextRandom);
+    }
+
+    /**
+     * Returns the changes logged since the replica was taken or the log was
+     * last taken, ending with the current type and positions, and starts a
+     * new log.
+     * @return changes to apply to the replica
+     */
+    IntArray takeLog(){
+
+        IntArray taken = log;
+
+        taken.add(LOG_POSITIONS);
+        taken.add(type.getId());
+        taken.add(next);
+        taken.add(nextRandom);
+
+        log = new IntArray(INITIAL_CAPACITY);
+
+        return taken;
+    }
+
+    /**
+     * Stops logging the changes made to the structure.
+     */
+    void stopLog(){
+
+        log = null;
+    }
+
+    /**
+     * Replaces the type, positions and entries of the structure with those
+     * written by writeTo.
+     * @param in decoder to read from
+     */
+    void readFrom(BinaryPageCodec.Decoder in){
+
+        type = DataStructureType.getType(in.readVarint());
+        next = in.readVarint();
+        nextRandom = in.readVarint();
+        size = in.readVarint();
+
+        urlIds = new int[Math.max(INITIAL_CAPACITY, size)];
+        heights = new int[urlIds.length];
+        parentIds = new int[urlIds.length];
+
+        for(int i = 0; i < size; i++){
+
+            urlIds[i] = in.readVarint();
+            heights[i] = in.readVarint();
+            parentIds[i] = in.readInt();
+        }
+    }
+
     /**
      * Sets the next QUEUE remove position to the last position in which
-     * a STACK or QUEUE added web pages. Setting this position, affords
+     * a STACK or QUEUE added entries. Setting this position, affords
      * BFS searches to begin where they left off at the last STACK or BAG
-     * web page. A remove operation must be conducted after calling this
+     * entry. A remove operation must be conducted after calling this
      * method to ensure the positioning is correct.
      */
     public void markLastRemovePosition(){
@@ -168,10 +346,10 @@ public class QueBaStack {
         // This affords searches to begin where they left off.
         if(type == DataStructureType.STACK || type == DataStructureType.BAG){
 
-            if(pages.size() <= 2){
+            if(size <= 2){
                 next = 0;
             } else {
-                next = pages.size() - 2;
+                next = size - 2;
             }
         }
     }
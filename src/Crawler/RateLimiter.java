@@ -0,0 +1,223 @@
+package Crawler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Request and byte rate limiter applied when a page is admitted for fetching.
+ * Limits are kept at three levels; globally across the whole crawl, per
+ * hostname and per domain group (the last two labels of a hostname, e.g.
+ * news.msn.com and www.msn.com both belong to msn.com). Every level is made
+ * of lock-free token buckets, and all limits can be changed while the crawl
+ * is running. A rate of 0 disables a limit.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class RateLimiter {
+
+    private final TokenBucket globalRequests;
+    private final TokenBucket globalBytes;
+    private final ConcurrentMap<String, TokenBucket> hostRequests;
+    private final ConcurrentMap<String, TokenBucket> hostBytes;
+    private final ConcurrentMap<String, TokenBucket> groupRequests;
+    private final ConcurrentMap<String, TokenBucket> groupBytes;
+
+    // Rates used for buckets created for newly encountered hosts and groups
+    private volatile long hostRequestRate;
+    private volatile long hostByteRate;
+    private volatile long groupRequestRate;
+    private volatile long groupByteRate;
+
+    /**
+     * Constructor - builds a rate limiter with all limits disabled.
+     */
+    public RateLimiter(){
+
+        globalRequests = new TokenBucket();
+        globalBytes = new TokenBucket();
+        hostRequests = new ConcurrentHashMap<String, TokenBucket>();
+        hostBytes = new ConcurrentHashMap<String, TokenBucket>();
+        groupRequests = new ConcurrentHashMap<String, TokenBucket>();
+        groupBytes = new ConcurrentHashMap<String, TokenBucket>();
+    }
+
+    /**
+     * Admits a request to the given host, waiting until the global, group and
+     * host request limits allow it.
+     * @param hostname the request is made to, may be null
+     */
+    public void acquireRequest(String hostname){
+
+        long wait = globalRequests.reserve(1);
+
+        if(hostname != null){
+
+            wait = Math.max(wait, reserve(groupRequests, getDomainGroup(hostname), groupRequestRate, 1));
+            wait = Math.max(wait, reserve(hostRequests, hostname.toLowerCase(), hostRequestRate, 1));
+        }
+
+        TokenBucket.sleep(wait);
+    }
+
+    /**
+     * Charges the bytes received from the given host against the byte limits.
+     * Bytes are only known after a page is retrieved, so the charge is paid
+     * back by waiting before the next request is admitted.
+     * @param hostname the bytes were received from, may be null
+     * @param bytes received
+     */
+    public void chargeBytes(String hostname, long bytes){
+
+        long wait = globalBytes.reserve(bytes);
+
+        if(hostname != null){
+
+            wait = Math.max(wait, reserve(groupBytes, getDomainGroup(hostname), groupByteRate, bytes));
+            wait = Math.max(wait, reserve(hostBytes, hostname.toLowerCase(), hostByteRate, bytes));
+        }
+
+        TokenBucket.sleep(wait);
+    }
+
+    /**
+     * Reserves tokens from the bucket of the given key, creating the bucket
+     * with the given rate if it hasn't been seen before.
+     * @param buckets to find the key's bucket in
+     * @param key of the bucket
+     * @param rate to create a new bucket with
+     * @param tokens to reserve
+     * @return nanoseconds to wait before using the tokens
+     */
+    private long reserve(ConcurrentMap<String, TokenBucket> buckets, String key,
+                         long rate, long tokens){
+
+        TokenBucket bucket = buckets.get(key);
+
+        if(bucket == null){
+
+            // Skip creating buckets while the level is unlimited
+            if(rate <= 0){
+                return 0;
+            }
+
+            TokenBucket created = new TokenBucket(rate);
+            bucket = buckets.putIfAbsent(key, created);
+
+            if(bucket == null){
+                bucket = created;
+            }
+        }
+
+        return bucket.reserve(tokens);
+    }
+
+    /**
+     * Sets the rate of every existing bucket in the given map.
+     * @param buckets to update
+     * @param rate to set
+     */
+    private static void setRate(ConcurrentMap<String, TokenBucket> buckets, long rate){
+
+        for(TokenBucket bucket : buckets.values()){
+            bucket.setRate(rate);
+        }
+    }
+
+    /**
+     * Returns the domain group of a hostname, which is its last two labels.
+     * IP addresses are their own group.
+     * @param hostname to get the group for
+     * @return domain group of the hostname
+     */
+    public static String getDomainGroup(String hostname){
+
+        String host = hostname.toLowerCase();
+        int last = host.lastIndexOf('.');
+
+        // IPv4 / IPv6 addresses and single label hosts are their own group
+        if(last < 0 || host.indexOf(':') >= 0 || Character.isDigit(host.charAt(host.length() - 1))){
+            return host;
+        }
+
+        int secondLast = host.lastIndexOf('.', last - 1);
+
+        return secondLast < 0 ? host : host.substring(secondLast + 1);
+    }
+
+    /**
+     * Sets the global request limit.
+     * @param requestsPerSecond to allow, 0 for unlimited
+     */
+    public void setGlobalRequestRate(long requestsPerSecond){
+
+        globalRequests.setRate(requestsPerSecond);
+    }
+
+    /**
+     * Sets the global byte limit.
+     * @param bytesPerSecond to allow, 0 for unlimited
+     */
+    public void setGlobalByteRate(long bytesPerSecond){
+
+        globalBytes.setRate(bytesPerSecond);
+    }
+
+    /**
+     * Sets the request limit of each host.
+     * @param requestsPerSecond to allow, 0 for unlimited
+     */
+    public void setHostRequestRate(long requestsPerSecond){
+
+        hostRequestRate = requestsPerSecond;
+        setRate(hostRequests, requestsPerSecond);
+    }
+
+    /**
+     * Sets the byte limit of each host.
+     * @param bytesPerSecond to allow, 0 for unlimited
+     */
+    public void setHostByteRate(long bytesPerSecond){
+
+        hostByteRate = bytesPerSecond;
+        setRate(hostBytes, bytesPerSecond);
+    }
+
+    /**
+     * Sets the request limit of each domain group.
+     * @param requestsPerSecond to allow, 0 for unlimited
+     */
+    public void setGroupRequestRate(long requestsPerSecond){
+
+        groupRequestRate = requestsPerSecond;
+        setRate(groupRequests, requestsPerSecond);
+    }
+
+    /**
+     * Sets the byte limit of each domain group.
+     * @param bytesPerSecond to allow, 0 for unlimited
+     */
+    public void setGroupByteRate(long bytesPerSecond){
+
+        groupByteRate = bytesPerSecond;
+        setRate(groupBytes, bytesPerSecond);
+    }
+
+    /**
+     * Returns the global request limit.
+     * @return requests per second or 0 if unlimited
+     */
+    public long getGlobalRequestRate(){
+
+        return globalRequests.getRate();
+    }
+
+    /**
+     * Returns the global byte limit.
+     * @return bytes per second or 0 if unlimited
+     */
+    public long getGlobalByteRate(){
+
+        return globalBytes.getRate();
+    }
+}
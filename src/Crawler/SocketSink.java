@@ -0,0 +1,228 @@
+package Crawler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * Data channel of the socket transport. Listens on a loopback port and sends
+ * every serialized web page to each attached consumer as a page frame, so
+ * the pages no longer share stdout with the controller messages. Any number
+ * of consumers can attach while the crawl runs, each receiving the pages
+ * written after it attached, and the crawl can wait for the first one to
+ * attach so no pages are lost. Once the sink is closed, each consumer is
+ * sent an end frame and disconnected.
+ *
+ * The sink is written to by the output writer thread, so a slow consumer
+ * holds up the other consumers but not the crawl. A consumer that
+ * disconnects or fails a write is dropped.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class SocketSink implements OutputSink {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final ServerSocket server;
+    private final ArrayList<Socket> sockets;
+    private final ArrayList<DataOutputStream> consumers;
+    private boolean attached;   // A consumer has attached
+    private boolean closed;
+
+    /**
+     * Constructor - listens for consumers on the given loopback port.
+     * @param port to listen on, or 0 for any free port
+     * @throws IOException if the port could not be bound
+     */
+    public SocketSink(int port) throws IOException {
+
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.sockets = new ArrayList<Socket>();
+        this.consumers = new ArrayList<DataOutputStream>();
+        this.closed = false;
+    }
+
+    /**
+     * Returns the port the sink listens on.
+     * @return data channel port
+     */
+    public int getPort(){
+
+        return server.getLocalPort();
+    }
+
+    /**
+     * Starts accepting consumers on a background thread.
+     */
+    public void start(){
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConsumers();
+            }
+        }, "data-channel");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Accepts consumers until the server socket is closed.
+     */
+    private void acceptConsumers(){
+
+        while(!server.isClosed()){
+
+            try {
+
+                Socket socket = server.accept();
+
+                synchronized (consumers){
+
+                    if(closed){
+                        socket.close();
+                    } else {
+                        sockets.add(socket);
+                        consumers.add(new DataOutputStream(
+                                new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE)));
+
+                        attached = true;
+                        consumers.notifyAll();
+                    }
+                }
+
+            } catch (IOException e) {
+
+                if(!server.isClosed()){
+                    System.err.println("Data channel connection could not be accepted");
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits up to the given time for the first consumer to attach.
+     * @param timeout in milliseconds
+     * @return true if a consumer has attached and false if none attached in
+     * time or the wait was interrupted
+     */
+    public boolean awaitConsumer(long timeout){
+
+        long deadline = System.currentTimeMillis() + timeout;
+
+        synchronized (consumers){
+
+            try {
+
+                long remaining = timeout;
+
+                while(!attached && remaining > 0){
+
+                    consumers.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+
+            } catch (InterruptedException e) {
+
+                System.err.println("Thread interrupted exception");
+                Thread.currentThread().interrupt();
+            }
+
+            return attached;
+        }
+    }
+
+    /**
+     * Sends the record to each consumer as a page frame.
+     * @param bytes containing the record
+     * @param offset of the record in the bytes
+     * @param length of the record
+     */
+    @Override
+    public void writeRecord(byte[] bytes, int offset, int length){
+
+        synchronized (consumers){
+
+            for(int i = consumers.size() - 1; i >= 0; i--){
+
+                try {
+                    Frame.write(consumers.get(i), FrameType.PAGE, bytes, offset, length);
+                } catch (IOException e) {
+                    dropConsumer(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes the frames buffered for each consumer.
+     */
+    @Override
+    public void flush(){
+
+        synchronized (consumers){
+
+            for(int i = consumers.size() - 1; i >= 0; i--){
+
+                try {
+                    consumers.get(i).flush();
+                } catch (IOException e) {
+                    dropConsumer(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends each consumer an end frame, then disconnects the consumers and
+     * stops listening.
+     */
+    @Override
+    public void close(){
+
+        synchronized (consumers){
+
+            closed = true;
+
+            for(int i = consumers.size() - 1; i >= 0; i--){
+
+                try {
+                    Frame.write(consumers.get(i), FrameType.END, new byte[0], 0, 0);
+                    consumers.get(i).flush();
+                } catch (IOException e) {
+                    System.err.println("Data channel end could not be sent");
+                }
+
+                dropConsumer(i);
+            }
+        }
+
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Data channel could not be closed");
+        }
+    }
+
+    /**
+     * Disconnects and removes the consumer at the index. The consumers lock
+     * must be held.
+     * @param index of the consumer
+     */
+    private void dropConsumer(int index){
+
+        consumers.remove(index);
+
+        try {
+            sockets.remove(index).close();
+        } catch (IOException e) {
+            System.err.println("Data channel connection could not be closed");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package Crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Local disk queue of length-prefixed records used by the asynchronous output
+ * writer to hold pages that don't fit in its buffer. Records are appended at
+ * the write position and read back in order from the read position; once
+ * every record is read the file is truncated and reused.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class SpillQueue {
+
+    private static final int READ_CHUNK = 1 << 20;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final ByteBuffer header;
+    private ByteBuffer readBuffer;
+    private long writePosition;
+    private long readPosition;
+    private long lastReadBytes;
+
+    /**
+     * Constructor - creates a new spill file in the given directory, deleted
+     * when the queue is closed.
+     * @param directory to create the file in, or null for the temp directory
+     * @throws IOException if the file can't be created
+     */
+    public SpillQueue(File directory) throws IOException {
+
+        file = File.createTempFile("crawler-spill-", ".bin", directory);
+        file.deleteOnExit();
+
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        header = ByteBuffer.allocate(4);
+        readBuffer = ByteBuffer.allocate(READ_CHUNK);
+        writePosition = 0;
+        readPosition = 0;
+    }
+
+    /**
+     * Appends a record to the end of the queue.
+     * @param bytes containing the record
+     * @param offset of the record in the bytes
+     * @param length of the record
+     * @return true if the record was written and false otherwise
+     */
+    public boolean append(byte[] bytes, int offset, int length){
+
+        try {
+
+            header.clear();
+            header.putInt(length).flip();
+
+            long position = writePosition;
+            position += write(header, position);
+            position += write(ByteBuffer.wrap(bytes, offset, length), position);
+
+            writePosition = position;
+            return true;
+
+        } catch(IOException e) {
+
+            System.err.println("Spill file " + file.getName() + " could not be written to.");
+            return false;
+        }
+    }
+
+    /**
+     * Writes the whole buffer at the given position.
+     * @param buffer to write
+     * @param position in the file to write at
+     * @return number of bytes written
+     * @throws IOException if the file can't be written to
+     */
+    private int write(ByteBuffer buffer, long position) throws IOException {
+
+        int written = 0;
+
+        while(buffer.hasRemaining()){
+            written += channel.write(buffer, position + written);
+        }
+
+        return written;
+    }
+
+    /**
+     * Returns the position after the last record appended.
+     * @return write position
+     */
+    public long getWritePosition(){
+
+        return writePosition;
+    }
+
+    /**
+     * Returns whether every appended record has been read.
+     * @return true if there are no unread records and false otherwise
+     */
+    public boolean isEmpty(){
+
+        return readPosition >= writePosition;
+    }
+
+    /**
+     * Reads the records between the read position and the given end position
+     * and writes them to the sinks. Only the reading thread may call this.
+     * @param end position to read up to, from getWritePosition()
+     * @param sinks to write the records to
+     * @return number of records read
+     */
+    public int readRecords(long end, List<OutputSink> sinks){
+
+        int records = 0;
+        lastReadBytes = 0;
+
+        try {
+
+            while(readPosition < end){
+
+                // Read the next chunk, starting at a record boundary
+                readBuffer.clear();
+                readBuffer.limit((int) Math.min(readBuffer.capacity(), end - readPosition));
+                channel.read(readBuffer, readPosition);
+                readBuffer.flip();
+
+                int length = readBuffer.getInt(0);
+
+                // Grow the buffer for records larger than a chunk
+                if(length + 4 > readBuffer.capacity()){
+                    readBuffer = ByteBuffer.allocate(length + 4);
+                    continue;
+                }
+
+                // Hand every whole record in the chunk to the sinks
+                while(readBuffer.remaining() >= 4
+                        && readBuffer.remaining() >= 4 + readBuffer.getInt(readBuffer.position())){
+
+                    length = readBuffer.getInt();
+
+                    for(OutputSink sink : sinks){
+                        sink.writeRecord(readBuffer.array(), readBuffer.position(), length);
+                    }
+
+                    readBuffer.position(readBuffer.position() + length);
+                    readPosition += 4 + length;
+                    lastReadBytes += length;
+                    records++;
+                }
+            }
+
+        } catch(IOException e) {
+
+            // Skip the unreadable records rather than stall the output
+            System.err.println("Spill file " + file.getName() + " could not be read.");
+            readPosition = end;
+        }
+
+        return records;
+    }
+
+    /**
+     * Returns the number of record bytes read by the last call to readRecords.
+     * @return bytes read
+     */
+    public long getLastReadBytes(){
+
+        return lastReadBytes;
+    }
+
+    /**
+     * Truncates the file once every record has been read so the space is
+     * reclaimed. Must not be called while records are being appended.
+     */
+    public void reset(){
+
+        try {
+            channel.truncate(0);
+        } catch(IOException e) {
+            System.err.println("Spill file " + file.getName() + " could not be truncated.");
+        }
+
+        writePosition = 0;
+        readPosition = 0;
+    }
+
+    /**
+     * Closes and deletes the spill file.
+     */
+    public void close(){
+
+        try {
+            randomAccessFile.close();
+        } catch(IOException e) {
+            System.err.println("Spill file " + file.getName() + " could not be closed.");
+        }
+
+        if(!file.delete()){
+            file.deleteOnExit();
+        }
+    }
+}
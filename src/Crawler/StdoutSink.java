@@ -0,0 +1,41 @@
+package Crawler;
+
+/**
+ * Sends serialized web pages to stdout. Records are written back to back, the
+ * "#!#" delimiter within each record separates them.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class StdoutSink implements OutputSink {
+
+    /**
+     * Writes the record bytes directly to stdout without decoding them.
+     * @param bytes containing the record
+     * @param offset of the record in the bytes
+     * @param length of the record
+     */
+    @Override
+    public void writeRecord(byte[] bytes, int offset, int length){
+
+        System.out.write(bytes, offset, length);
+    }
+
+    /**
+     * Flushes stdout.
+     */
+    @Override
+    public void flush(){
+
+        System.out.flush();
+    }
+
+    /**
+     * Flushes stdout, which is left open for the controller messages.
+     */
+    @Override
+    public void close(){
+
+        System.out.flush();
+    }
+}
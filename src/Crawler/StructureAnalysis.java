@@ -0,0 +1,586 @@
+package Crawler;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Finds the structure of a web graph from the compressed sparse row
+ * adjacency of its links: strongly connected components, weakly connected
+ * components, breadth first distances from a set of source pages and the
+ * subgraph of each domain.
+ *
+ * Strongly connected components are found with Tarjan's algorithm run on an
+ * explicit stack, so deep graphs don't overflow the thread's stack. Weakly
+ * connected components are found with a lock-free union-find over ranges of
+ * nodes run on a fork/join pool, and distances with a level by level search
+ * whose frontier is split across the pool. The components of each domain's
+ * subgraph are found in parallel, a domain per task.
+ *
+ * The adjacency is taken from the graph when an analysis starts, so the
+ * crawl can keep adding to the graph while it runs. The results are then
+ * written back onto the pages and domains analyzed.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class StructureAnalysis {
+
+    public static final int UNREACHED = -1;
+
+    private static final int GRAIN = 1 << 12; // Nodes per task
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor - analyzes on the common fork/join pool.
+     */
+    public StructureAnalysis(){
+
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor - analyzes on the given fork/join pool.
+     * @param pool to run the analysis on
+     */
+    public StructureAnalysis(ForkJoinPool pool){
+
+        this.pool = pool;
+    }
+
+    /**
+     * Analyzes the graph and sets the strong component, weak component and
+     * distance from the source page of each page, along with the link count
+     * and strong component count of each domain's subgraph.
+     * @param graph to analyze
+     */
+    public void analyze(WebGraph graph){
+
+        CsrAdjacency forward;
+        int[] groups;
+        int source = UNREACHED;
+
+        // Take the adjacency and the domain of each of its pages together
+        synchronized(graph){
+
+            forward = graph.getForwardAdjacency();
+            groups = new int[forward.getNodeCount()];
+
+            for(int i = 0; i < groups.length; i++){
+                groups[i] = graph.getWebPage(i).getGroupId();
+            }
+
+            if(graph.getSource().getGraph() == graph){
+                source = graph.getSource().getNodeIndex();
+            }
+        }
+
+        int[] strong = stronglyConnectedComponents(forward);
+        int[] weak = weaklyConnectedComponents(forward);
+        int[] distances = distances(forward, source == UNREACHED ? new int[0] : new int[] {source});
+
+        for(int i = 0; i < groups.length; i++){
+
+            WebPage page = graph.getWebPage(i);
+
+            page.setStrongComponent(strong[i]);
+            page.setWeakComponent(weak[i]);
+            page.setDistance(distances[i] == UNREACHED ? null : distances[i]);
+        }
+
+        Subgraph[] subgraphs = domainSubgraphs(forward, groups, graph.getDomainCount());
+        int[] componentCounts = new int[subgraphs.length];
+
+        pool.invoke(new DomainComponentTask(subgraphs, componentCounts, 0, subgraphs.length));
+
+        Domain[] domains = new Domain[subgraphs.length];
+        int count = graph.copyDomains(0, domains);
+
+        for(int i = 0; i < count; i++){
+
+            int id = domains[i].getDomainId();
+
+            if(id >= 0 && id < subgraphs.length){
+                domains[i].setLinkCount(subgraphs[id].getAdjacency().getLinkCount());
+                domains[i].setComponentCount(componentCounts[id]);
+            }
+        }
+    }
+
+    /**
+     * Returns the subgraph of the pages of a domain in the graph.
+     * @param graph to take the subgraph from
+     * @param domainId of the domain
+     * @return subgraph of the domain's pages
+     */
+    public Subgraph domainSubgraph(WebGraph graph, int domainId){
+
+        CsrAdjacency forward;
+        int[] groups;
+
+        synchronized(graph){
+
+            forward = graph.getForwardAdjacency();
+            groups = new int[forward.getNodeCount()];
+
+            for(int i = 0; i < groups.length; i++){
+                groups[i] = graph.getWebPage(i).getGroupId() == domainId ? 0 : -1;
+            }
+        }
+
+        return domainSubgraphs(forward, groups, 1)[0];
+    }
+
+    /**
+     * Splits the graph into the subgraph of each domain, keeping the links
+     * between pages of the same domain. Pages with a domain outside the
+     * range are left out.
+     * @param forward adjacency of the graph
+     * @param groups domain id of each node
+     * @param domainCount number of domains
+     * @return subgraph of each domain, indexed by domain id
+     */
+    public Subgraph[] domainSubgraphs(CsrAdjacency forward, int[] groups, int domainCount){
+
+        int nodeCount = forward.getNodeCount();
+        int[] local = new int[nodeCount];
+        int[] sizes = new int[domainCount];
+
+        for(int node = 0; node < nodeCount; node++){
+
+            int group = groups[node];
+            local[node] = group >= 0 && group < domainCount ? sizes[group]++ : UNREACHED;
+        }
+
+        int[][] nodes = new int[domainCount][];
+        IntArray[] from = new IntArray[domainCount];
+        IntArray[] to = new IntArray[domainCount];
+
+        for(int group = 0; group < domainCount; group++){
+
+            nodes[group] = new int[sizes[group]];
+            from[group] = new IntArray(16);
+            to[group] = new IntArray(16);
+        }
+
+        for(int node = 0; node < nodeCount; node++){
+
+            if(local[node] == UNREACHED){
+                continue;
+            }
+
+            int group = groups[node];
+            nodes[group][local[node]] = node;
+
+            for(int i = forward.getOffset(node); i < forward.getOffset(node + 1); i++){
+
+                int neighbor = forward.getNeighbor(i);
+
+                if(groups[neighbor] == group && local[neighbor] != UNREACHED){
+                    from[group].add(local[node]);
+                    to[group].add(local[neighbor]);
+                }
+            }
+        }
+
+        Subgraph[] subgraphs = new Subgraph[domainCount];
+
+        for(int group = 0; group < domainCount; group++){
+            subgraphs[group] = new Subgraph(nodes[group], new CsrAdjacency(sizes[group],
+                    from[group], to[group], from[group].size()));
+        }
+
+        return subgraphs;
+    }
+
+    /**
+     * Finds the strongly connected components of the adjacency with an
+     * iterative Tarjan's algorithm. Components are numbered from zero in the
+     * order they are completed, which is a reverse topological order.
+     * @param adjacency to analyze
+     * @return component of each node
+     */
+    public static int[] stronglyConnectedComponents(CsrAdjacency adjacency){
+
+        int nodeCount = adjacency.getNodeCount();
+        int[] offsets = adjacency.getOffsets();
+        int[] neighbors = adjacency.getNeighbors();
+
+        int[] order = new int[nodeCount];
+        int[] low = new int[nodeCount];
+        int[] components = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+
+        // Nodes waiting for a component, and the nodes being visited with
+        // the position of the next link to follow from each
+        int[] stack = new int[nodeCount];
+        int[] visiting = new int[nodeCount];
+        int[] nextLink = new int[nodeCount];
+
+        Arrays.fill(order, UNREACHED);
+
+        int stackSize = 0;
+        int counter = 0;
+        int componentCount = 0;
+
+        for(int root = 0; root < nodeCount; root++){
+
+            if(order[root] != UNREACHED){
+                continue;
+            }
+
+            int depth = 0;
+            visiting[0] = root;
+            nextLink[0] = offsets[root];
+            order[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while(depth >= 0){
+
+                int node = visiting[depth];
+
+                if(nextLink[depth] < offsets[node + 1]){
+
+                    int neighbor = neighbors[nextLink[depth]++];
+
+                    if(order[neighbor] == UNREACHED){
+
+                        depth++;
+                        visiting[depth] = neighbor;
+                        nextLink[depth] = offsets[neighbor];
+                        order[neighbor] = low[neighbor] = counter++;
+                        stack[stackSize++] = neighbor;
+                        onStack[neighbor] = true;
+
+                    } else if(onStack[neighbor]){
+                        low[node] = Math.min(low[node], order[neighbor]);
+                    }
+
+                } else {
+
+                    // Every link followed, close the component if node is its root
+                    if(low[node] == order[node]){
+
+                        int member;
+
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            components[member] = componentCount;
+                        } while(member != node);
+
+                        componentCount++;
+                    }
+
+                    depth--;
+
+                    if(depth >= 0){
+                        int parent = visiting[depth];
+                        low[parent] = Math.min(low[parent], low[node]);
+                    }
+                }
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Finds the weakly connected components of the adjacency, following
+     * links in either direction. Components are numbered from zero in the
+     * order of their first node.
+     * @param adjacency to analyze
+     * @return component of each node
+     */
+    public int[] weaklyConnectedComponents(CsrAdjacency adjacency){
+
+        int nodeCount = adjacency.getNodeCount();
+        AtomicIntegerArray parents = new AtomicIntegerArray(nodeCount);
+
+        for(int i = 0; i < nodeCount; i++){
+            parents.set(i, i);
+        }
+
+        pool.invoke(new UnionTask(adjacency, parents, 0, nodeCount));
+
+        // Number the roots in node order
+        int[] components = new int[nodeCount];
+        int[] numbers = new int[nodeCount];
+        int componentCount = 0;
+
+        Arrays.fill(numbers, UNREACHED);
+
+        for(int node = 0; node < nodeCount; node++){
+
+            int root = find(parents, node);
+
+            if(numbers[root] == UNREACHED){
+                numbers[root] = componentCount++;
+            }
+
+            components[node] = numbers[root];
+        }
+
+        return components;
+    }
+
+    /**
+     * Finds the number of links on the shortest path to each node from the
+     * nearest of the sources.
+     * @param adjacency to search
+     * @param sources nodes to search from
+     * @return distance of each node, or UNREACHED if it can't be reached
+     */
+    public int[] distances(CsrAdjacency adjacency, int[] sources){
+
+        int nodeCount = adjacency.getNodeCount();
+        AtomicIntegerArray distances = new AtomicIntegerArray(nodeCount);
+        IntArray frontier = new IntArray(Math.max(1, sources.length));
+
+        for(int i = 0; i < nodeCount; i++){
+            distances.set(i, UNREACHED);
+        }
+
+        for(int source : sources){
+
+            if(source >= 0 && source < nodeCount && distances.compareAndSet(source, UNREACHED, 0)){
+                frontier.add(source);
+            }
+        }
+
+        for(int level = 1; frontier.size() > 0; level++){
+
+            int[] nodes = frontier.toArray();
+            frontier = pool.invoke(new ExpandTask(adjacency, distances, nodes, level, 0, nodes.length));
+        }
+
+        int[] result = new int[nodeCount];
+
+        for(int i = 0; i < nodeCount; i++){
+            result[i] = distances.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the root of the node's set, halving the path to it.
+     * @param parents of each node
+     * @param node to find the root of
+     * @return root of the node's set
+     */
+    private static int find(AtomicIntegerArray parents, int node){
+
+        while(true){
+
+            int parent = parents.get(node);
+
+            if(parent == node){
+                return node;
+            }
+
+            int grandparent = parents.get(parent);
+
+            if(parent != grandparent){
+                parents.compareAndSet(node, parent, grandparent);
+            }
+
+            node = grandparent;
+        }
+    }
+
+    /**
+     * Joins the sets of two nodes, making the smaller root the parent so
+     * concurrent joins can't form a cycle.
+     * @param parents of each node
+     * @param a node to join
+     * @param b node to join
+     */
+    private static void union(AtomicIntegerArray parents, int a, int b){
+
+        while(true){
+
+            a = find(parents, a);
+            b = find(parents, b);
+
+            if(a == b){
+                return;
+            }
+
+            if(a < b){
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+
+            if(parents.compareAndSet(a, a, b)){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Joins the sets of the nodes of each link from a range of nodes.
+     */
+    private static class UnionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CsrAdjacency adjacency;
+        private final AtomicIntegerArray parents;
+        private final int from;
+        private final int to;
+
+        UnionTask(CsrAdjacency adjacency, AtomicIntegerArray parents, int from, int to){
+
+            this.adjacency = adjacency;
+            this.parents = parents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+
+            if(to - from > GRAIN){
+
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new UnionTask(adjacency, parents, from, middle),
+                        new UnionTask(adjacency, parents, middle, to));
+                return;
+            }
+
+            int[] offsets = adjacency.getOffsets();
+            int[] neighbors = adjacency.getNeighbors();
+
+            for(int node = from; node < to; node++){
+
+                for(int i = offsets[node]; i < offsets[node + 1]; i++){
+                    union(parents, node, neighbors[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the unreached neighbors of a range of the frontier, returning
+     * the nodes it reached first.
+     */
+    private static class ExpandTask extends RecursiveTask<IntArray> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CsrAdjacency adjacency;
+        private final AtomicIntegerArray distances;
+        private final int[] frontier;
+        private final int level;
+        private final int from;
+        private final int to;
+
+        ExpandTask(CsrAdjacency adjacency, AtomicIntegerArray distances, int[] frontier,
+                   int level, int from, int to){
+
+            this.adjacency = adjacency;
+            this.distances = distances;
+            this.frontier = frontier;
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntArray compute(){
+
+            if(to - from > GRAIN){
+
+                int middle = (from + to) >>> 1;
+
+                ExpandTask left = new ExpandTask(adjacency, distances, frontier, level, from, middle);
+                left.fork();
+
+                IntArray right = new ExpandTask(adjacency, distances, frontier, level, middle, to).compute();
+                IntArray reached = left.join();
+
+                for(int i = 0; i < right.size(); i++){
+                    reached.add(right.get(i));
+                }
+
+                return reached;
+            }
+
+            int[] offsets = adjacency.getOffsets();
+            int[] neighbors = adjacency.getNeighbors();
+            IntArray reached = new IntArray(16);
+
+            for(int i = from; i < to; i++){
+
+                int node = frontier[i];
+
+                for(int j = offsets[node]; j < offsets[node + 1]; j++){
+
+                    int neighbor = neighbors[j];
+
+                    // Only the task that claims the neighbor adds it
+                    if(distances.get(neighbor) == UNREACHED
+                            && distances.compareAndSet(neighbor, UNREACHED, level)){
+                        reached.add(neighbor);
+                    }
+                }
+            }
+
+            return reached;
+        }
+    }
+
+    /**
+     * Counts the strongly connected components of the subgraphs of a range
+     * of domains.
+     */
+    private static class DomainComponentTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Subgraph[] subgraphs;
+        private final int[] componentCounts;
+        private final int from;
+        private final int to;
+
+        DomainComponentTask(Subgraph[] subgraphs, int[] componentCounts, int from, int to){
+
+            this.subgraphs = subgraphs;
+            this.componentCounts = componentCounts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+
+            if(to - from > 1){
+
+                int middle = (from + to) >>> 1;
+
+                invokeAll(new DomainComponentTask(subgraphs, componentCounts, from, middle),
+                        new DomainComponentTask(subgraphs, componentCounts, middle, to));
+                return;
+            }
+
+            for(int i = from; i < to; i++){
+
+                int[] components = stronglyConnectedComponents(subgraphs[i].getAdjacency());
+                int count = 0;
+
+                for(int component : components){
+                    count = Math.max(count, component + 1);
+                }
+
+                componentCounts[i] = count;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package Crawler;
+
+/**
+ * Subgraph of a web graph induced by a set of its pages. The pages are
+ * numbered from zero in the order they appear in the graph, and the
+ * adjacency holds the links between them by those numbers.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class Subgraph {
+
+    private final int[] nodes;
+    private final CsrAdjacency adjacency;
+
+    /**
+     * Constructor - builds the subgraph of the nodes and their adjacency.
+     * @param nodes index in the graph of each page of the subgraph
+     * @param adjacency of the links between the pages, by subgraph number
+     */
+    Subgraph(int[] nodes, CsrAdjacency adjacency){
+
+        this.nodes = nodes;
+        this.adjacency = adjacency;
+    }
+
+    /**
+     * Returns the number of pages in the subgraph.
+     * @return page count
+     */
+    public int getNodeCount(){
+
+        return nodes.length;
+    }
+
+    /**
+     * Returns the index in the graph of a page of the subgraph.
+     * @param node number of the page in the subgraph
+     * @return index of the page in the graph
+     */
+    public int getGraphNode(int node){
+
+        return nodes[node];
+    }
+
+    /**
+     * Returns the index in the graph of each page of the subgraph.
+     * @return graph index of each page
+     */
+    public int[] getGraphNodes(){
+
+        return nodes;
+    }
+
+    /**
+     * Returns the adjacency of the links between the pages of the subgraph.
+     * @return subgraph adjacency
+     */
+    public CsrAdjacency getAdjacency(){
+
+        return adjacency;
+    }
+}
@@ -0,0 +1,19 @@
+package Crawler;
+
+/**
+ * Durability policies of the file output, deciding when written pages are
+ * forced to disk with an fsync.
+ *  - NONE: pages are left for the operating system to write
+ *  - BATCH: one fsync for each batch of pages flushed by the output writer
+ *  - INTERVAL: at most one fsync for each sync interval
+ *
+ * Completed segments of a rotated file are always forced to disk before
+ * they are added to the manifest.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public enum SyncPolicy {
+
+    NONE, BATCH, INTERVAL
+}
@@ -0,0 +1,148 @@
+package Crawler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket used to limit the rate of an operation, such as
+ * requests or bytes per second. Rather than counting tokens, the bucket keeps
+ * the theoretical time at which it will next be empty and reserves tokens
+ * with a single compare-and-set, so callers never contend on a lock. The
+ * time a caller must wait for its reservation is returned, leaving the
+ * waiting to the caller outside of the bucket.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long UNLIMITED = 0;
+
+    private final AtomicLong nextFreeTime; // Time (nanos) the bucket is drained until
+    private volatile long rate;            // Tokens per second, 0 is unlimited
+    private volatile long nanosPerToken;   // Time for a single token to refill
+    private volatile long burstNanos;      // Time for the whole bucket to refill
+
+    /**
+     * Constructor - builds an unlimited token bucket.
+     */
+    public TokenBucket(){
+
+        this(UNLIMITED);
+    }
+
+    /**
+     * Constructor - builds a token bucket with the given rate and a burst
+     * capacity of one second worth of tokens.
+     * @param ratePerSecond number of tokens refilled each second, 0 for unlimited
+     */
+    public TokenBucket(long ratePerSecond){
+
+        nextFreeTime = new AtomicLong(System.nanoTime());
+        setRate(ratePerSecond);
+    }
+
+    /**
+     * Sets the rate of the bucket. The burst capacity is set to one second
+     * worth of tokens. A rate of 0 or less removes the limit. Safe to call
+     * while other threads are acquiring tokens.
+     * @param ratePerSecond number of tokens refilled each second, 0 for unlimited
+     */
+    public void setRate(long ratePerSecond){
+
+        if(ratePerSecond <= 0){
+
+            nanosPerToken = UNLIMITED;
+            burstNanos = UNLIMITED;
+            rate = UNLIMITED;
+
+        } else {
+
+            // Rates beyond a token per nanosecond are treated as a nanosecond
+            long interval = Math.max(1, NANOS_PER_SECOND / ratePerSecond);
+
+            burstNanos = interval * ratePerSecond;
+            nanosPerToken = interval;
+            rate = ratePerSecond;
+        }
+    }
+
+    /**
+     * Returns the rate of the bucket in tokens per second.
+     * @return tokens per second or 0 if the bucket is unlimited
+     */
+    public long getRate(){
+
+        return rate;
+    }
+
+    /**
+     * Returns whether the bucket has no rate limit.
+     * @return true if the bucket is unlimited and false otherwise
+     */
+    public boolean isUnlimited(){
+
+        return nanosPerToken == UNLIMITED;
+    }
+
+    /**
+     * Reserves the given number of tokens and returns the time the caller
+     * must wait before the reservation is honored. Reservations larger than
+     * the bucket are allowed, and are paid back by later callers waiting.
+     * @param tokens to reserve
+     * @return nanoseconds to wait before using the tokens
+     */
+    public long reserve(long tokens){
+
+        long interval = nanosPerToken;
+
+        if(interval == UNLIMITED || tokens <= 0){
+            return 0;
+        }
+
+        long burst = burstNanos;
+
+        while(true){
+
+            long now = System.nanoTime();
+            long drainedUntil = nextFreeTime.get();
+
+            // An idle bucket refills, but never past its burst capacity
+            long next = Math.max(drainedUntil, now) + tokens * interval;
+
+            if(nextFreeTime.compareAndSet(drainedUntil, next)){
+                return Math.max(0, next - now - burst);
+            }
+        }
+    }
+
+    /**
+     * Reserves the given number of tokens and sleeps the calling thread until
+     * the reservation is honored.
+     * @param tokens to acquire
+     */
+    public void acquire(long tokens){
+
+        sleep(reserve(tokens));
+    }
+
+    /**
+     * Sleeps the calling thread for the given time.
+     * @param nanos to sleep for
+     */
+    public static void sleep(long nanos){
+
+        if(nanos > 0){
+
+            try {
+
+                TimeUnit.NANOSECONDS.sleep(nanos);
+
+            } catch(InterruptedException e){
+
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package Crawler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Off-heap store of URLs, each given a dense int id the first time it's
+ * interned. The UTF-8 bytes of the URLs are appended to direct byte buffer
+ * segments outside the Java heap, and the heap only holds the offset,
+ * length and hash of each id along with an open addressing table of ids,
+ * around 24 bytes per URL rather than a String and its char array. URLs are
+ * hashed and compared directly on their bytes, optionally ignoring ASCII
+ * case.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class UrlArena {
+
+    public static final int NONE = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int SEGMENT_SIZE = 1 << 24;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final boolean ignoreCase;
+    private final ArrayList<ByteBuffer> segments;
+    private ByteBuffer current;
+    private long byteCount;
+
+    // Per id
+    private long[] locations; // segment index in the high int, offset in the low int
+    private int[] lengths;
+    private int[] hashes;
+    private int size;
+
+    // Open addressing table of ids, NONE for an empty slot
+    private int[] table;
+
+    private byte[] scratch;
+
+    /**
+     * Constructor - builds an empty arena.
+     * @param ignoreCase true to treat URLs differing only in ASCII case as
+     *                   the same URL
+     */
+    public UrlArena(boolean ignoreCase){
+
+        this.ignoreCase = ignoreCase;
+        this.segments = new ArrayList<ByteBuffer>();
+        this.locations = new long[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.table = new int[INITIAL_CAPACITY * 2];
+        this.scratch = new byte[256];
+
+        Arrays.fill(table, NONE);
+    }
+
+    /**
+     * Returns the id of the URL, storing it if it isn't in the arena yet.
+     * @param url to intern
+     * @return id of the URL
+     */
+    public synchronized int intern(String url){
+
+        int length = encode(url);
+        int hash = hash(scratch, length);
+        int slot = findSlot(hash, length);
+
+        if(table[slot] != NONE){
+            return table[slot];
+        }
+
+        int id = append(length, hash);
+        table[slot] = id;
+
+        // Keep the table at most half full so probe runs stay short
+        if(size * 2 > table.length){
+            rehash(table.length * 2);
+        }
+
+        return id;
+    }
+
+    /**
+     * Returns the id of the URL without storing it.
+     * @param url to look up
+     * @return id of the URL, or NONE if it isn't in the arena
+     */
+    public synchronized int find(String url){
+
+        int length = encode(url);
+
+        return table[findSlot(hash(scratch, length), length)];
+    }
+
+    /**
+     * Returns the URL of the id, as it was first interned.
+     * @param id of the URL
+     * @return URL of the id
+     */
+    public synchronized String get(int id){
+
+        // Read through a view so the position appends are made at is kept
+        ByteBuffer segment = segments.get((int) (locations[id] >>> 32)).duplicate();
+        byte[] bytes = new byte[lengths[id]];
+
+        segment.position((int) locations[id]);
+        segment.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Returns the number of URLs in the arena.
+     * @return URL count
+     */
+    public synchronized int size(){
+
+        return size;
+    }
+
+    /**
+     * Returns the number of off-heap bytes holding the URLs.
+     * @return URL byte count
+     */
+    public synchronized long getByteCount(){
+
+        return byteCount;
+    }
+
+    /**
+     * Encodes the URL into the scratch buffer.
+     * @param url to encode
+     * @return number of bytes encoded
+     */
+    private int encode(String url){
+
+        // A char takes at most 3 bytes in UTF-8
+        if(scratch.length < url.length() * 3){
+            scratch = new byte[url.length() * 3];
+        }
+
+        int length = 0;
+
+        for(int i = 0; i < url.length(); i++){
+
+            char c = url.charAt(i);
+
+            if(c < 0x80){
+
+                scratch[length++] = (byte) c;
+
+            } else if(c < 0x800){
+
+                scratch[length++] = (byte) (0xC0 | (c >> 6));
+                scratch[length++] = (byte) (0x80 | (c & 0x3F));
+
+            } else if(Character.isHighSurrogate(c) && i + 1 < url.length()
+                    && Character.isLowSurrogate(url.charAt(i + 1))){
+
+                int codePoint = Character.toCodePoint(c, url.charAt(++i));
+
+                scratch[length++] = (byte) (0xF0 | (codePoint >> 18));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+
+            } else {
+
+                scratch[length++] = (byte) (0xE0 | (c >> 12));
+                scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Hashes the bytes with FNV-1a, folding ASCII case if enabled.
+     * @param bytes to hash
+     * @param length of the bytes
+     * @return hash of the bytes
+     */
+    private int hash(byte[] bytes, int length){
+
+        int hash = 0x811C9DC5;
+
+        for(int i = 0; i < length; i++){
+            hash = (hash ^ fold(bytes[i])) * 0x01000193;
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the byte in lower case if case is ignored.
+     * @param b byte to fold
+     * @return folded byte
+     */
+    private int fold(byte b){
+
+        return ignoreCase && b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    /**
+     * Returns the slot of the table holding the id of the scratch bytes, or
+     * the empty slot they would go in.
+     * @param hash of the scratch bytes
+     * @param length of the scratch bytes
+     * @return slot of the bytes
+     */
+    private int findSlot(int hash, int length){
+
+        int mask = table.length - 1;
+        int slot = hash & mask;
+
+        while(table[slot] != NONE){
+
+            int id = table[slot];
+
+            if(hashes[id] == hash && lengths[id] == length && matches(id, length)){
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Compares the stored bytes of the id with the scratch bytes.
+     * @param id to compare
+     * @param length of the scratch bytes
+     * @return true if they match and false otherwise
+     */
+    private boolean matches(int id, int length){
+
+        ByteBuffer segment = segments.get((int) (locations[id] >>> 32));
+        int offset = (int) locations[id];
+
+        for(int i = 0; i < length; i++){
+
+            if(fold(segment.get(offset + i)) != fold(scratch[i])){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends the scratch bytes as a new id.
+     * @param length of the scratch bytes
+     * @param hash of the scratch bytes
+     * @return id of the bytes
+     */
+    private int append(int length, int hash){
+
+        // Start a new segment when the URL doesn't fit in the current one
+        if(current == null || current.remaining() < length){
+
+            current = ByteBuffer.allocateDirect(Math.max(SEGMENT_SIZE, length));
+            segments.add(current);
+        }
+
+        if(size == lengths.length){
+
+            int capacity = size + (size >> 1) + 1;
+
+            locations = Arrays.copyOf(locations, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+
+        int id = size++;
+
+        locations[id] = ((long) (segments.size() - 1) << 32) | current.position();
+        lengths[id] = length;
+        hashes[id] = hash;
+
+        current.put(scratch, 0, length);
+        byteCount += length;
+
+        return id;
+    }
+
+    /**
+     * Rebuilds the table of ids at the given capacity.
+     * @param capacity of the new table, a power of two
+     */
+    private void rehash(int capacity){
+
+        table = new int[capacity];
+        Arrays.fill(table, NONE);
+
+        int mask = capacity - 1;
+
+        for(int id = 0; id < size; id++){
+
+            int slot = hashes[id] & mask;
+
+            while(table[slot] != NONE){
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = id;
+        }
+    }
+}
@@ -35,6 +35,32 @@ public class Validation {
         }
     }
 
+    /**
+     * Validates a fraction extracted from a string. Returns the value of
+     * the fraction if it can be extracted from the string and is between 0
+     * and 1, and return -1 otherwise.
+     * @param fraction to validate
+     * @return double value if the string is a fraction and -1 otherwise
+     */
+    public static double isValidFraction(String fraction){
+
+        try { // Check if the fraction is a number
+
+            double temp = Double.parseDouble(fraction);
+
+            if(temp >= 0 && temp <= 1){
+                return temp;
+            } else {
+                return -1;
+            }
+
+            // String provided is not a valid number
+        } catch(NumberFormatException e) {
+
+            return -1;
+        }
+    }
+
     /**
      * Validates the string argument and returns a boolean value on it's
      * validity. The string is said to be valid if it's not null and does not
@@ -1,9 +1,12 @@
 package Crawler;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Web crawler class that executes three different crawl types include a
@@ -31,6 +34,29 @@ public class WebCrawler {
     private boolean useCustomUserAgent;
     private String customUserAgent;
     private FileProcessor file;
+    private PageOutput output;
+    private OutputFormat outputFormat;
+    private OverflowPolicy overflowPolicy;
+    private int outputBufferSize;
+    private int flushInterval;
+    private long rotateBytes;
+    private long rotateMillis;
+    private SyncPolicy syncPolicy;
+    private CompressionCodec compressionCodec;
+    private String snapshotFileName;
+    private String checkpointFileName;
+    private long checkpointInterval;
+    private String resumeFileName;
+    private boolean rankPages;
+    private double dampingFactor;
+    private boolean rankHubs;
+    private boolean analyzeStructure;
+    private int socketPort;
+    private boolean lateAttach;
+    private ControlServer controlServer;
+    private SocketSink socketSink;
+    private long syncInterval;
+    private final RateLimiter rateLimiter;
 
     // Used for Pause/Resume/Control functionality via threads
     private boolean isThreadedCrawl;
@@ -41,8 +67,25 @@ public class WebCrawler {
     private final AtomicInteger linkType;
     private final AtomicInteger heightLimit;
     private final AtomicInteger limit;
+    private final AtomicInteger workers;
+    private final AtomicInteger hostConnections;
+    private final AtomicInteger parseThreads;
+    private final AtomicLong drainDeadline;
+    private final AtomicBoolean drained;
     private final AtomicBoolean enableSearchTerm;
     private final AtomicReference<String> searchTerm;
+    private final AtomicReference<WebGraph> currentGraph;
+    private final AtomicReference<MetricsRegistry> currentMetrics;
+
+    // Metrics of the current crawl recorded by the crawl thread
+    private LongAdder pageCount;
+    private LongAdder byteCount;
+    private LongAdder invalidCount;
+    private AtomicLong frontierSize;
+    private AtomicLong inFlightSize;
+    private LatencyHistogram attachTime;
+    private LatencyHistogram serializeTime;
+    private LatencyHistogram checkpointPause;
 
     /**
      * Constructor - Sets the source url to start the web crawl from and all
@@ -62,10 +105,35 @@ public class WebCrawler {
         useCustomUserAgent = false;             // Robot User Agent Set
         customUserAgent = "";
         isThreadedCrawl = false;                // Maintains crawl type
+        rateLimiter = new RateLimiter();        // No rate limits
+        outputFormat = OutputFormat.JSON;       // Pages output as JSON
+        overflowPolicy = OverflowPolicy.SPILL;  // Output overflow spilled to disk
+        outputBufferSize = 1024;                // Pages buffered for output
+        flushInterval = 100;                    // Outputs flushed every 100 ms
+        rotateBytes = 0;                        // File output NOT rotated
+        rotateMillis = 0;
+        syncPolicy = SyncPolicy.BATCH;          // File synced once per output batch
+        syncInterval = 1000;
+        compressionCodec = null;                // File output NOT compressed
+        snapshotFileName = null;                // Graph snapshot NOT written
+        checkpointFileName = null;              // Crawl NOT checkpointed
+        checkpointInterval = 60000;             // Checkpoint every 60 seconds if enabled
+        resumeFileName = null;                  // Crawl started from the source URL
+        rankPages = false;                      // PageRank NOT computed
+        dampingFactor = LinkAnalysis.DEFAULT_DAMPING_FACTOR;
+        rankHubs = false;                       // HITS NOT computed
+        analyzeStructure = false;               // Structure NOT analyzed
+        socketPort = 0;                         // Controlled over stdin/stdout
+        lateAttach = false;                     // Crawl waits for the first data consumer
 
         // Thread Safe Variables - Default Settings
         heightLimit = new AtomicInteger(Integer.MAX_VALUE);
         limit = new AtomicInteger(0);
+        workers = new AtomicInteger(1);         // Pages fetched one at a time
+        hostConnections = new AtomicInteger(0); // Connections to a host NOT limited
+        parseThreads = new AtomicInteger(0);    // Pages parsed by the workers
+        drainDeadline = new AtomicLong(0);      // Crawl NOT draining
+        drained = new AtomicBoolean(false);
         enableSearchTerm = new AtomicBoolean(false);
         paused = new AtomicBoolean(false);
         cyclic = new AtomicBoolean(false);
@@ -73,6 +141,8 @@ public class WebCrawler {
         delay = new AtomicInteger(0);
         linkType = new AtomicInteger(LinkType.ALL.getId());
         searchTerm = new AtomicReference<String>(null);
+        currentGraph = new AtomicReference<WebGraph>(null);
+        currentMetrics = new AtomicReference<MetricsRegistry>(new MetricsRegistry());
     }
 
     /**
@@ -85,6 +155,8 @@ public class WebCrawler {
     public WebGraph executeCrawl(int searchLimit, DataStructureType type){
 
         isThreadedCrawl = false;
+        resetDrain();
+
         final QueBaStack queBaStack = new QueBaStack(type);
         return executeCrawl(searchLimit, queBaStack, null);
     }
@@ -98,6 +170,7 @@ public class WebCrawler {
     public void executeThreadedCrawl(final int limit, DataStructureType type){
 
         isThreadedCrawl = true;
+        resetDrain();
 
         final Object lock = new Object();
         final QueBaStack queBaStack = new QueBaStack(type);
@@ -110,18 +183,69 @@ public class WebCrawler {
             }
         });
 
+        // Start the crawler controller, reading commands from the control
+        // channel if the socket transport is enabled
+        CrawlerController controller = new CrawlerController();
+        openSockets(controller);
+
         thread.start();
 
-        // Start the crawler controller
-        CrawlerController controller = new CrawlerController();
         controller.controlCrawler(lock, paused, delay, cyclic, linkType,
-                queBaStack, heightLimit, this.limit, enableSearchTerm, searchTerm);
+                queBaStack, heightLimit, this.limit, enableSearchTerm, searchTerm, rateLimiter,
+                currentGraph, currentMetrics, workers, hostConnections, parseThreads,
+                drainDeadline, drained);
 
         try { // Wait for the thread to die, before continuing
             thread.join();
         } catch (InterruptedException e) {
             System.err.println("Thread interrupted exception");
         }
+
+        closeSockets();
+    }
+
+    /**
+     * Opens the control and data channels of the socket transport if enabled
+     * by the user, listening on the socket port and the port after it. The
+     * crawl falls back to stdin/stdout if the ports could not be bound.
+     * @param controller to read commands from the control channel
+     */
+    private void openSockets(CrawlerController controller){
+
+        if(socketPort > 0){
+
+            try {
+
+                socketSink = new SocketSink(socketPort + 1);
+                controlServer = new ControlServer(socketPort);
+
+                socketSink.start();
+                controller.setControlServer(controlServer);
+
+            } catch (IOException e) {
+
+                System.err.println("Socket transport could not be opened on port " + socketPort);
+
+                if(socketSink != null){
+                    socketSink.close();
+                    socketSink = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the control channel once the controller has stopped. The data
+     * channel is closed with the other outputs.
+     */
+    private void closeSockets(){
+
+        if(controlServer != null){
+            controlServer.close();
+            controlServer = null;
+        }
+
+        socketSink = null;
     }
 
     /**
@@ -139,31 +263,106 @@ public class WebCrawler {
         int limitCounter = 0;
         this.limit.set(limit);
 
+        // Read the checkpoint to resume from if option enabled
+        CrawlCheckpoint resumed = loadCheckpoint();
+
         // Create a new graph and source page for the crawl
-        WebPage source = new WebPage(url, 0);
+        WebPage source = new WebPage(resumed != null ? resumed.getSourceUrl() : url, 0);
         WebGraph graph = new WebGraph(source);
-        queBaStack.insert(source); // Add source to the stack
+        currentGraph.set(graph); // Available to the controller for exports
 
-        // Create a web page indexer and set it's values
-        WebPageIndexer indexer = new WebPageIndexer();
-        defineIndexerUserAgent(indexer);
+        CrawlCheckpoint checkpoint = null;
+
+        if(resumed == null){
+
+            queBaStack.insert(graph.internURL(url), 0, WebPage.UNASSIGNED_ID); // Add source to the stack
+            checkpoint = openCheckpoint(null, queBaStack);
+
+        } else if(restoreCheckpoint(resumed, graph, queBaStack)){
+
+            // Continue from the graph, frontier and limit counter of the checkpoint
+            limitCounter = resumed.getLimitCounter();
+            checkpoint = openCheckpoint(resumed, queBaStack);
+        }
+
+        openMetrics(); // Available to the controller for STATS
+        openOutput();  // Connect the enabled outputs
+        awaitDataConsumer(); // Hold the crawl until its pages can be received
+
+        // Pages are fetched and parsed by the pool's workers, then indexed
+        // here in the order they finish
+        FetchPool fetchPool = new FetchPool(rateLimiter, workers.get(), parseThreads.get());
+        boolean searchEnded = false;
 
         // Search through and index all the web pages encountered by the crawl
         // as longs as the pages are less than max pages, the height limit
         // isn't exceeded and there are still pages left to visit
-        while(!queBaStack.isEmpty() && queBaStack.get().getHeight() <= heightLimit.get()
-                && limitCounter < this.limit.get()) {
+        while(true) {
 
             // Location to pause/resume/control the crawler on-the-fly
             allowControllerAccess(lock, paused, queBaStack);
 
-            // Get the next page that hasn't been indexed
-            WebPage page = queBaStack.remove();
-            indexer.setUrl(page.getUrl());
+            // Checkpoint the crawl between pages if one is due
+            startCheckpoint(checkpoint, graph, queBaStack, fetchPool, limitCounter);
+
+            // Hand the next pages that haven't been indexed to the free workers,
+            // unless the crawl is draining
+            fetchPool.resize(workers.get(), parseThreads.get());
+
+            while(!searchEnded && drainDeadline.get() == 0
+                    && limitCounter + fetchPool.size() < this.limit.get() && fetchPool.hasFreeWorker()){
+
+                // Entries parked for a host at its connection limit left the
+                // frontier first, so they go once their host has room
+                FrontierEntry entry = fetchPool.unpark(hostConnections.get());
+
+                if(entry == null){
+
+                    if(queBaStack.isEmpty() || queBaStack.get().getHeight() > heightLimit.get()){
+                        break;
+                    }
+
+                    String hostname = getFrontierHostname(source, graph, queBaStack);
+
+                    // Park the next entry if its host is at the limit, letting
+                    // the entries behind it go, unless too many are parked
+                    if(!fetchPool.hasHostRoom(hostname, hostConnections.get())){
+
+                        if(!fetchPool.canPark()){
+                            break;
+                        }
+
+                        fetchPool.park(hostname, takeFrontierEntry(queBaStack));
+                        continue;
+                    }
+
+                    entry = takeFrontierEntry(queBaStack);
+                }
+
+                dispatchPage(entry, source, graph, fetchPool);
+            }
+
+            inFlightSize.set(fetchPool.size());
+
+            // No pages left to visit or the limits were reached
+            if(fetchPool.size() == 0){
+                break;
+            }
+
+            FetchPool.Fetch fetch = takeFetch(fetchPool);
+
+            if(fetch == null){
+                break; // Drain deadline passed or interrupted
+            }
+
+            WebPage page = fetch.getPage();
+            WebPageIndexer indexer = fetch.getIndexer();
+
+            byteCount.add(indexer.getResponseByteCount());
 
             // Check if the page can be indexed and if its not an invalid url
-            if(!graph.containsInvalidURL(page.getUrl())
-                    && indexer.connectAndRetrieveHtml()
+            if(!graph.containsInvalidURL(fetch.getEntry().getUrlId())
+                    && fetch.isRetrieved()
                     && !includeOnlyAbsoluteLinks(page, graph)){
 
                 // Get the page's links and set the traversal (sequential or random)
@@ -171,7 +370,7 @@ public class WebCrawler {
                 setLinkTraversal(links);
 
                 // Check if the search was found if searching for a term
-                if(enableSearchTerm.get() && indexer.searchTermFound(searchTerm.get())){
+                if(!searchEnded && enableSearchTerm.get() && indexer.searchTermFound(searchTerm.get())){
 
                     // Only index the page without discovering it's links
                     // since the search is ended with the search term found
@@ -180,11 +379,17 @@ public class WebCrawler {
 
                     page.setSearchTermFound(true);
                     queBaStack.clear(); // Clear the structure to end the search
+                    fetchPool.clearParked();
+                    searchEnded = true; // Pages still in flight are only indexed
 
                 } else { // Search term not found or no search was conducted
 
-                    // Maximum page limit / Height reached
-                    if(limitCounter == limit - 1 || page.getHeight() == heightLimit.get()) {
+                    // Maximum page limit / Height reached. With a checkpoint,
+                    // the last page still adds its links to the frontier so
+                    // the crawl can be resumed with a higher limit as if it
+                    // had never stopped.
+                    if(searchEnded || (limitCounter == limit - 1 && checkpoint == null)
+                            || page.getHeight() == heightLimit.get()) {
 
                         // Only index the page without discovering it's links
                         // since the search is ended and only indexing will take
@@ -196,16 +401,31 @@ public class WebCrawler {
 
                         // Index the page and discover it's links
                         indexWebPage(page, indexer, graph);
-                        attachLinks(page, graph, links, false);
+                        IntArray targets = attachLinks(page, graph, links, false);
+
+                        // Add all the links to the processing data structure,
+                        // leaving out URLs already known to be invalid
+                        CrawlEvents.FrontierEvent insertEvent = new CrawlEvents.FrontierEvent();
+                        insertEvent.begin();
+
+                        int inserted = 0;
 
-                        // Add all the links to the processing data structure
-                        for(int i = 0; i < page.getTargetLinkCount(); i++){
-                            queBaStack.insert(page.getTargetLink(i));
+                        for(int i = 0; i < targets.size(); i++){
+
+                            int urlId = targets.get(i);
+
+                            if(!graph.containsInvalidURL(urlId)){
+                                queBaStack.insert(urlId, page.getHeight() + 1, page.getId());
+                                inserted++;
+                            }
                         }
+
+                        commitFrontierEvent(insertEvent, "insert", inserted, queBaStack);
                     }
                 }
 
                 limitCounter++; // Increment maximum search limit
+                pageCount.increment();
 
                 // Send the page to an output if option(s) is enabled
                 processPageOutput(page);
@@ -213,33 +433,201 @@ public class WebCrawler {
             } else { // Invalid URL
 
                 // Add to list of invalid URLs; an error/exception was thrown
-                // connecting to or retrieving its contents.
-                graph.addInvalidURL(page.getUrl());
+                // connecting to or retrieving its contents, or the page was
+                // filtered. URLs already in the list are not added again.
+                InvalidReason reason = indexer.getFailureReason();
+
+                invalidCount.increment();
+                graph.addInvalidURL(page.getUrl(), reason != null ? reason : InvalidReason.FILTERED,
+                        indexer.getStatusCode());
             }
 
             // Optional Delay setting to aid easing detection
             startOptionalDelay();
         }
 
-        closeOutputFile();          // Close file if option enabled
+        fetchPool.close();
+        inFlightSize.set(0);
+
+        // Pages still in flight past a drain deadline, and parked entries,
+        // are put back in the frontier for the final checkpoint
+        for(FrontierEntry entry : fetchPool.getPendingEntries()){
+            queBaStack.insert(entry.getUrlId(), entry.getHeight(), entry.getParentId());
+        }
+
+        closeCheckpoint(checkpoint, graph, queBaStack, limitCounter); // Final checkpoint if option enabled
+        closeOutput();              // Flush outputs and close file if option enabled
+        signalDrained();            // Acknowledge a drain, the pages are all out
+        rankGraph(graph);           // Rank the pages if option(s) enabled
+        analyzeGraph(graph);        // Analyze the graph structure if option enabled
+        writeSnapshot(graph);       // Write the graph snapshot if option enabled
         disabledControllerAccess(); // Shutdown access to the controller if enabled
 
         return graph;
     }
 
+    /**
+     * Takes the next entry from the frontier.
+     * @param queBaStack holding the frontier
+     * @return entry removed from the frontier
+     */
+    private FrontierEntry takeFrontierEntry(QueBaStack queBaStack){
+
+        CrawlEvents.FrontierEvent removeEvent = new CrawlEvents.FrontierEvent();
+        removeEvent.begin();
+
+        FrontierEntry entry = queBaStack.remove();
+        frontierSize.set(queBaStack.size());
+        commitFrontierEvent(removeEvent, "remove", 1, queBaStack);
+
+        return entry;
+    }
+
+    /**
+     * Hands the page of a frontier entry to the fetch pool with an indexer of
+     * its own. A URL already known to be invalid is counted again without
+     * being fetched.
+     * @param entry taken from the frontier
+     * @param source page of the crawl
+     * @param graph of the crawl
+     * @param fetchPool to fetch the page
+     */
+    private void dispatchPage(FrontierEntry entry, WebPage source, WebGraph graph, FetchPool fetchPool){
+
+        if(graph.containsInvalidURL(entry.getUrlId())){
+
+            invalidCount.increment();
+            return;
+        }
+
+        WebPage page = createWebPage(entry, source, graph);
+        fetchPool.submit(entry, page, createIndexer(page));
+    }
+
+    /**
+     * Holds the crawl until the first consumer attaches to the data channel,
+     * unless late attaching consumers are allowed, so no pages are sent
+     * before they can be received. A drain ends the wait.
+     */
+    private void awaitDataConsumer(){
+
+        final long POLL_INTERVAL = 100;
+
+        if(socketSink == null || lateAttach){
+            return;
+        }
+
+        while(drainDeadline.get() == 0 && !Thread.currentThread().isInterrupted()
+                && !socketSink.awaitConsumer(POLL_INTERVAL)){
+            // Checked again for a drain every POLL_INTERVAL
+        }
+    }
+
+    /**
+     * Waits for the next page to finish. While draining, the wait ends at
+     * the drain deadline; otherwise it's checked for every POLL_INTERVAL.
+     * @param fetchPool fetching the pages
+     * @return fetch of the finished page, or null if the drain deadline
+     * passed or the wait was interrupted
+     */
+    private FetchPool.Fetch takeFetch(FetchPool fetchPool){
+
+        final long POLL_INTERVAL = 100;
+
+        while(true){
+
+            long deadline = drainDeadline.get();
+            long timeout = deadline == 0 ? POLL_INTERVAL : deadline - System.currentTimeMillis();
+
+            if(timeout <= 0){
+                return null;
+            }
+
+            FetchPool.Fetch fetch = fetchPool.poll(timeout);
+
+            if(fetch != null || Thread.currentThread().isInterrupted()){
+                return fetch;
+            }
+        }
+    }
+
+    /**
+     * Returns the hostname of the next entry in the frontier, only looked up
+     * if the connections to a host are limited.
+     * @param source page of the crawl
+     * @param graph of the crawl
+     * @param queBaStack holding the frontier
+     * @return hostname of the next entry, or null
+     */
+    private String getFrontierHostname(WebPage source, WebGraph graph, QueBaStack queBaStack){
+
+        if(hostConnections.get() <= 0){
+            return null;
+        }
+
+        return source.getHostName(graph.getURL(queBaStack.get().getUrlId()));
+    }
+
+    /**
+     * Creates an indexer for a page, with the user agent and metrics of the
+     * crawl.
+     * @param page to index
+     * @return indexer set to the page's url
+     */
+    private WebPageIndexer createIndexer(WebPage page){
+
+        WebPageIndexer indexer = new WebPageIndexer();
+
+        defineIndexerUserAgent(indexer);
+        indexer.setMetrics(currentMetrics.get());
+        indexer.setUrl(page.getUrl());
+
+        return indexer;
+    }
+
+    /**
+     * Builds the web page of an entry taken from the frontier, linked from the
+     * page it was found on. The source entry is the crawl's source page.
+     * @param entry taken from the frontier
+     * @param source page of the crawl
+     * @param graph of the crawl
+     * @return web page of the entry
+     */
+    private WebPage createWebPage(FrontierEntry entry, WebPage source, WebGraph graph){
+
+        if(entry.getParentId() == WebPage.UNASSIGNED_ID){
+            return source;
+        }
+
+        WebPage page = new WebPage(graph.getURL(entry.getUrlId()), entry.getHeight());
+        page.addPredecessorLink(new WebLink(graph.getWebPage(entry.getParentId()), page, false));
+
+        return page;
+    }
+
     /**
      * Attaches the given links to the web page object including the target and
      * predecessor links. The boolean option specifies to attach only the
      * backward looking predecessor links , i.e. cyclic and bi-directional.
+     * New links aren't built into pages here; their URL ids are returned for
+     * the frontier and only counted on the source page.
      * @param source page to attach the link to
      * @param graph the page is added to
      * @param links to attach to the given page
      * @param onlyBackwardLinks option to attach all links or backward looking
      *                          links only
+     * @return URL ids of the new links found in the page
      */
-    private void attachLinks(WebPage source, WebGraph graph, ArrayList<String> links,
+    private IntArray attachLinks(WebPage source, WebGraph graph, ArrayList<String> links,
                              boolean onlyBackwardLinks){
 
+        CrawlEvents.AttachLinksEvent event = new CrawlEvents.AttachLinksEvent();
+        event.begin();
+
+        long start = System.nanoTime();
+        int linkCount = links.size();
+        IntArray targets = new IntArray(linkCount);
+
         // Filter absolute or relative links if option is selected
         includeOnlyRelativeLinks(links, source, graph);
 
@@ -248,30 +636,31 @@ public class WebCrawler {
 
             WebPage target = graph.containsWebPage(link);
 
-            // Web Page already exists in the graph, meaning it's cyclic or bi-directional
+            // Web Page already exists in the graph, meaning it's cyclic or bi-directional;
+            // any link back from the target is flagged bi-directional, otherwise a
+            // cyclic link is stored in the graph if enabled
             if(target != null){
 
-                // Add bi-directional link
-                if(WebLink.isBidirectional(source.getPredecessorLinks().get(0), source, target)){
-
-                    source.getPredecessorLinks().get(0).setCyclic(false);
-                    source.getPredecessorLinks().get(0).setBidirectional(true);
-
-                } else if(cyclic.get()){ // Add cyclic link
-
-                    WebLink newLink = new WebLink(source, target, true);
-                    graph.addWebLink(newLink);
-                    source.addPredecessorLink(newLink);
-                }
+                graph.linkToExistingPage(source, target, cyclic.get());
 
             // Add the link to the parent since it's new
             } else if(!onlyBackwardLinks) {
 
-                target = new WebPage(link, (source.getHeight() + 1));
-                target.addPredecessorLink(new WebLink(source, target, false));
-                source.addTargetLink(target);
+                targets.add(graph.internURL(link));
             }
         }
+
+        source.setTargetLinkCount(targets.size());
+        attachTime.recordSince(start);
+
+        if(event.shouldCommit()){
+            event.url = source.getUrl();
+            event.links = linkCount;
+            event.newLinks = targets.size();
+            event.commit();
+        }
+
+        return targets;
     }
 
     /**
@@ -327,14 +716,9 @@ public class WebCrawler {
         indexer.populateWebPageWithIndexedValues(page);
         page.setState(State.INDEXED);
 
-        // Add the page to the graph and set the domain id
-        graph.addWebPage(page);
+        // Set the domain id, then add the page and its predecessor links to the graph
         page.setGroupId(graph.addDomain(page.getHostname()));
-
-        // Add all predecessor links to the graph.
-        for(WebLink webLink: page.getPredecessorLinks()){
-            graph.addWebLink(webLink);
-        }
+        graph.addWebPage(page);
     }
 
     /**
@@ -381,40 +765,297 @@ public class WebCrawler {
     }
 
     /**
-     * Process the output of the web page if any are enabled by the user.
-     * @param page to process
+     * Builds the page output with a sink for each output enabled by the user.
+     * The sinks are written to by a dedicated writer thread so the crawl is
+     * not held up by a slow consumer.
      */
-    private void processPageOutput(WebPage page){
+    private void openOutput(){
+
+        final int FLUSH_BYTES = 65536;
+
+        output = new PageOutput(outputFormat);
+
+        AsyncOutputWriter writer = new AsyncOutputWriter(outputBufferSize, overflowPolicy,
+                flushInterval, FLUSH_BYTES, null);
 
         // Send the page and predecessor links to stdout if option enabled
         if(sendJSONtoStdout){
-            System.out.print(page.toJson());
+            writer.addSink(new StdoutSink());
         }
 
         // Send the page and predecessor link to file is option enabled
-        if (sendJSONtoFile){
-            file.writeJSONToFile(page.toJson());
+        if(sendJSONtoFile){
+
+            file.setRotation(rotateBytes, rotateMillis);
+            file.setSyncPolicy(syncPolicy, syncInterval);
+            file.setLineSeparated(outputFormat == OutputFormat.JSON);
+            file.setCompression(compressionCodec);
+            file.setup();
+
+            writer.addSink(file);
+        }
+
+        // Send the page and predecessor link to the data channel consumers
+        if(socketSink != null){
+            writer.addSink(socketSink);
+        }
+
+        if(sendJSONtoStdout || sendJSONtoFile || socketSink != null){
+            writer.start();
+            output.addSink(writer);
+        }
+    }
+
+    /**
+     * Process the output of the web page if any are enabled by the user. The
+     * page is serialized once and written to every enabled output.
+     * @param page to process
+     */
+    private void processPageOutput(WebPage page){
+
+        CrawlEvents.SerializeEvent event = new CrawlEvents.SerializeEvent();
+        event.begin();
+
+        long start = System.nanoTime();
+        int bytes = output.write(page);
+        serializeTime.recordSince(start);
+
+        if(event.shouldCommit()){
+            event.url = page.getUrl();
+            event.bytes = bytes;
+            event.commit();
         }
     }
 
     /**
-     * Closes the file open used to capture the results of the crawl.
+     * Commits a frontier event if it's enabled.
+     * @param event of the operation
+     * @param operation done on the frontier
+     * @param entries inserted or removed
+     * @param queBaStack holding the frontier
      */
-    private void closeOutputFile(){
+    private void commitFrontierEvent(CrawlEvents.FrontierEvent event, String operation, int entries,
+                                     QueBaStack queBaStack){
+
+        if(event.shouldCommit()){
+            event.operation = operation;
+            event.entries = entries;
+            event.frontierSize = queBaStack.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts a new metrics registry for the crawl, recording the fetch
+     * metrics of the indexers and the crawl's own counters, gauges and
+     * latencies.
+     */
+    private void openMetrics(){
+
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        pageCount = metrics.counter("crawl.pages");
+        byteCount = metrics.counter("crawl.bytes");
+        invalidCount = metrics.counter("crawl.invalid");
+        frontierSize = metrics.gauge("crawl.frontier");
+        inFlightSize = metrics.gauge("crawl.inflight");
+        attachTime = metrics.histogram("crawl.attach");
+        serializeTime = metrics.histogram("output.serialize");
+        checkpointPause = metrics.histogram("checkpoint.pause");
+
+        currentMetrics.set(metrics);
+    }
+
+    /**
+     * Returns the metrics of the current or last crawl.
+     * @return metrics registry of the crawl
+     */
+    public MetricsRegistry getMetrics(){
+
+        return currentMetrics.get();
+    }
+
+    /**
+     * Flushes the outputs and closes the file used to capture the results of
+     * the crawl.
+     */
+    private void closeOutput(){
 
         // Teardown the file if one was created
-        if(sendJSONtoFile){
-            file.teardown();
+        output.close();
+    }
+
+    /**
+     * Ranks the pages of the finished graph with PageRank and/or HITS if
+     * enabled by the user, setting the scores on the pages.
+     * @param graph to rank
+     */
+    private void rankGraph(WebGraph graph){
+
+        if(rankPages || rankHubs){
+
+            LinkAnalysis analysis = new LinkAnalysis();
+            analysis.setDampingFactor(dampingFactor);
+
+            if(rankPages){
+                analysis.rankPages(graph);
+            }
+
+            if(rankHubs){
+                analysis.rankHubsAndAuthorities(graph);
+            }
+        }
+    }
+
+    /**
+     * Analyzes the components, distances and domain subgraphs of the
+     * finished graph if enabled by the user, setting the results on the
+     * pages and domains.
+     * @param graph to analyze
+     */
+    private void analyzeGraph(WebGraph graph){
+
+        if(analyzeStructure){
+            new StructureAnalysis().analyze(graph);
+        }
+    }
+
+    /**
+     * Reads the checkpoint to resume the crawl from if enabled by the user.
+     * The crawl starts from the source URL if it can't be read.
+     * @return checkpoint to restore, or null
+     */
+    private CrawlCheckpoint loadCheckpoint(){
+
+        if(resumeFileName != null){
+
+            try {
+                return CrawlCheckpoint.load(resumeFileName);
+            } catch(IOException e) {
+                System.err.println("Checkpoint " + resumeFileName + " could not be read: " + e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Restores the graph and frontier of the checkpoint. If the checkpoint
+     * can't be restored the frontier is cleared, so the crawl ends with the
+     * pages restored so far and the checkpoint is left as it is.
+     * @param resumed checkpoint to restore
+     * @param graph to restore into
+     * @param queBaStack to restore the frontier into
+     * @return true if the checkpoint was restored and false otherwise
+     */
+    private boolean restoreCheckpoint(CrawlCheckpoint resumed, WebGraph graph, QueBaStack queBaStack){
+
+        try {
+
+            resumed.restore(graph, queBaStack);
+            return true;
+
+        } catch(IOException e) {
+
+            System.err.println("Checkpoint " + resumeFileName + " could not be restored: " + e.getMessage());
+            queBaStack.clear();
+
+            return false;
+        }
+    }
+
+    /**
+     * Opens the checkpoint of the crawl if enabled by the user. Resuming
+     * into the same checkpoint appends to it, otherwise a new checkpoint is
+     * started and the first one written holds the whole graph.
+     * @param resumed checkpoint the crawl was restored from, or null
+     * @param queBaStack holding the frontier
+     * @return checkpoint of the crawl, or null
+     */
+    private CrawlCheckpoint openCheckpoint(CrawlCheckpoint resumed, QueBaStack queBaStack){
+
+        if(checkpointFileName == null){
+            return null;
+        }
+
+        CrawlCheckpoint checkpoint = resumed != null && resumed.isFile(checkpointFileName)
+                ? resumed : new CrawlCheckpoint(checkpointFileName);
+
+        try {
+
+            checkpoint.open(checkpointInterval, queBaStack);
+            return checkpoint;
+
+        } catch(IOException e) {
+
+            System.err.println("Checkpoint " + checkpointFileName + " could not be opened.");
+            return null;
+        }
+    }
+
+    /**
+     * Starts a checkpoint if one is enabled and due, recording how long the
+     * crawl was held up taking it.
+     * @param checkpoint of the crawl, or null
+     * @param graph of the crawl
+     * @param queBaStack holding the frontier
+     * @param fetchPool holding the pages being fetched
+     * @param limitCounter of the crawl
+     */
+    private void startCheckpoint(CrawlCheckpoint checkpoint, WebGraph graph, QueBaStack queBaStack,
+                                 FetchPool fetchPool, int limitCounter){
+
+        if(checkpoint != null){
+
+            long start = System.nanoTime();
+
+            if(checkpoint.checkpointIfDue(graph, queBaStack, fetchPool, limitCounter)){
+                checkpointPause.recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * Writes the final checkpoint of the crawl if enabled, from which it can
+     * be resumed with a higher limit.
+     * @param checkpoint of the crawl, or null
+     * @param graph of the crawl
+     * @param queBaStack holding the frontier
+     * @param limitCounter of the crawl
+     */
+    private void closeCheckpoint(CrawlCheckpoint checkpoint, WebGraph graph, QueBaStack queBaStack,
+                                 int limitCounter){
+
+        if(checkpoint != null){
+            checkpoint.close(graph, queBaStack, limitCounter);
+        }
+    }
+
+    /**
+     * Writes a memory-mappable snapshot of the finished graph if enabled by
+     * the user.
+     * @param graph to write
+     */
+    private void writeSnapshot(WebGraph graph){
+
+        if(snapshotFileName != null){
+
+            try {
+                WebGraphSnapshotWriter.write(graph, snapshotFileName);
+            } catch(IOException e) {
+                System.err.println("Snapshot " + snapshotFileName + " could not be written.");
+            }
         }
     }
 
     /**
      * Start the optional page indexing delay if one was enabled by the user.
+     * The delay is skipped while draining.
      */
     private void startOptionalDelay(){
 
         // Add a delay before processing the next web page
-        if(delay.get() > 0){
+        if(delay.get() > 0 && drainDeadline.get() == 0){
 
             try {
 
@@ -427,21 +1068,54 @@ public class WebCrawler {
         }
     }
 
+    /**
+     * Clears the drain state before a crawl is started.
+     */
+    private void resetDrain(){
+
+        drainDeadline.set(0);
+        drained.set(false);
+    }
+
+    /**
+     * Notifies the controller waiting on a drain that the final checkpoint
+     * is written and the outputs are flushed and closed.
+     */
+    private void signalDrained(){
+
+        synchronized (drained){
+            drained.set(true);
+            drained.notifyAll();
+        }
+    }
+
     /**
      * Notifies the receiving/controlling process the crawl has ended so
      * controller communication between the two processes can end.
      */
     private void disabledControllerAccess(){
 
-        if(isThreadedCrawl){
+        if(isThreadedCrawl && controlServer != null){
 
-            System.out.print("REQ_CONT_SHUTDOWN");
+            // Pages sent to stdout still end with the zero length record
+            if(sendJSONtoStdout && outputFormat == OutputFormat.BINARY){
+                System.out.write(new byte[4], 0, 4);
+                System.out.flush();
+            }
+
+            // Control channel clients are sent an end frame in place of the
+            // message on stdout
+            controlServer.sendEnd();
+
+        } else if(isThreadedCrawl){
 
-            try { // Delay to allow message transfer back through server
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            // Zero length record ends the binary pages before the shutdown request
+            if(outputFormat == OutputFormat.BINARY){
+                System.out.write(new byte[4], 0, 4);
             }
+
+            System.out.print("REQ_CONT_SHUTDOWN");
+            System.out.flush(); // Shutdown request sent before the crawl thread ends
         }
     }
 
@@ -531,7 +1205,6 @@ public class WebCrawler {
             jsonFileName = fileName;
 
             file = new FileProcessor(jsonFileName);
-            file.setup();
 
         } else {
 
@@ -539,6 +1212,190 @@ public class WebCrawler {
         }
     }
 
+    /**
+     * Sets the format pages are written to the outputs in; JSON strings
+     * delimited by "#!#", or length-prefixed binary records which can be
+     * read with a BinaryPageReader.
+     * @param format to write pages in
+     */
+    public void setOutputFormat(OutputFormat format){
+
+        this.outputFormat = format;
+    }
+
+    /**
+     * Sets what happens to pages when the output buffer is full; the crawl
+     * blocks, the pages are dropped or the pages are spilled to disk.
+     * @param policy to use when the output buffer is full
+     */
+    public void setOverflowPolicy(OverflowPolicy policy){
+
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * Sets the number of pages buffered for the output writer thread.
+     * @param size of the output buffer in pages
+     */
+    public void setOutputBufferSize(int size){
+
+        if(size > 0){
+            this.outputBufferSize = size;
+        }
+    }
+
+    /**
+     * Sets the maximum time between flushes of the outputs.
+     * @param interval in milliseconds
+     */
+    public void setFlushInterval(int interval){
+
+        if(interval > 0){
+            this.flushInterval = interval;
+        }
+    }
+
+    /**
+     * Sets the size and age at which the file output is rotated into a new
+     * numbered segment, recorded in a manifest once complete. A value of 0
+     * disables that trigger.
+     * @param megabytes of pages written before the file is rotated
+     * @param seconds since a segment was started before it is rotated
+     */
+    public void setFileRotation(long megabytes, long seconds){
+
+        this.rotateBytes = Math.max(0, megabytes) * 1024 * 1024;
+        this.rotateMillis = Math.max(0, seconds) * 1000;
+    }
+
+    /**
+     * Sets when pages written to the file output are forced to disk.
+     * @param policy NONE, BATCH for once per output batch, or INTERVAL
+     * @param interval in milliseconds between syncs for the INTERVAL policy
+     */
+    public void setSyncPolicy(SyncPolicy policy, long interval){
+
+        this.syncPolicy = policy;
+        this.syncInterval = interval;
+    }
+
+    /**
+     * Sets the codec used to compress the file output, each segment being
+     * compressed on its own. Compression runs on the output writer thread.
+     * @param codec to compress with, or null for no compression
+     */
+    public void setCompression(CompressionCodec codec){
+
+        this.compressionCodec = codec;
+    }
+
+    /**
+     * Sets the file a snapshot of the graph is written to once the crawl has
+     * ended, which can be opened with a WebGraphSnapshot.
+     * @param fileName of the snapshot, or null for no snapshot
+     */
+    public void setSnapshotFile(String fileName){
+
+        this.snapshotFileName = Validation.isValidString(fileName) ? fileName : null;
+    }
+
+    /**
+     * Sets the file the crawl is checkpointed to, which a crashed or stopped
+     * crawl can be resumed from. The graph log is kept in the file and the
+     * frontier and counters in the file followed by ".state".
+     * @param fileName of the checkpoint, or null for no checkpoints
+     */
+    public void setCheckpointFile(String fileName){
+
+        this.checkpointFileName = Validation.isValidString(fileName) ? fileName : null;
+    }
+
+    /**
+     * Sets the time between checkpoints of the crawl. A final checkpoint is
+     * always written when the crawl ends.
+     * @param seconds between checkpoints, or 0 for the final checkpoint only
+     */
+    public void setCheckpointInterval(long seconds){
+
+        this.checkpointInterval = Math.max(0, seconds) * 1000;
+    }
+
+    /**
+     * Sets the checkpoint the crawl is resumed from, restoring its graph,
+     * frontier and limit counter in place of starting from the source URL.
+     * The source URL and traversal type of the checkpoint are used, and the
+     * page limit counts the pages indexed before the checkpoint.
+     * @param fileName of the checkpoint, or null to start from the source URL
+     */
+    public void setResumeFile(String fileName){
+
+        this.resumeFileName = Validation.isValidString(fileName) ? fileName : null;
+    }
+
+    /**
+     * Sets whether the crawl starts before a consumer has attached to the
+     * data channel of the socket transport. The pages written before a
+     * consumer attaches are then lost.
+     * @param lateAttach true to start the crawl straight away and false to
+     *                   wait for the first consumer
+     */
+    public void setLateAttach(boolean lateAttach){
+
+        this.lateAttach = lateAttach;
+    }
+
+    /**
+     * Sets the port of the socket transport's control channel, the data
+     * channel listens on the port after it. Both listen on the loopback
+     * address only. A port of 0 controls the crawl over stdin/stdout.
+     * @param port of the control channel, or 0 to disable the sockets
+     */
+    public void setSocketPort(int port){
+
+        this.socketPort = port > 0 && port < 65535 ? port : 0;
+    }
+
+    /**
+     * Sets whether the pages are ranked with PageRank once the crawl has
+     * ended.
+     * @param rankPages true to compute PageRank
+     */
+    public void setPageRank(boolean rankPages){
+
+        this.rankPages = rankPages;
+    }
+
+    /**
+     * Sets the probability of following a link rather than jumping to a
+     * random page when the pages are ranked with PageRank.
+     * @param dampingFactor between 0 and 1
+     */
+    public void setDampingFactor(double dampingFactor){
+
+        this.dampingFactor = dampingFactor >= 0 && dampingFactor <= 1
+                ? dampingFactor : LinkAnalysis.DEFAULT_DAMPING_FACTOR;
+    }
+
+    /**
+     * Sets whether the pages are scored as hubs and authorities with HITS
+     * once the crawl has ended.
+     * @param rankHubs true to compute HITS
+     */
+    public void setHits(boolean rankHubs){
+
+        this.rankHubs = rankHubs;
+    }
+
+    /**
+     * Sets whether the structure of the graph is analyzed once the crawl has
+     * ended, finding the components of the pages and domains.
+     * @param analyzeStructure true to analyze the graph structure
+     */
+    public void setStructureAnalysis(boolean analyzeStructure){
+
+        this.analyzeStructure = analyzeStructure;
+    }
+
     /**
      * Sets the JSON file output to false.
      */
@@ -619,6 +1476,49 @@ public class WebCrawler {
         }
     }
 
+    /**
+     * Sets the number of workers fetching pages at the same time. Pages are
+     * still indexed, and their links added to the frontier, one at a time
+     * in the order they finish.
+     * @param workers fetching pages, at least 1
+     */
+    public void setWorkers(int workers){
+
+        this.workers.set(Math.max(1, workers));
+    }
+
+    /**
+     * Sets the number of pages fetched from a host at the same time. The
+     * pages of a host at its limit are parked in the fetch pool, up to
+     * FetchPool.MAX_PARKED, while the pages of other hosts carry on, and go
+     * first once their host has room.
+     * @param connections to a host, or 0 for no limit
+     */
+    public void setHostConnections(int connections){
+
+        this.hostConnections.set(Math.max(0, connections));
+    }
+
+    /**
+     * Sets the number of threads parsing the fetched pages, leaving the
+     * workers free to fetch the next pages.
+     * @param parseThreads parsing pages, or 0 to parse on the workers
+     */
+    public void setParseThreads(int parseThreads){
+
+        this.parseThreads.set(Math.max(0, parseThreads));
+    }
+
+    /**
+     * Returns the rate limiter applied to each page fetch, allowing the
+     * global, per-host and per-domain group limits to be set.
+     * @return crawl rate limiter
+     */
+    public RateLimiter getRateLimiter(){
+
+        return rateLimiter;
+    }
+
     /**
      * Sets the cyclic / acyclic graph type based on the parameter
      * @param cyclic type selected
@@ -1,18 +1,28 @@
 package Crawler;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // Object to JSON Conversion Imports
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
  * Graph of the web built by a web crawler. Contents of the graph include
- * the web pages, link and domains. The graph is stored in an adjacency list
- * for the web pages. The links are maintained separately in their own list
- * to allow a specific data structure that supports the intended output.
+ * the web pages, link and domains. The links are stored in a primitive
+ * graph core, with pages as nodes numbered by the order they were added, and
+ * WebLink views of them are built on demand. Links are also indexed by
+ * their source and target page ids, so a link between two pages is found
+ * without scanning. Compressed sparse row adjacencies of the links can be
+ * taken from the graph for analysis. URLs are interned in an off-heap arena,
+ * and pages and invalid URLs are found through the URL's id in it.
+ *
+ * Pages, links, domains and invalid URLs are added under the graph's lock,
+ * so an exporter on another thread can copy them out in chunks while the
+ * crawl continues. Counts of the graph are kept in its statistics as it
+ * grows, so they can be read at any time without scanning the graph. Links
+ * whose flags change are logged, so a checkpoint only copies out what was
+ * added or changed since the last one.
  *
  * @author Seth Dovgan
  * @version 18JAN19
@@ -21,15 +31,34 @@ public class WebGraph {
 
     @JsonIgnore
     private int domainIDCounter = 0; // Used to keep track of each domain
+    @JsonIgnore
+    private final AtomicInteger pageIDCounter = new AtomicInteger(0); // Ids of the pages added
 
     @JsonIgnore
     private WebPage source;
     private ArrayList<WebPage> pages;
-    private ArrayList<WebLink> links;
+    @JsonIgnore
+    private GraphCore core;
+    @JsonIgnore
+    private EdgeIndex edges;
     @JsonIgnore
     private ArrayList<Domain> domains;
     @JsonIgnore
     private ArrayList<String> invalidURLs;
+    @JsonIgnore
+    private ArrayList<InvalidURL> invalidURLRecords;
+    @JsonIgnore
+    private UrlArena urls;
+    @JsonIgnore
+    private IntArray urlPages;   // Index of the first page of each URL id
+    @JsonIgnore
+    private IntArray urlInvalid; // Index of the invalid URL record of each URL id
+    @JsonIgnore
+    private IntArray changedLinks; // Index of each link whose flags changed, in order
+    @JsonIgnore
+    private GraphStatistics statistics;
+    @JsonIgnore
+    private volatile WebPage searchTermPage;
 
     /**
      * Constructor - builds a empty graph and sets the source page in the graph.
@@ -39,9 +68,25 @@ public class WebGraph {
 
         this.source = source;
         this.pages = new ArrayList<WebPage>();
-        this.links = new ArrayList<WebLink>();
+        this.core = new GraphCore();
+        this.edges = new EdgeIndex();
         this.domains = new ArrayList<Domain>();
         this.invalidURLs = new ArrayList<String>();
+        this.invalidURLRecords = new ArrayList<InvalidURL>();
+        this.urls = new UrlArena(true);
+        this.urlPages = new IntArray(1024);
+        this.urlInvalid = new IntArray(1024);
+        this.changedLinks = new IntArray(1024);
+        this.statistics = new GraphStatistics();
+    }
+
+    /**
+     * Returns the statistics of the graph, updated as the graph grows.
+     * @return graph's statistics
+     */
+    public GraphStatistics getStatistics(){
+
+        return statistics;
     }
 
     /**
@@ -63,30 +108,475 @@ public class WebGraph {
     }
 
     /**
-     * Adds the given web page to the graph.
+     * Adds the given web page to the graph, along with its predecessor links
+     * whose pages are both in the graph. The page is given the next dense
+     * id of the graph, so only pages admitted to the graph use up ids. The
+     * page is counted in the domain of its group id, so the id should be set
+     * before it is added.
      * @param page to add to the graph
      */
-    public void addWebPage(WebPage page){
+    public synchronized void addWebPage(WebPage page){
 
         pages.add(page);
+        statistics.pageAdded(page.getGroupId(), page.getHeight());
+        page.attach(this, core.addNode(), pageIDCounter.getAndIncrement());
+
+        int urlId = internURL(page.getUrl());
+
+        if(urlPages.get(urlId) == GraphCore.NONE){
+            urlPages.set(urlId, page.getNodeIndex());
+        }
+    }
+
+    /**
+     * Returns the web page at the given index in the graph.
+     * @param index of the web page
+     * @return web page at the index
+     */
+    public synchronized WebPage getWebPage(int index){
+
+        return pages.get(index);
+    }
+
+    /**
+     * Returns the number of web pages in the graph.
+     * @return number of web pages in the graph
+     */
+    public synchronized int getWebPageCount(){
+
+        return pages.size();
+    }
+
+    /**
+     * Copies web pages into the chunk, starting from the given page index.
+     * @param from index of the first page to copy
+     * @param chunk to copy the pages into
+     * @return number of pages copied
+     */
+    public synchronized int copyWebPages(int from, WebPage[] chunk){
+
+        return copy(pages, from, chunk);
+    }
+
+    /**
+     * Copies the source id, target id and flags (1 cyclic, 2 bidirectional)
+     * of links into the chunks, starting from the given link index.
+     * @param from index of the first link to copy
+     * @param sourceIds chunk to copy the source page ids into
+     * @param targetIds chunk to copy the target page ids into
+     * @param flags chunk to copy the link flags into
+     * @return number of links copied
+     */
+    public synchronized int copyWebLinks(int from, int[] sourceIds, int[] targetIds, byte[] flags){
+
+        int count = Math.max(0, Math.min(sourceIds.length, core.getLinkCount() - from));
+
+        for(int i = 0; i < count; i++){
+
+            int link = from + i;
+
+            sourceIds[i] = pages.get(core.getSource(link)).getId();
+            targetIds[i] = pages.get(core.getTarget(link)).getId();
+            flags[i] = (byte) ((core.isCyclic(link) ? BinaryPageCodec.CYCLIC : 0)
+                    | (core.isBidirectional(link) ? BinaryPageCodec.BIDIRECTIONAL : 0));
+        }
+
+        return count;
     }
 
     /**
-     * Returns a list of links in the graph.
+     * Copies the page ids of the pages listing links as predecessor links
+     * into the chunk, starting from the given link index.
+     * @param from index of the first link to copy
+     * @param ownerIds chunk to copy the owner page ids into, NONE for a link
+     *                 not listed by a page
+     * @return number of links copied
+     */
+    synchronized int copyLinkOwners(int from, int[] ownerIds){
+
+        int count = Math.max(0, Math.min(ownerIds.length, core.getLinkCount() - from));
+
+        for(int i = 0; i < count; i++){
+
+            int owner = core.getOwner(from + i);
+            ownerIds[i] = owner == GraphCore.NONE ? GraphCore.NONE : pages.get(owner).getId();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of link flag changes logged.
+     * @return changed link count
+     */
+    synchronized int getChangedLinkCount(){
+
+        return changedLinks.size();
+    }
+
+    /**
+     * Copies the index and current flags (1 cyclic, 2 bidirectional) of
+     * logged link flag changes into the chunks, starting from the given
+     * change.
+     * @param from index of the first change to copy
+     * @param links chunk to copy the link indexes into
+     * @param flags chunk to copy the link flags into
+     * @return number of changes copied
+     */
+    synchronized int copyChangedLinks(int from, int[] links, byte[] flags){
+
+        int count = Math.max(0, Math.min(links.length, changedLinks.size() - from));
+
+        for(int i = 0; i < count; i++){
+
+            int link = changedLinks.get(from + i);
+
+            links[i] = link;
+            flags[i] = (byte) ((core.isCyclic(link) ? BinaryPageCodec.CYCLIC : 0)
+                    | (core.isBidirectional(link) ? BinaryPageCodec.BIDIRECTIONAL : 0));
+        }
+
+        return count;
+    }
+
+    /**
+     * Copies domains into the chunk, starting from the given domain index.
+     * @param from index of the first domain to copy
+     * @param chunk to copy the domains into
+     * @return number of domains copied
+     */
+    public synchronized int copyDomains(int from, Domain[] chunk){
+
+        return copy(domains, from, chunk);
+    }
+
+    /**
+     * Copies invalid URLs into the chunk, starting from the given index.
+     * @param from index of the first invalid URL to copy
+     * @param chunk to copy the invalid URLs into
+     * @return number of invalid URLs copied
+     */
+    public synchronized int copyInvalidURLs(int from, String[] chunk){
+
+        return copy(invalidURLs, from, chunk);
+    }
+
+    /**
+     * Copies invalid URL records into the chunk, starting from the given
+     * index.
+     * @param from index of the first invalid URL record to copy
+     * @param chunk to copy the records into
+     * @return number of records copied
+     */
+    synchronized int copyInvalidURLRecords(int from, InvalidURL[] chunk){
+
+        return copy(invalidURLRecords, from, chunk);
+    }
+
+    /**
+     * Copies elements of the list into the chunk. Must be called holding the
+     * graph's lock.
+     * @param list to copy from
+     * @param from index of the first element to copy
+     * @param chunk to copy the elements into
+     * @param <T> type of the elements
+     * @return number of elements copied
+     */
+    private static <T> int copy(ArrayList<T> list, int from, T[] chunk){
+
+        int count = Math.max(0, Math.min(chunk.length, list.size() - from));
+
+        for(int i = 0; i < count; i++){
+            chunk[i] = list.get(from + i);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a list of views of the links in the graph, built on each call.
      * @return graph's list of links
      */
-    public ArrayList<WebLink> getWebLinks(){
+    public synchronized ArrayList<WebLink> getWebLinks(){
 
-        return links;
+        ArrayList<WebLink> views = new ArrayList<WebLink>(core.getLinkCount());
+
+        for(int i = 0; i < core.getLinkCount(); i++){
+            views.add(new WebLink(this, i));
+        }
+
+        return views;
+    }
+
+    /**
+     * Returns a view of the link at the given index in the graph.
+     * @param index of the link
+     * @return link at the index
+     */
+    public synchronized WebLink getWebLink(int index){
+
+        return new WebLink(this, index);
+    }
+
+    /**
+     * Adds the given web link to the graph. Both of its pages must already
+     * be in the graph, and the link becomes a view of the stored link.
+     * @param link to add to the graph
+     * @return true if the link was added and false otherwise
+     */
+    public synchronized boolean addWebLink(WebLink link){
+
+        return addLink(link, GraphCore.NONE);
     }
 
     /**
-     * Adds the given web link to the graph.
+     * Adds the link to the graph as a predecessor link of the page at the
+     * node index.
      * @param link to add to the graph
+     * @param owner node index of the page listing the link
+     * @return true if the link was added and false otherwise
      */
-    public void addWebLink(WebLink link){
+    synchronized boolean addOwnedLink(WebLink link, int owner){
 
-        links.add(link);
+        return addLink(link, owner);
+    }
+
+    /**
+     * Stores the link in the core if both its pages are in the graph, then
+     * makes it a view of the stored link. Must be called holding the lock.
+     * @param link to add
+     * @param owner node index of the page listing the link, or NONE
+     * @return true if the link was added and false otherwise
+     */
+    private boolean addLink(WebLink link, int owner){
+
+        WebPage source = link.getSource();
+        WebPage target = link.getTarget();
+
+        if(source == null || target == null || source.getGraph() != this || target.getGraph() != this){
+            return false;
+        }
+
+        int index = core.addLink(source.getNodeIndex(), target.getNodeIndex(),
+                link.isCyclic(), link.isBidirectional(), owner);
+
+        edges.putIfAbsent(EdgeIndex.key(source.getId(), target.getId()), index);
+        statistics.linkAdded(link.isCyclic(), link.isBidirectional());
+        link.bind(this, index);
+
+        return true;
+    }
+
+    /**
+     * Restores a link copied out of the graph by a checkpoint. Both of its
+     * pages, and its owner, must already be restored.
+     * @param sourceId of the link's source page
+     * @param targetId of the link's target page
+     * @param flags of the link (1 cyclic, 2 bidirectional)
+     * @param ownerId of the page listing the link, or NONE
+     */
+    synchronized void restoreLink(int sourceId, int targetId, byte flags, int ownerId){
+
+        boolean isCyclic = (flags & BinaryPageCodec.CYCLIC) != 0;
+        boolean isBidirectional = (flags & BinaryPageCodec.BIDIRECTIONAL) != 0;
+
+        int owner = ownerId == GraphCore.NONE ? GraphCore.NONE : pages.get(ownerId).getNodeIndex();
+        int index = core.addLink(pages.get(sourceId).getNodeIndex(), pages.get(targetId).getNodeIndex(),
+                isCyclic, isBidirectional, owner);
+
+        edges.putIfAbsent(EdgeIndex.key(sourceId, targetId), index);
+        statistics.linkAdded(isCyclic, isBidirectional);
+    }
+
+    /**
+     * Restores a link flag change copied out of the graph by a checkpoint,
+     * logging it again so the restored log matches the checkpoint's.
+     * @param link index
+     * @param flags of the link (1 cyclic, 2 bidirectional)
+     */
+    synchronized void restoreLinkFlags(int link, byte flags){
+
+        boolean isCyclic = (flags & BinaryPageCodec.CYCLIC) != 0;
+        boolean isBidirectional = (flags & BinaryPageCodec.BIDIRECTIONAL) != 0;
+
+        if(core.isCyclic(link) != isCyclic){
+            core.setCyclic(link, isCyclic);
+            statistics.cyclicChanged(isCyclic);
+        }
+
+        if(core.isBidirectional(link) != isBidirectional){
+            core.setBidirectional(link, isBidirectional);
+            statistics.bidirectionalChanged(isBidirectional);
+        }
+
+        changedLinks.add(link);
+    }
+
+    /**
+     * Returns views of the predecessor links listed by the page at the node
+     * index.
+     * @param node index of the page
+     * @return predecessor links of the page
+     */
+    synchronized ArrayList<WebLink> getOwnedLinks(int node){
+
+        ArrayList<WebLink> views = new ArrayList<WebLink>(core.getOwnedCount(node));
+
+        for(int link = core.getFirstOwned(node); link != GraphCore.NONE; link = core.getNextOwned(link)){
+            views.add(new WebLink(this, link));
+        }
+
+        return views;
+    }
+
+    /**
+     * Returns the number of predecessor links listed by the page at the node
+     * index.
+     * @param node index of the page
+     * @return predecessor link count of the page
+     */
+    synchronized int getOwnedLinkCount(int node){
+
+        return core.getOwnedCount(node);
+    }
+
+    /**
+     * Returns a view of a predecessor link listed by the page at the node
+     * index.
+     * @param node index of the page
+     * @param index of the link within the page's links
+     * @return predecessor link of the page
+     */
+    synchronized WebLink getOwnedLink(int node, int index){
+
+        int link = core.getFirstOwned(node);
+
+        for(int i = 0; i < index; i++){
+            link = core.getNextOwned(link);
+        }
+
+        return new WebLink(this, link);
+    }
+
+    /**
+     * Returns the source page of the link at the index.
+     * @param link index
+     * @return source page
+     */
+    public synchronized WebPage getLinkSource(int link){
+
+        return pages.get(core.getSource(link));
+    }
+
+    /**
+     * Returns the target page of the link at the index.
+     * @param link index
+     * @return target page
+     */
+    public synchronized WebPage getLinkTarget(int link){
+
+        return pages.get(core.getTarget(link));
+    }
+
+    /**
+     * Links the source page to a target page already in the graph. Any link
+     * back from the target to the source, the source's parent link or
+     * otherwise, is flagged bidirectional, and counted once however many
+     * times it's found. Without a link back, a cyclic link from the source
+     * is added if cyclic links are kept.
+     * @param source page being indexed, already in the graph
+     * @param target page linked to, already in the graph
+     * @param keepCyclic whether a cyclic link is added without a link back
+     * @return true if a link back was flagged bidirectional and false
+     * otherwise
+     */
+    public synchronized boolean linkToExistingPage(WebPage source, WebPage target, boolean keepCyclic){
+
+        WebLink backLink = containsWebLink(target.getId(), source.getId());
+
+        if(backLink != null){
+
+            backLink.setCyclic(false);
+            backLink.setBidirectional(true);
+
+            return true;
+        }
+
+        if(keepCyclic){
+            source.addPredecessorLink(new WebLink(source, target, true));
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns whether the link at the index is cyclic.
+     * @param link index
+     * @return true if cyclic and false otherwise
+     */
+    public synchronized boolean isLinkCyclic(int link){
+
+        return core.isCyclic(link);
+    }
+
+    /**
+     * Sets whether the link at the index is cyclic.
+     * @param link index
+     * @param isCyclic value to set
+     */
+    public synchronized void setLinkCyclic(int link, boolean isCyclic){
+
+        if(core.isCyclic(link) != isCyclic){
+
+            core.setCyclic(link, isCyclic);
+            statistics.cyclicChanged(isCyclic);
+            changedLinks.add(link);
+        }
+    }
+
+    /**
+     * Returns whether the link at the index is bidirectional.
+     * @param link index
+     * @return true if bidirectional and false otherwise
+     */
+    public synchronized boolean isLinkBidirectional(int link){
+
+        return core.isBidirectional(link);
+    }
+
+    /**
+     * Sets whether the link at the index is bidirectional.
+     * @param link index
+     * @param isBidirectional value to set
+     */
+    public synchronized void setLinkBidirectional(int link, boolean isBidirectional){
+
+        if(core.isBidirectional(link) != isBidirectional){
+
+            core.setBidirectional(link, isBidirectional);
+            statistics.bidirectionalChanged(isBidirectional);
+            changedLinks.add(link);
+        }
+    }
+
+    /**
+     * Returns the forward adjacency of the graph, from each page index to
+     * the page indexes its links point to.
+     * @return forward adjacency
+     */
+    public synchronized CsrAdjacency getForwardAdjacency(){
+
+        return core.getForwardAdjacency();
+    }
+
+    /**
+     * Returns the reverse adjacency of the graph, from each page index to
+     * the page indexes of the links pointing to it.
+     * @return reverse adjacency
+     */
+    public synchronized CsrAdjacency getReverseAdjacency(){
+
+        return core.getReverseAdjacency();
     }
 
     /**
@@ -115,7 +605,7 @@ public class WebGraph {
      * @param domainName to add to the graph
      * @return domain's id
      */
-    public int addDomain(String domainName){
+    public synchronized int addDomain(String domainName){
 
         // Search through all the graph's domains
         for (Domain domain : domains) {
@@ -163,12 +653,108 @@ public class WebGraph {
     }
 
     /**
-     * Add an invalid URL to the list.
+     * Add an invalid URL to the list, without a known reason.
      * @param url to add to the invalid URL list
      */
     public void addInvalidURL(String url){
 
+        addInvalidURL(url, InvalidReason.UNKNOWN, InvalidURL.NO_STATUS_CODE);
+    }
+
+    /**
+     * Adds an invalid URL to the list and registers why it failed. URLs
+     * already registered, ignoring ASCII case, are not added again.
+     * @param url to add to the invalid URL list
+     * @param reason the URL failed
+     * @param statusCode of the response or NO_STATUS_CODE if there was none
+     * @return true if the URL was added and false if it was already registered
+     */
+    public synchronized boolean addInvalidURL(String url, InvalidReason reason, int statusCode){
+
+        int urlId = internURL(url);
+
+        if(urlInvalid.get(urlId) != GraphCore.NONE){
+            return false;
+        }
+
+        urlInvalid.set(urlId, invalidURLRecords.size());
+        invalidURLRecords.add(new InvalidURL(url, reason, statusCode));
         invalidURLs.add(url);
+        statistics.invalidURLAdded();
+
+        return true;
+    }
+
+    /**
+     * Restores an invalid URL record copied out of the graph by a checkpoint,
+     * keeping the time it failed.
+     * @param record of the invalid URL
+     */
+    synchronized void restoreInvalidURL(InvalidURL record){
+
+        int urlId = internURL(record.getUrl());
+
+        if(urlInvalid.get(urlId) == GraphCore.NONE){
+
+            urlInvalid.set(urlId, invalidURLRecords.size());
+            invalidURLRecords.add(record);
+            invalidURLs.add(record.getUrl());
+            statistics.invalidURLAdded();
+        }
+    }
+
+    /**
+     * Returns the registered failure of the URL, ignoring ASCII case.
+     * @param url to look up
+     * @return invalid URL record or null if the URL isn't registered
+     */
+    public synchronized InvalidURL getInvalidURL(String url){
+
+        int urlId = urls.find(url);
+
+        if(urlId == UrlArena.NONE || urlInvalid.get(urlId) == GraphCore.NONE){
+            return null;
+        }
+
+        return invalidURLRecords.get(urlInvalid.get(urlId));
+    }
+
+    /**
+     * Returns the id of the URL in the graph's URL arena, adding it if it's
+     * new. URLs differing only in ASCII case share an id.
+     * @param url to intern
+     * @return id of the URL
+     */
+    public synchronized int internURL(String url){
+
+        int urlId = urls.intern(url);
+
+        // Give new ids an empty entry in the id indexes
+        while(urlPages.size() <= urlId){
+            urlPages.add(GraphCore.NONE);
+            urlInvalid.add(GraphCore.NONE);
+        }
+
+        return urlId;
+    }
+
+    /**
+     * Returns the URL of an id in the graph's URL arena.
+     * @param urlId of the URL
+     * @return URL of the id
+     */
+    public String getURL(int urlId){
+
+        return urls.get(urlId);
+    }
+
+    /**
+     * Returns the number of distinct URLs in the graph's URL arena.
+     * @return URL count
+     */
+    public int getURLCount(){
+
+        return urls.size();
     }
 
 
@@ -178,18 +764,15 @@ public class WebGraph {
      * @param url to check for it's existence in the graph
      * @return a matching web page if it exists or null otherwise
      */
-    public WebPage containsWebPage(String url){
+    public synchronized WebPage containsWebPage(String url){
 
-        // Search through all the web pages and check for a url match
-        for (WebPage page : pages) {
+        int urlId = urls.find(url);
 
-            // If a match is found, return the page
-            if (page.getUrl().toLowerCase().compareTo(url.toLowerCase()) == 0) {
-                return page;
-            }
+        if(urlId == UrlArena.NONE || urlPages.get(urlId) == GraphCore.NONE){
+            return null; // No match was found, return null
         }
 
-        return null; // No match was found, return null
+        return pages.get(urlPages.get(urlId));
     }
 
     /**
@@ -199,18 +782,11 @@ public class WebGraph {
      * @param targetId to look for in the links
      * @return a matching link if it exists or null otherwise
      */
-    public WebLink containsWebLink(int sourceId, int targetId){
+    public synchronized WebLink containsWebLink(int sourceId, int targetId){
 
-        // Search through all the web links and check for an id match
-        for (WebLink link : links) {
+        int link = edges.get(EdgeIndex.key(sourceId, targetId));
 
-            // If a match is found, return the link
-            if (link.getSourceId() == sourceId && link.getTargetId() == targetId) {
-                return link;
-            }
-        }
-
-        return null; // No match was found, return null
+        return link == EdgeIndex.NONE ? null : new WebLink(this, link);
     }
 
     /**
@@ -219,15 +795,22 @@ public class WebGraph {
      * @param url to check for its existence in the invalid urls list
      * @return true if it exists and false otherwise
      */
-    public boolean containsInvalidURL(String url){
+    public synchronized boolean containsInvalidURL(String url){
 
-        for(String string : invalidURLs){
-            if(string.toLowerCase().compareTo(url.toLowerCase()) == 0){
-                return true;
-            }
-        }
+        int urlId = urls.find(url);
 
-        return false;
+        return urlId != UrlArena.NONE && urlInvalid.get(urlId) != GraphCore.NONE;
+    }
+
+    /**
+     * Checks if the URL of an id in the graph's URL arena is in the invalid
+     * URL list.
+     * @param urlId of the URL
+     * @return true if it exists and false otherwise
+     */
+    public synchronized boolean containsInvalidURL(int urlId){
+
+        return urlInvalid.get(urlId) != GraphCore.NONE;
     }
 
     /**
@@ -236,7 +819,7 @@ public class WebGraph {
      */
     public int getLinkCount() {
 
-        return links.size();
+        return (int) statistics.getLinkCount();
     }
 
     /**
@@ -245,7 +828,7 @@ public class WebGraph {
      */
     public int getAcyclicLinkCount(){
 
-        return links.size() - getCyclicLinkCount();
+        return (int) statistics.getAcyclicLinkCount();
     }
 
     /**
@@ -254,18 +837,7 @@ public class WebGraph {
      */
     public int getCyclicLinkCount(){
 
-        int counter = 0;
-
-        // Search through all the links
-        for(WebLink link: links){
-
-            // If it's cyclic, count it
-            if(link.isCyclic()){
-                counter++;
-            }
-        }
-
-        return counter;
+        return (int) statistics.getCyclicLinkCount();
     }
 
     /**
@@ -274,25 +846,14 @@ public class WebGraph {
      */
     public int getBidirectionalLinkCount(){
 
-        int counter = 0;
-
-        // Search through all the links
-        for(WebLink link: links){
-
-            // If it's bi-directional, count it
-            if(link.isBidirectional()){
-                counter++;
-            }
-        }
-
-        return counter;
+        return (int) statistics.getBidirectionalLinkCount();
     }
 
     /**
      * Returns the number of domains in the graph
      * @return number of domains in the graph
      */
-    public int getDomainCount(){
+    public synchronized int getDomainCount(){
 
         return domains.size();
     }
@@ -303,7 +864,7 @@ public class WebGraph {
      */
     public int getInvalidURLCount() {
 
-        return invalidURLs.size();
+        return (int) statistics.getInvalidURLCount();
     }
 
     /**
@@ -313,16 +874,35 @@ public class WebGraph {
      */
     public WebPage searchTermFoundIn(){
 
-        // Search through all the web pages
-        for(WebPage page: pages){
+        return searchTermPage;
+    }
+
+    /**
+     * Records a change of whether the search term was found in a page of the
+     * graph. If the recorded page no longer has the term, the graph is
+     * searched for another page that does.
+     * @param page whose search term result changed
+     */
+    synchronized void searchTermChanged(WebPage page){
+
+        if(Boolean.TRUE.equals(page.searchTermFound())){
 
-            // If the term was found in this web page, return it
-            if(page.searchTermFound()){
-                return page;
+            if(searchTermPage == null || searchTermPage.getNodeIndex() > page.getNodeIndex()){
+                searchTermPage = page;
             }
-        }
 
-        return null;
+        } else if(searchTermPage == page){
+
+            searchTermPage = null;
+
+            for(WebPage other : pages){
+
+                if(Boolean.TRUE.equals(other.searchTermFound())){
+                    searchTermPage = other;
+                    break;
+                }
+            }
+        }
     }
 
     /**
@@ -333,9 +913,6 @@ public class WebGraph {
 
         System.out.println("\n###    INFORMATION TRANSMISSION SEQUENCE    ###\n");
 
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
-
         // Print each web pages indexed in the sequence it was indexed
         for(int i = 0; i < pages.size(); i++){
 
@@ -343,7 +920,7 @@ public class WebGraph {
 
             try {
 
-                System.out.println(mapper.writeValueAsString(pages.get(i)));
+                System.out.println(JsonWriters.PRETTY_PAGE.writeValueAsString(pages.get(i)));
 
             } catch (JsonProcessingException e) {
 
@@ -360,16 +937,13 @@ public class WebGraph {
 
         System.out.println("\n###    COMPLETE GRAPH    ###\n");
 
-        System.out.println("Number of Pages: " + pages.size());
-        System.out.println("Number of Domains: " + domains.size());
-        System.out.println("Number of Invalid URLs: " + invalidURLs.size());
-        System.out.println("Number of Links: " + links.size());
-
-        int cyclicLinkCount = getCyclicLinkCount();
-
-        System.out.println("Number of Acyclic Links: " + (links.size() - cyclicLinkCount));
-        System.out.println("Number of Cyclic Links: " + cyclicLinkCount);
-        System.out.println("Number of Bidirectional Links: " + getBidirectionalLinkCount());
+        System.out.println("Number of Pages: " + statistics.getPageCount());
+        System.out.println("Number of Domains: " + getDomainCount());
+        System.out.println("Number of Invalid URLs: " + statistics.getInvalidURLCount());
+        System.out.println("Number of Links: " + statistics.getLinkCount());
+        System.out.println("Number of Acyclic Links: " + statistics.getAcyclicLinkCount());
+        System.out.println("Number of Cyclic Links: " + statistics.getCyclicLinkCount());
+        System.out.println("Number of Bidirectional Links: " + statistics.getBidirectionalLinkCount());
 
         WebPage page = searchTermFoundIn();
 
@@ -393,7 +967,7 @@ public class WebGraph {
 
         System.out.println("\nWeb Links\n");
 
-        for (WebLink link : links) {
+        for (WebLink link : getWebLinks()) {
             System.out.println("\t" + link.toString());
         }
 
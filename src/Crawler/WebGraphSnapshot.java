@@ -0,0 +1,616 @@
+package Crawler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read only view of a web graph snapshot written by WebGraphSnapshotWriter.
+ * The file is memory-mapped and every query reads straight from the mapping,
+ * so opening a snapshot only reads its header no matter how large the graph
+ * is. Strings are decoded from the string heap when they are asked for.
+ *
+ * Pages, links, domains and invalid URLs are addressed by their index in the
+ * snapshot, which is their position in the graph's lists. Page ids are mapped
+ * to indexes with indexOfId(), and URLs with indexOfUrl().
+ *
+ * # File Layout (big-endian):
+ * Header: magic, version, counts, source index and the offset of each column
+ * Page columns: id, url, hostname, groupId, title, userAgent, height, flags,
+ *     wordCount, charCount, byteCount, numberOfImages, targetLinkCount,
+ *     keyword offsets
+ * Keywords: string ids of every page's keywords
+ * Page id order: page indexes sorted by page id
+ * URL index: open addressing table of page index + 1 by lower case URL hash
+ * Link columns: source id, target id, flags (1 cyclic, 2 bidirectional)
+ * Domain columns: id, name
+ * Invalid URLs: string ids
+ * String offsets and string heap: UTF-8 bytes of every distinct string
+ *
+ * Columns start on 8 byte boundaries. Strings are referred to by id, with -1
+ * for null. The IP address of a page is not stored since it's resolved
+ * through DNS each time it's asked for.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class WebGraphSnapshot implements Closeable {
+
+    static final int MAGIC = 0x57475350; // "WGSP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 256;
+
+    // Page flag bits
+    static final byte SEARCH_TERM_FOUND = 1;
+    static final byte SEARCH_TERM_NULL = 2;
+    static final byte DEAD_END = 4;
+
+    // Column offsets, in header order after the counts
+    static final int PAGE_ID = 0;
+    static final int PAGE_URL = 1;
+    static final int PAGE_HOSTNAME = 2;
+    static final int PAGE_GROUP_ID = 3;
+    static final int PAGE_TITLE = 4;
+    static final int PAGE_USER_AGENT = 5;
+    static final int PAGE_HEIGHT = 6;
+    static final int PAGE_FLAGS = 7;
+    static final int PAGE_WORD_COUNT = 8;
+    static final int PAGE_CHAR_COUNT = 9;
+    static final int PAGE_BYTE_COUNT = 10;
+    static final int PAGE_IMAGES = 11;
+    static final int PAGE_TARGET_LINKS = 12;
+    static final int PAGE_KEYWORD_OFFSETS = 13;
+    static final int KEYWORDS = 14;
+    static final int PAGE_ID_ORDER = 15;
+    static final int URL_INDEX = 16;
+    static final int LINK_SOURCE = 17;
+    static final int LINK_TARGET = 18;
+    static final int LINK_FLAGS = 19;
+    static final int DOMAIN_ID = 20;
+    static final int DOMAIN_NAME = 21;
+    static final int INVALID_URL = 22;
+    static final int STRING_OFFSETS = 23;
+    static final int STRING_HEAP = 24;
+    static final int COLUMN_COUNT = 25;
+    static final int COLUMN_TABLE = 48;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long[] columns;
+
+    private final int pageCount;
+    private final int linkCount;
+    private final int domainCount;
+    private final int invalidURLCount;
+    private final int stringCount;
+    private final int keywordCount;
+    private final int sourceIndex;
+    private final int urlIndexCapacity;
+
+    /**
+     * Constructor - maps the snapshot file and reads its header.
+     * @param fileName of the snapshot
+     * @throws IOException if the file can't be mapped or isn't a snapshot
+     */
+    public WebGraphSnapshot(String fileName) throws IOException {
+
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+
+        try {
+
+            long size = channel.size();
+
+            if(size < HEADER_SIZE){
+                throw new IOException(fileName + " is not a web graph snapshot");
+            }
+
+            // Map the file in chunks, since a single mapping is limited to 2GB
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+
+            for(int i = 0; i < chunks.length; i++){
+
+                long start = (long) i << CHUNK_SHIFT;
+
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+                chunks[i].order(ByteOrder.BIG_ENDIAN);
+            }
+
+            if(getInt(0) != MAGIC || getInt(4) != VERSION){
+                throw new IOException(fileName + " is not a supported web graph snapshot");
+            }
+
+            pageCount = getInt(8);
+            linkCount = getInt(12);
+            domainCount = getInt(16);
+            invalidURLCount = getInt(20);
+            stringCount = getInt(24);
+            keywordCount = getInt(28);
+            sourceIndex = getInt(32);
+            urlIndexCapacity = getInt(36);
+
+            columns = new long[COLUMN_COUNT];
+
+            for(int i = 0; i < COLUMN_COUNT; i++){
+                columns[i] = getLong(COLUMN_TABLE + i * 8);
+            }
+
+        } catch(IOException e){
+
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of pages in the snapshot.
+     * @return page count
+     */
+    public int getPageCount(){
+
+        return pageCount;
+    }
+
+    /**
+     * Returns the number of links in the snapshot.
+     * @return link count
+     */
+    public int getLinkCount(){
+
+        return linkCount;
+    }
+
+    /**
+     * Returns the number of domains in the snapshot.
+     * @return domain count
+     */
+    public int getDomainCount(){
+
+        return domainCount;
+    }
+
+    /**
+     * Returns the number of invalid URLs in the snapshot.
+     * @return invalid URL count
+     */
+    public int getInvalidURLCount(){
+
+        return invalidURLCount;
+    }
+
+    /**
+     * Returns the number of distinct strings in the string heap.
+     * @return string count
+     */
+    public int getStringCount(){
+
+        return stringCount;
+    }
+
+    /**
+     * Returns the number of keywords of every page combined.
+     * @return total keyword count
+     */
+    public int getTotalKeywordCount(){
+
+        return keywordCount;
+    }
+
+    /**
+     * Returns the index of the graph's source page.
+     * @return source page index, or -1 if the source wasn't indexed
+     */
+    public int getSourceIndex(){
+
+        return sourceIndex;
+    }
+
+    /**
+     * Returns the id of the page at the index.
+     * @param index of the page
+     * @return page id
+     */
+    public int getPageId(int index){
+
+        return getInt(column(PAGE_ID, index, 4));
+    }
+
+    /**
+     * Returns the URL of the page at the index.
+     * @param index of the page
+     * @return page URL
+     */
+    public String getUrl(int index){
+
+        return getString(getInt(column(PAGE_URL, index, 4)));
+    }
+
+    /**
+     * Returns the hostname of the page at the index.
+     * @param index of the page
+     * @return page hostname
+     */
+    public String getHostname(int index){
+
+        return getString(getInt(column(PAGE_HOSTNAME, index, 4)));
+    }
+
+    /**
+     * Returns the domain group id of the page at the index.
+     * @param index of the page
+     * @return page domain group id
+     */
+    public int getGroupId(int index){
+
+        return getInt(column(PAGE_GROUP_ID, index, 4));
+    }
+
+    /**
+     * Returns the title of the page at the index.
+     * @param index of the page
+     * @return page title
+     */
+    public String getTitle(int index){
+
+        return getString(getInt(column(PAGE_TITLE, index, 4)));
+    }
+
+    /**
+     * Returns the user agent used to retrieve the page at the index.
+     * @param index of the page
+     * @return page user agent
+     */
+    public String getUserAgent(int index){
+
+        return getString(getInt(column(PAGE_USER_AGENT, index, 4)));
+    }
+
+    /**
+     * Returns the height of the page at the index.
+     * @param index of the page
+     * @return page height
+     */
+    public int getHeight(int index){
+
+        return getInt(column(PAGE_HEIGHT, index, 4));
+    }
+
+    /**
+     * Returns whether the search term was found in the page at the index.
+     * @param index of the page
+     * @return true if found, false if not and null if not searched for
+     */
+    public Boolean searchTermFound(int index){
+
+        byte flags = getByte(column(PAGE_FLAGS, index, 1));
+
+        if((flags & SEARCH_TERM_NULL) != 0){
+            return null;
+        }
+
+        return (flags & SEARCH_TERM_FOUND) != 0;
+    }
+
+    /**
+     * Returns whether the page at the index is a dead end.
+     * @param index of the page
+     * @return true if the page has no links and false otherwise
+     */
+    public boolean isDeadEnd(int index){
+
+        return (getByte(column(PAGE_FLAGS, index, 1)) & DEAD_END) != 0;
+    }
+
+    /**
+     * Returns the word count of the page at the index.
+     * @param index of the page
+     * @return page word count
+     */
+    public int getWordCount(int index){
+
+        return getInt(column(PAGE_WORD_COUNT, index, 4));
+    }
+
+    /**
+     * Returns the char count of the page at the index.
+     * @param index of the page
+     * @return page char count
+     */
+    public int getCharCount(int index){
+
+        return getInt(column(PAGE_CHAR_COUNT, index, 4));
+    }
+
+    /**
+     * Returns the byte count of the page at the index.
+     * @param index of the page
+     * @return page byte count
+     */
+    public int getByteCount(int index){
+
+        return getInt(column(PAGE_BYTE_COUNT, index, 4));
+    }
+
+    /**
+     * Returns the number of images on the page at the index.
+     * @param index of the page
+     * @return page image count
+     */
+    public int getNumberOfImages(int index){
+
+        return getInt(column(PAGE_IMAGES, index, 4));
+    }
+
+    /**
+     * Returns the number of target links of the page at the index.
+     * @param index of the page
+     * @return page target link count
+     */
+    public int getTargetLinkCount(int index){
+
+        return getInt(column(PAGE_TARGET_LINKS, index, 4));
+    }
+
+    /**
+     * Returns the number of keywords of the page at the index.
+     * @param index of the page
+     * @return page keyword count
+     */
+    public int getKeywordCount(int index){
+
+        return getInt(column(PAGE_KEYWORD_OFFSETS, index + 1, 4)) - getInt(column(PAGE_KEYWORD_OFFSETS, index, 4));
+    }
+
+    /**
+     * Returns a keyword of the page at the index.
+     * @param index of the page
+     * @param keyword index within the page's keywords
+     * @return keyword
+     */
+    public String getKeyword(int index, int keyword){
+
+        int offset = getInt(column(PAGE_KEYWORD_OFFSETS, index, 4)) + keyword;
+
+        return getString(getInt(column(KEYWORDS, offset, 4)));
+    }
+
+    /**
+     * Returns the index of the page with the given id with a binary search
+     * of the page id order column.
+     * @param id of the page
+     * @return page index, or -1 if no page has the id
+     */
+    public int indexOfId(int id){
+
+        int low = 0;
+        int high = pageCount - 1;
+
+        while(low <= high){
+
+            int middle = (low + high) >>> 1;
+            int index = getInt(column(PAGE_ID_ORDER, middle, 4));
+            int middleId = getPageId(index);
+
+            if(middleId < id){
+                low = middle + 1;
+            } else if(middleId > id){
+                high = middle - 1;
+            } else {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first page with the given URL, ignoring case
+     * as the web graph does.
+     * @param url of the page
+     * @return page index, or -1 if no page has the URL
+     */
+    public int indexOfUrl(String url){
+
+        if(urlIndexCapacity == 0){
+            return -1;
+        }
+
+        int mask = urlIndexCapacity - 1;
+        int slot = hashUrl(url) & mask;
+
+        while(true){
+
+            int entry = getInt(column(URL_INDEX, slot, 4));
+
+            if(entry == 0){
+                return -1;
+            }
+
+            if(getUrl(entry - 1).equalsIgnoreCase(url)){
+                return entry - 1;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the source page id of the link at the index.
+     * @param index of the link
+     * @return link source id
+     */
+    public int getLinkSourceId(int index){
+
+        return getInt(column(LINK_SOURCE, index, 4));
+    }
+
+    /**
+     * Returns the target page id of the link at the index.
+     * @param index of the link
+     * @return link target id
+     */
+    public int getLinkTargetId(int index){
+
+        return getInt(column(LINK_TARGET, index, 4));
+    }
+
+    /**
+     * Returns whether the link at the index is cyclic.
+     * @param index of the link
+     * @return true if cyclic and false otherwise
+     */
+    public boolean isLinkCyclic(int index){
+
+        return (getByte(column(LINK_FLAGS, index, 1)) & BinaryPageCodec.CYCLIC) != 0;
+    }
+
+    /**
+     * Returns whether the link at the index is bidirectional.
+     * @param index of the link
+     * @return true if bidirectional and false otherwise
+     */
+    public boolean isLinkBidirectional(int index){
+
+        return (getByte(column(LINK_FLAGS, index, 1)) & BinaryPageCodec.BIDIRECTIONAL) != 0;
+    }
+
+    /**
+     * Returns the id of the domain at the index.
+     * @param index of the domain
+     * @return domain id
+     */
+    public int getDomainId(int index){
+
+        return getInt(column(DOMAIN_ID, index, 4));
+    }
+
+    /**
+     * Returns the name of the domain at the index.
+     * @param index of the domain
+     * @return domain name
+     */
+    public String getDomainName(int index){
+
+        return getString(getInt(column(DOMAIN_NAME, index, 4)));
+    }
+
+    /**
+     * Returns the invalid URL at the index.
+     * @param index of the invalid URL
+     * @return invalid URL
+     */
+    public String getInvalidURL(int index){
+
+        return getString(getInt(column(INVALID_URL, index, 4)));
+    }
+
+    /**
+     * Returns a string from the string heap.
+     * @param id of the string
+     * @return string, or null if the id is -1
+     */
+    public String getString(int id){
+
+        if(id < 0){
+            return null;
+        }
+
+        long start = getLong(column(STRING_OFFSETS, id, 8));
+        long end = getLong(column(STRING_OFFSETS, id + 1, 8));
+        int length = (int) (end - start);
+        long position = columns[STRING_HEAP] + start;
+
+        byte[] bytes = new byte[length];
+        int chunk = (int) (position >>> CHUNK_SHIFT);
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+        int first = (int) Math.min(length, CHUNK_SIZE - offset);
+
+        // Strings can span two chunks of the mapping
+        MappedByteBuffer buffer = chunks[chunk];
+
+        for(int i = 0; i < first; i++){
+            bytes[i] = buffer.get(offset + i);
+        }
+
+        for(int i = first; i < length; i++){
+            bytes[i] = chunks[chunk + 1].get(i - first);
+        }
+
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Closes the snapshot file. The mapping is released once the snapshot
+     * is no longer referenced.
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+
+        channel.close();
+    }
+
+    /**
+     * Hashes a URL without case, as the URL index of the snapshot does.
+     * @param url to hash
+     * @return URL hash
+     */
+    static int hashUrl(String url){
+
+        int hash = url.toLowerCase().hashCode() * 0x9E3779B9;
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the file position of an element of a column.
+     * @param column to read
+     * @param index of the element
+     * @param width of an element in bytes
+     * @return file position of the element
+     */
+    private long column(int column, int index, int width){
+
+        return columns[column] + (long) index * width;
+    }
+
+    /**
+     * Reads a byte at the file position.
+     * @param position to read
+     * @return byte read
+     */
+    private byte getByte(long position){
+
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    /**
+     * Reads an int at the file position. Ints are aligned, so never span
+     * two chunks.
+     * @param position to read
+     * @return int read
+     */
+    private int getInt(long position){
+
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    /**
+     * Reads a long at the file position. Longs are aligned, so never span
+     * two chunks.
+     * @param position to read
+     * @return long read
+     */
+    private long getLong(long position){
+
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & (CHUNK_SIZE - 1)));
+    }
+}
@@ -0,0 +1,496 @@
+package Crawler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes a web graph to a columnar snapshot file that WebGraphSnapshot can
+ * memory-map. Every distinct string in the graph is interned into a single
+ * string heap and referred to by id from the columns. The graph must not be
+ * changed while it's being written, so a snapshot is taken once a crawl has
+ * ended.
+ *
+ * @author Seth Dovgan
+ * @version 18JAN19
+ */
+public class WebGraphSnapshotWriter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final HashMap<String, Integer> stringIds;
+    private final ArrayList<String> strings;
+    private final long[] columns;
+    private final ByteBuffer header;
+    private ChannelOutputStream out;
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor - builds a writer with an empty string heap.
+     */
+    public WebGraphSnapshotWriter(){
+
+        stringIds = new HashMap<String, Integer>();
+        strings = new ArrayList<String>();
+        columns = new long[WebGraphSnapshot.COLUMN_COUNT];
+        header = ByteBuffer.allocate(WebGraphSnapshot.HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Writes a snapshot of the graph to the file.
+     * @param graph to write
+     * @param fileName of the snapshot
+     * @throws IOException if the file can't be written
+     */
+    public static void write(WebGraph graph, String fileName) throws IOException {
+
+        new WebGraphSnapshotWriter().writeGraph(graph, fileName);
+    }
+
+    /**
+     * Writes the header, columns and string heap of the graph to the file,
+     * then forces it to disk.
+     * @param graph to write
+     * @param fileName of the snapshot
+     * @throws IOException if the file can't be written
+     */
+    private void writeGraph(WebGraph graph, String fileName) throws IOException {
+
+        ArrayList<WebPage> pages = graph.getWebPages();
+        int linkCount = graph.getLinkCount();
+        ArrayList<Domain> domains = graph.getDomains();
+        ArrayList<String> invalidURLs = graph.getInvalidURLs();
+        int pageCount = pages.size();
+
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        out = new ChannelOutputStream(channel, BUFFER_SIZE);
+        buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.BIG_ENDIAN);
+
+        try {
+
+            // Header is written last once the column offsets are known
+            for(int i = 0; i < WebGraphSnapshot.HEADER_SIZE; i++){
+                putByte((byte) 0);
+            }
+
+            int[] values = new int[pageCount];
+            int sourceIndex = -1;
+            int keywordCount = 0;
+
+            for(int i = 0; i < pageCount; i++){
+
+                WebPage page = pages.get(i);
+                values[i] = page.getId();
+
+                if(page == graph.getSource()){
+                    sourceIndex = i;
+                }
+
+                if(page.getKeywords() != null){
+                    keywordCount += page.getKeywords().size();
+                }
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_ID, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = intern(pages.get(i).getUrl());
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_URL, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = intern(pages.get(i).getHostname());
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_HOSTNAME, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = pages.get(i).getGroupId();
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_GROUP_ID, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = intern(pages.get(i).getTitle());
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_TITLE, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = intern(pages.get(i).getUserAgent());
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_USER_AGENT, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = pages.get(i).getHeight();
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_HEIGHT, values);
+
+            startColumn(WebGraphSnapshot.PAGE_FLAGS);
+
+            for(WebPage page : pages){
+
+                Boolean searchTermFound = page.searchTermFound();
+                int flags = 0;
+
+                if(searchTermFound == null){
+                    flags |= WebGraphSnapshot.SEARCH_TERM_NULL;
+                } else if(searchTermFound){
+                    flags |= WebGraphSnapshot.SEARCH_TERM_FOUND;
+                }
+
+                if(page.isDeadEnd()){
+                    flags |= WebGraphSnapshot.DEAD_END;
+                }
+
+                putByte((byte) flags);
+            }
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = pages.get(i).getWordCount();
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_WORD_COUNT, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = pages.get(i).getCharCount();
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_CHAR_COUNT, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = pages.get(i).getByteCount();
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_BYTE_COUNT, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = pages.get(i).getNumberOfImages();
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_IMAGES, values);
+
+            for(int i = 0; i < pageCount; i++){
+                values[i] = pages.get(i).getTargetLinkCount();
+            }
+
+            putIntColumn(WebGraphSnapshot.PAGE_TARGET_LINKS, values);
+
+            // Keyword offsets hold one more entry than pages, so each page's
+            // keywords run from its offset to the next
+            startColumn(WebGraphSnapshot.PAGE_KEYWORD_OFFSETS);
+
+            int keywordOffset = 0;
+
+            for(WebPage page : pages){
+
+                putInt(keywordOffset);
+
+                if(page.getKeywords() != null){
+                    keywordOffset += page.getKeywords().size();
+                }
+            }
+
+            putInt(keywordOffset);
+
+            startColumn(WebGraphSnapshot.KEYWORDS);
+
+            for(WebPage page : pages){
+
+                if(page.getKeywords() != null){
+
+                    for(String keyword : page.getKeywords()){
+                        putInt(intern(keyword));
+                    }
+                }
+            }
+
+            putPageIdOrder(pages);
+            int urlIndexCapacity = putUrlIndex(pages);
+
+            // Links are read from the graph core once, straight into columns
+            int[] linkSources = new int[linkCount];
+            int[] linkTargets = new int[linkCount];
+            byte[] linkFlags = new byte[linkCount];
+
+            graph.copyWebLinks(0, linkSources, linkTargets, linkFlags);
+
+            putIntColumn(WebGraphSnapshot.LINK_SOURCE, linkSources);
+            putIntColumn(WebGraphSnapshot.LINK_TARGET, linkTargets);
+            startColumn(WebGraphSnapshot.LINK_FLAGS);
+
+            for(byte flags : linkFlags){
+                putByte(flags);
+            }
+
+            startColumn(WebGraphSnapshot.DOMAIN_ID);
+
+            for(Domain domain : domains){
+                putInt(domain.getDomainId());
+            }
+
+            startColumn(WebGraphSnapshot.DOMAIN_NAME);
+
+            for(Domain domain : domains){
+                putInt(intern(domain.getDomainName()));
+            }
+
+            startColumn(WebGraphSnapshot.INVALID_URL);
+
+            for(String invalidURL : invalidURLs){
+                putInt(intern(invalidURL));
+            }
+
+            putStrings();
+
+            writeBuffer();
+            out.flush();
+
+            header.putInt(WebGraphSnapshot.MAGIC);
+            header.putInt(WebGraphSnapshot.VERSION);
+            header.putInt(pageCount);
+            header.putInt(linkCount);
+            header.putInt(domains.size());
+            header.putInt(invalidURLs.size());
+            header.putInt(strings.size());
+            header.putInt(keywordCount);
+            header.putInt(sourceIndex);
+            header.putInt(urlIndexCapacity);
+            header.position(WebGraphSnapshot.COLUMN_TABLE);
+
+            for(long column : columns){
+                header.putLong(column);
+            }
+
+            header.position(0);
+
+            while(header.hasRemaining()){
+                channel.write(header, header.position());
+            }
+
+            out.force();
+
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the page indexes sorted by page id, so the reader can find a
+     * page by id with a binary search.
+     * @param pages to write the order of
+     * @throws IOException if the column can't be written
+     */
+    private void putPageIdOrder(ArrayList<WebPage> pages) throws IOException {
+
+        // Sort the ids with their indexes packed into the low bits
+        long[] order = new long[pages.size()];
+
+        for(int i = 0; i < order.length; i++){
+            order[i] = ((long) pages.get(i).getId() << 32) | i;
+        }
+
+        Arrays.sort(order);
+
+        startColumn(WebGraphSnapshot.PAGE_ID_ORDER);
+
+        for(long entry : order){
+            putInt((int) entry);
+        }
+    }
+
+    /**
+     * Writes an open addressing table mapping the lower case URL hash of each
+     * page to its index plus one, with 0 marking an empty slot.
+     * @param pages to index
+     * @return capacity of the table, a power of two
+     * @throws IOException if the column can't be written
+     */
+    private int putUrlIndex(ArrayList<WebPage> pages) throws IOException {
+
+        int capacity = 0;
+
+        if(!pages.isEmpty()){
+            capacity = Integer.highestOneBit(pages.size() * 2 - 1) << 1;
+        }
+
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+
+        for(int i = 0; i < pages.size(); i++){
+
+            int slot = WebGraphSnapshot.hashUrl(pages.get(i).getUrl()) & mask;
+
+            while(table[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = i + 1;
+        }
+
+        putIntColumn(WebGraphSnapshot.URL_INDEX, table);
+
+        return capacity;
+    }
+
+    /**
+     * Writes the string heap followed by the offset of each string in it.
+     * The offsets hold one more entry than strings, so each string runs from
+     * its offset to the next.
+     * @throws IOException if the strings can't be written
+     */
+    private void putStrings() throws IOException {
+
+        long[] offsets = new long[strings.size() + 1];
+        long offset = 0;
+
+        startColumn(WebGraphSnapshot.STRING_HEAP);
+
+        for(int i = 0; i < strings.size(); i++){
+
+            byte[] bytes = strings.get(i).getBytes(UTF_8);
+
+            offsets[i] = offset;
+            offset += bytes.length;
+
+            writeBuffer();
+            out.write(bytes, 0, bytes.length);
+        }
+
+        offsets[strings.size()] = offset;
+
+        startColumn(WebGraphSnapshot.STRING_OFFSETS);
+
+        for(long value : offsets){
+            putLong(value);
+        }
+    }
+
+    /**
+     * Returns the id of the string, adding it to the string heap if it's the
+     * first time it's been seen.
+     * @param value to intern
+     * @return string id, or -1 for null
+     */
+    private int intern(String value){
+
+        if(value == null){
+            return -1;
+        }
+
+        Integer id = stringIds.get(value);
+
+        if(id == null){
+
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Pads the output to an 8 byte boundary and records the start of the
+     * column.
+     * @param column starting
+     * @throws IOException if the padding can't be written
+     */
+    private void startColumn(int column) throws IOException {
+
+        while(position() % 8 != 0){
+            putByte((byte) 0);
+        }
+
+        columns[column] = position();
+    }
+
+    /**
+     * Writes a column of ints.
+     * @param column starting
+     * @param values of the column
+     * @throws IOException if the column can't be written
+     */
+    private void putIntColumn(int column, int[] values) throws IOException {
+
+        startColumn(column);
+
+        for(int value : values){
+            putInt(value);
+        }
+    }
+
+    /**
+     * Returns the file position of the next byte written.
+     * @return file position
+     */
+    private long position(){
+
+        return out.getPosition() + buffer.position();
+    }
+
+    /**
+     * Writes a byte.
+     * @param value to write
+     * @throws IOException if the buffer can't be written
+     */
+    private void putByte(byte value) throws IOException {
+
+        if(!buffer.hasRemaining()){
+            writeBuffer();
+        }
+
+        buffer.put(value);
+    }
+
+    /**
+     * Writes an int.
+     * @param value to write
+     * @throws IOException if the buffer can't be written
+     */
+    private void putInt(int value) throws IOException {
+
+        if(buffer.remaining() < 4){
+            writeBuffer();
+        }
+
+        buffer.putInt(value);
+    }
+
+    /**
+     * Writes a long.
+     * @param value to write
+     * @throws IOException if the buffer can't be written
+     */
+    private void putLong(long value) throws IOException {
+
+        if(buffer.remaining() < 8){
+            writeBuffer();
+        }
+
+        buffer.putLong(value);
+    }
+
+    /**
+     * Moves the values buffered so far to the channel stream.
+     * @throws IOException if the stream can't be written
+     */
+    private void writeBuffer() throws IOException {
+
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
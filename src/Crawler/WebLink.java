@@ -7,6 +7,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * includes both the source and target web page, and is the link is cyclic
  * or bi-directional.
  *
+ * Once a link is added to a web graph it becomes a view of the link stored
+ * in the graph's primitive core, and links read from a graph are views built
+ * on demand. Changes to a view are written through to the graph.
+ *
  * @author Seth Dovgan
  * @version 18JAN19
  */
@@ -18,6 +22,10 @@ public class WebLink {
     private WebPage target;
     private boolean isCyclic;
     private boolean isBidirectional;
+    @JsonIgnore
+    private WebGraph graph;
+    @JsonIgnore
+    private int index;
 
     /**
      * Constructor - build the object with the given parameters and initializes
@@ -32,6 +40,33 @@ public class WebLink {
         this.target = target;
         this.isCyclic = isCyclic;
         this.isBidirectional = false;
+        this.graph = null;
+        this.index = GraphCore.NONE;
+    }
+
+    /**
+     * Constructor - builds a view of a link stored in the graph.
+     * @param graph holding the link
+     * @param index of the link in the graph
+     */
+    WebLink(WebGraph graph, int index) {
+
+        this.graph = graph;
+        this.index = index;
+    }
+
+    /**
+     * Makes the link a view of a link stored in the graph, once it's been
+     * added to the graph.
+     * @param graph holding the link
+     * @param index of the link in the graph
+     */
+    void bind(WebGraph graph, int index) {
+
+        this.graph = graph;
+        this.index = index;
+        this.source = null;
+        this.target = null;
     }
 
     /**
@@ -40,7 +75,7 @@ public class WebLink {
      */
     public int getSourceId() {
 
-        return this.source.getId();
+        return getSource().getId();
     }
 
     /**
@@ -50,7 +85,7 @@ public class WebLink {
     @JsonIgnore
     public WebPage getSource() {
 
-        return source;
+        return graph != null ? graph.getLinkSource(index) : source;
     }
 
     /**
@@ -59,7 +94,7 @@ public class WebLink {
      */
     public int getTargetId() {
 
-        return this.target.getId();
+        return getTarget().getId();
     }
 
     /**
@@ -69,7 +104,7 @@ public class WebLink {
     @JsonIgnore
     public WebPage getTarget() {
 
-        return source;
+        return graph != null ? graph.getLinkTarget(index) : target;
     }
 
     /**
@@ -78,7 +113,7 @@ public class WebLink {
      */
     public boolean isCyclic(){
 
-        return isCyclic;
+        return graph != null ? graph.isLinkCyclic(index) : isCyclic;
     }
 
     /**
@@ -87,7 +122,11 @@ public class WebLink {
      */
     public void setCyclic(boolean isCyclic) {
 
-        this.isCyclic = isCyclic;
+        if(graph != null){
+            graph.setLinkCyclic(index, isCyclic);
+        } else {
+            this.isCyclic = isCyclic;
+        }
     }
 
     /**
@@ -96,7 +135,7 @@ public class WebLink {
      */
     public boolean isBidirectional() {
 
-        return isBidirectional;
+        return graph != null ? graph.isLinkBidirectional(index) : isBidirectional;
     }
 
     /**
@@ -105,7 +144,11 @@ public class WebLink {
      */
     public void setBidirectional(boolean isBidirectional) {
 
-        this.isBidirectional = isBidirectional;
+        if(graph != null){
+            graph.setLinkBidirectional(index, isBidirectional);
+        } else {
+            this.isBidirectional = isBidirectional;
+        }
     }
 
     /**
@@ -132,16 +175,16 @@ public class WebLink {
 
         String link = "";
 
-        if(isCyclic){
+        if(isCyclic()){
             link += "\t#";
-        } else if (isBidirectional) {
+        } else if (isBidirectional()) {
             link += "\t*";
         }
 
         link += "[" + getSourceId() + " -> "
                 + getTargetId() + "]["
-                + this.source.getAbbreviatedURL() + " -> "
-                + this.target.getAbbreviatedURL() + "]";
+                + getSource().getAbbreviatedURL() + " -> "
+                + getTarget().getAbbreviatedURL() + "]";
 
         return link;
     }
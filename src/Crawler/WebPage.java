@@ -9,7 +9,6 @@ import java.net.InetAddress;
 // JSON converting imports
 import com.fasterxml.jackson.annotation.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Web Page class to capture the details of a web page which includes attributes
@@ -22,11 +21,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @JsonPropertyOrder({"id", "url", "hostname", "ipAddress", "groupId", "title", "userAgent", "height",
         "searchTermFound", "keywords", "wordCount", "charCount", "byteCount",
-        "numberOfImages", "isDeadEnd", "targetLinkCount", "predecessorLinks" })
+        "numberOfImages", "isDeadEnd", "targetLinkCount", "predecessorLinks",
+        "pageRank", "hubScore", "authorityScore", "strongComponent", "weakComponent", "distance" })
 @JsonIdentityInfo(generator=ObjectIdGenerators.PropertyGenerator.class, property="id")
 public class WebPage {
 
-    private static int idCounter = 0; // Used to assign unique id(s)
+    public static final int UNASSIGNED_ID = -1; // Id of a page not yet in a graph
 
     // Graph tracking variables
     @JsonIgnore
@@ -48,10 +48,31 @@ public class WebPage {
     private int numberOfImages;
     private boolean isDeadEnd;
 
-    @JsonIgnore
-    private ArrayList<WebPage> targetLinks;
+    // Link analysis scores, left out of the JSON until the page is ranked
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double pageRank;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double hubScore;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double authorityScore;
+
+    // Structure analysis results, left out of the JSON until the graph is analyzed
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer strongComponent;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer weakComponent;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer distance;
+
+    private int targetLinkCount;
     private ArrayList<WebLink> predecessorLinks;
 
+    // Graph the page was added to, which then holds its predecessor links
+    @JsonIgnore
+    private WebGraph graph;
+    @JsonIgnore
+    private int nodeIndex;
+
     /**
      * Constructor - Sets the URL variable and sets all other options to default.
      * @param url of the web page
@@ -61,10 +82,7 @@ public class WebPage {
         setDefaultValues();
 
         this.url = url;
-        this.id = idCounter;
         this.hostname = getHostName(url);
-
-        idCounter++; // Increment id for next web page
     }
 
     /**
@@ -78,11 +96,8 @@ public class WebPage {
         setDefaultValues();
 
         this.url = url;
-        this.id = idCounter;
         this.height = height;
         this.hostname = getHostName(url);
-
-        idCounter++; // Increment id for next web page
     }
 
     /**
@@ -122,7 +137,8 @@ public class WebPage {
     }
 
     /**
-     * Returns the web page id.
+     * Returns the web page id, assigned by the graph when the page is added
+     * to it, or UNASSIGNED_ID before then.
      * @return web page id
      */
     public int getId() {
@@ -241,6 +257,10 @@ public class WebPage {
     public void setSearchTermFound(Boolean searchTermFound) {
 
         this.searchTermFound = searchTermFound;
+
+        if(graph != null){
+            graph.searchTermChanged(this);
+        }
     }
 
     /**
@@ -353,33 +373,128 @@ public class WebPage {
     }
 
     /**
-     * Adds a link found in the web page.
-     * @param link to add to the web page target list
+     * Returns the PageRank of the web page, or null if it hasn't been ranked.
+     * @return page rank of the web page
      */
-    public void addTargetLink(WebPage link){
+    public Double getPageRank() {
 
-        targetLinks.add(link);
+        return pageRank;
     }
 
     /**
-     * Returns the list of target links in the web page.
-     * @return target links in the web page
+     * Sets the PageRank of the web page.
+     * @param pageRank of the web page
      */
-    @JsonIgnore
-    public ArrayList<WebPage> getTargetLinks(){
+    public void setPageRank(Double pageRank) {
 
-        return targetLinks;
+        this.pageRank = pageRank;
     }
 
     /**
-     * Returns a target link at the specified index.
-     * @param index of the target link in the list
-     * @return the target link at the specified index
+     * Returns the HITS hub score of the web page, or null if it hasn't been
+     * ranked.
+     * @return hub score of the web page
      */
-    @JsonIgnore
-    public WebPage getTargetLink(int index) {
+    public Double getHubScore() {
+
+        return hubScore;
+    }
+
+    /**
+     * Sets the HITS hub score of the web page.
+     * @param hubScore of the web page
+     */
+    public void setHubScore(Double hubScore) {
 
-        return targetLinks.get(index);
+        this.hubScore = hubScore;
+    }
+
+    /**
+     * Returns the HITS authority score of the web page, or null if it hasn't
+     * been ranked.
+     * @return authority score of the web page
+     */
+    public Double getAuthorityScore() {
+
+        return authorityScore;
+    }
+
+    /**
+     * Sets the HITS authority score of the web page.
+     * @param authorityScore of the web page
+     */
+    public void setAuthorityScore(Double authorityScore) {
+
+        this.authorityScore = authorityScore;
+    }
+
+    /**
+     * Returns the strongly connected component of the web page, or null if
+     * the graph hasn't been analyzed.
+     * @return strong component of the web page
+     */
+    public Integer getStrongComponent() {
+
+        return strongComponent;
+    }
+
+    /**
+     * Sets the strongly connected component of the web page.
+     * @param strongComponent of the web page
+     */
+    public void setStrongComponent(Integer strongComponent) {
+
+        this.strongComponent = strongComponent;
+    }
+
+    /**
+     * Returns the weakly connected component of the web page, or null if the
+     * graph hasn't been analyzed.
+     * @return weak component of the web page
+     */
+    public Integer getWeakComponent() {
+
+        return weakComponent;
+    }
+
+    /**
+     * Sets the weakly connected component of the web page.
+     * @param weakComponent of the web page
+     */
+    public void setWeakComponent(Integer weakComponent) {
+
+        this.weakComponent = weakComponent;
+    }
+
+    /**
+     * Returns the number of links on the shortest path from the source page
+     * to the web page, or null if it wasn't reached or the graph hasn't been
+     * analyzed.
+     * @return distance from the source page
+     */
+    public Integer getDistance() {
+
+        return distance;
+    }
+
+    /**
+     * Sets the number of links on the shortest path from the source page to
+     * the web page.
+     * @param distance from the source page
+     */
+    public void setDistance(Integer distance) {
+
+        this.distance = distance;
+    }
+
+    /**
+     * Set the number of new links found in the web page. The links themselves
+     * are queued in the crawl's frontier rather than kept by the page.
+     * @param targetLinkCount of the web page
+     */
+    public void setTargetLinkCount(int targetLinkCount){
+
+        this.targetLinkCount = targetLinkCount;
     }
 
     /**
@@ -388,7 +503,7 @@ public class WebPage {
      */
     public int getTargetLinkCount(){
 
-        return targetLinks.size();
+        return targetLinkCount;
     }
 
     /**
@@ -433,21 +548,125 @@ public class WebPage {
     }
 
     /**
-     * Returns the list of predecessor (backwards looking) links for the web page
+     * Returns the list of predecessor (backwards looking) links for the web
+     * page. Once the page is in a graph the links are views built from the
+     * graph on each call.
      * @return web page list of predecessor links
      */
     public ArrayList<WebLink> getPredecessorLinks() {
 
-        return predecessorLinks;
+        if(graph == null){
+            return predecessorLinks;
+        }
+
+        ArrayList<WebLink> links = graph.getOwnedLinks(nodeIndex);
+
+        if(predecessorLinks != null){
+            links.addAll(predecessorLinks);
+        }
+
+        return links;
+    }
+
+    /**
+     * Returns the number of predecessor links for the web page.
+     * @return number of predecessor links
+     */
+    @JsonIgnore
+    public int getPredecessorLinkCount() {
+
+        int count = predecessorLinks == null ? 0 : predecessorLinks.size();
+
+        if(graph != null){
+            count += graph.getOwnedLinkCount(nodeIndex);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a predecessor link at the specified index.
+     * @param index of the predecessor link
+     * @return the predecessor link at the specified index
+     */
+    @JsonIgnore
+    public WebLink getPredecessorLink(int index) {
+
+        if(graph != null){
+
+            int owned = graph.getOwnedLinkCount(nodeIndex);
+
+            if(index < owned){
+                return graph.getOwnedLink(nodeIndex, index);
+            }
+
+            index -= owned;
+        }
+
+        return predecessorLinks.get(index);
     }
 
     /**
-     * Adds a web page predecessor in the form of a link.
+     * Adds a web page predecessor in the form of a link. Once the page is in
+     * a graph, the link is stored in the graph if both its pages are in it.
      * @param parentId web link
      */
     public void addPredecessorLink(WebLink parentId) {
 
-        predecessorLinks.add(parentId);
+        if(graph == null || !graph.addOwnedLink(parentId, nodeIndex)){
+
+            if(predecessorLinks == null){
+                predecessorLinks = new ArrayList<WebLink>();
+            }
+
+            predecessorLinks.add(parentId);
+        }
+    }
+
+    /**
+     * Attaches the page to the graph it was added to, moving its predecessor
+     * links into the graph.
+     * @param graph the page was added to
+     * @param nodeIndex of the page in the graph
+     * @param id assigned to the page by the graph
+     */
+    void attach(WebGraph graph, int nodeIndex, int id) {
+
+        ArrayList<WebLink> pending = predecessorLinks;
+
+        this.graph = graph;
+        this.nodeIndex = nodeIndex;
+        this.id = id;
+        this.predecessorLinks = null;
+
+        if(Boolean.TRUE.equals(searchTermFound)){
+            graph.searchTermChanged(this);
+        }
+
+        if(pending != null){
+
+            for(WebLink link : pending){
+                addPredecessorLink(link);
+            }
+        }
+    }
+
+    /**
+     * Returns the graph the page was added to.
+     * @return graph of the page, or null
+     */
+    WebGraph getGraph() {
+
+        return graph;
+    }
+
+    /**
+     * Returns the index of the page in its graph.
+     * @return node index of the page
+     */
+    int getNodeIndex() {
+
+        return nodeIndex;
     }
 
     /**
@@ -456,6 +675,7 @@ public class WebPage {
     private void setDefaultValues() {
 
         this.state = State.DISCOVERED;
+        this.id = UNASSIGNED_ID;
         this.height = -1;
         this.predecessorLinks = new ArrayList<WebLink>();
         this.groupId = 0;
@@ -466,8 +686,10 @@ public class WebPage {
         this.charCount = 0;
         this.byteCount = 0;
         this.numberOfImages = 0;
-        this.targetLinks = new ArrayList<WebPage>();
+        this.targetLinkCount = 0;
         this.isDeadEnd = false;
+        this.graph = null;
+        this.nodeIndex = GraphCore.NONE;
     }
 
     /**
@@ -477,11 +699,9 @@ public class WebPage {
     @JsonIgnore
     public String toJson() {
 
-        ObjectMapper mapper = new ObjectMapper();
-
         try {
 
-            return mapper.writeValueAsString(this) + "#!#";
+            return JsonWriters.PAGE.writeValueAsString(this) + "#!#";
 
         } catch (JsonProcessingException e) {
 
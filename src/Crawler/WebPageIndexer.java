@@ -3,12 +3,15 @@ package Crawler;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URL;
 import java.util.Set;
 import java.util.HashSet;
 
 // HTML Parser Imports
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
+import org.jsoup.UncheckedIOException;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -26,9 +29,20 @@ public class WebPageIndexer {
 
     private String url;
     private Document htmlDoc;
+    private Connection.Response response;
     private String userAgent;
     private boolean useRandomUserAgent;
     private boolean isDeadEnd;
+    private int responseByteCount;
+    private int statusCode;
+    private InvalidReason failureReason;
+
+    // Fetch metrics, not recorded if no registry is set
+    private MetricsRegistry metrics;
+    private LatencyHistogram dnsTime;
+    private LatencyHistogram ttfbTime;
+    private LatencyHistogram downloadTime;
+    private LatencyHistogram parseTime;
 
     /**
      * Constructor - sets the url of the page to index, as well as, setting the
@@ -47,7 +61,11 @@ public class WebPageIndexer {
     public void setUrl(String url) {
 
         this.url = url;
+        response = null;
         isDeadEnd = false;
+        responseByteCount = 0;
+        statusCode = InvalidURL.NO_STATUS_CODE;
+        failureReason = null;
     }
 
     /**
@@ -78,6 +96,25 @@ public class WebPageIndexer {
         this.userAgent = "*";
     }
 
+    /**
+     * Sets the registry to record the fetch latencies and errors in. The
+     * host lookup, the time to the response headers (including the
+     * connection, which the HTML parser doesn't time separately), the body
+     * download and the parse are each timed.
+     * @param metrics to record in, or null to stop recording
+     */
+    public void setMetrics(MetricsRegistry metrics){
+
+        this.metrics = metrics;
+
+        if(metrics != null){
+            dnsTime = metrics.histogram("fetch.dns");
+            ttfbTime = metrics.histogram("fetch.ttfb");
+            downloadTime = metrics.histogram("fetch.download");
+            parseTime = metrics.histogram("fetch.parse");
+        }
+    }
+
     /**
      * Connects to the given url, retrieves the html document and returns a
      * boolean value on whether the operation was successful.
@@ -86,26 +123,131 @@ public class WebPageIndexer {
      */
     public boolean connectAndRetrieveHtml(){
 
+        return fetchHtml() && parseHtml();
+    }
+
+    /**
+     * Connects to the given url and downloads the body of the response,
+     * leaving it to be parsed by parseHtml, possibly on another thread.
+     * @return false if the url is invalid and true otherwise, an unreachable
+     * page being a dead end
+     */
+    public boolean fetchHtml(){
+
         // Set a new agent for each connection if selected.
         if(useRandomUserAgent){
             userAgent = UserAgent.getRandomUserAgent();
         }
 
+        CrawlEvents.FetchEvent fetchEvent = new CrawlEvents.FetchEvent();
+        fetchEvent.begin();
+
         // Attempt to connect to the url and retrieve the html document
         try {
 
+            long start = System.nanoTime();
+            resolveHost();
+            record(dnsTime, start);
+
             Connection connection = Jsoup.connect(url).userAgent(userAgent);
-            htmlDoc = connection.get();
+
+            start = System.nanoTime();
+            response = connection.execute();
+            statusCode = response.statusCode();
+            record(ttfbTime, start);
+
+            // Buffer the body before parsing so its size is known
+            start = System.nanoTime();
+            responseByteCount = response.bodyAsBytes().length;
+            record(downloadTime, start);
+            fetchEvent.end();
+
+            return true;
+
+        // Unable to connect to the url
+        } catch(IOException ioe){
+
+            countError(ioe.getClass().getSimpleName());
+            isDeadEnd = true;
+            htmlDoc = null;
+            response = null;
+            return true;
+
+        // Connection lost while reading the body
+        } catch(UncheckedIOException uioe){
+
+            countError(uioe.getClass().getSimpleName());
+            isDeadEnd = true;
+            htmlDoc = null;
+            response = null;
+            return true;
+
+        // Invalid url
+        } catch (IllegalArgumentException e){
+
+            countError(e.getClass().getSimpleName());
+            isDeadEnd = true;
+            htmlDoc = null;
+            response = null;
+            failureReason = InvalidReason.MALFORMED_URL;
+            return false;
+
+        } catch (NullPointerException e){
+
+            countError(e.getClass().getSimpleName());
+            isDeadEnd = true;
+            htmlDoc = null;
+            response = null;
+            failureReason = InvalidReason.UNKNOWN;
+            return false;
+
+        } finally {
+            commitFetchEvent(fetchEvent);
+        }
+    }
+
+    /**
+     * Parses the response downloaded by fetchHtml into the html document and
+     * checks its status code and content type. A page that couldn't be
+     * reached is left as a dead end.
+     * @return true if the html document retrieval was successful and false
+     * otherwise
+     */
+    public boolean parseHtml(){
+
+        if(response == null){
+            return true; // Dead end from the fetch
+        }
+
+        Connection.Response parsed = response;
+        response = null;
+
+        try {
+
+            CrawlEvents.ParseEvent parseEvent = new CrawlEvents.ParseEvent();
+            parseEvent.begin();
+
+            long start = System.nanoTime();
+            htmlDoc = parsed.parse();
+            record(parseTime, start);
+
+            if(parseEvent.shouldCommit()){
+                parseEvent.url = url;
+                parseEvent.bytes = responseByteCount;
+                parseEvent.commit();
+            }
 
             // Server error, send status code to stderr
-            if(connection.response().statusCode() != 200){
+            if(statusCode != 200){
 
-                System.err.print("Error Status Code" + connection.response().statusCode() + " @" + url);
+                countError("HttpStatus" + statusCode);
+                failureReason = InvalidReason.STATUS_CODE;
+                System.err.print("Error Status Code" + statusCode + " @" + url);
                 return false;
             }
 
             // No html web page
-            if(!connection.response().contentType().contains("text/html")){
+            if(!parsed.contentType().contains("text/html")){
 
                 isDeadEnd = true;
                 return true;
@@ -113,28 +255,135 @@ public class WebPageIndexer {
 
             return true;
 
-        // Unable to connect to the url
+        // Unable to read the document
         } catch(IOException ioe){
 
+            countError(ioe.getClass().getSimpleName());
             isDeadEnd = true;
             htmlDoc = null;
             return true;
 
-        // Invalid url
-        } catch (IllegalArgumentException e){
+        // Connection lost while reading the document
+        } catch(UncheckedIOException uioe){
 
+            countError(uioe.getClass().getSimpleName());
             isDeadEnd = true;
             htmlDoc = null;
-            return false;
+            return true;
 
         } catch (NullPointerException e){
 
+            countError(e.getClass().getSimpleName());
             isDeadEnd = true;
             htmlDoc = null;
+            failureReason = InvalidReason.UNKNOWN;
             return false;
         }
     }
 
+    /**
+     * Commits the fetch event of the last connection if it's enabled. A
+     * failed connection is committed with the time until it failed.
+     * @param event of the fetch
+     */
+    private void commitFetchEvent(CrawlEvents.FetchEvent event){
+
+        if(event.shouldCommit()){
+
+            event.url = url;
+            event.status = statusCode;
+            event.bytes = responseByteCount;
+
+            try {
+                event.host = new URL(url).getHost();
+            } catch(IOException e) {
+                event.host = null;
+            }
+
+            event.commit();
+        }
+    }
+
+    /**
+     * Looks up the address of the url's host so the lookup is timed on its
+     * own. The address is cached by the JVM for the connection that
+     * follows. A failed lookup is left for the connection to report.
+     */
+    private void resolveHost(){
+
+        try {
+            InetAddress.getByName(new URL(url).getHost());
+        } catch(IOException e) {
+            // Reported by the connection
+        }
+    }
+
+    /**
+     * Records the time passed since the start in the histogram if metrics
+     * are recorded.
+     * @param histogram to record in
+     * @param start from System.nanoTime()
+     */
+    private void record(LatencyHistogram histogram, long start){
+
+        if(metrics != null){
+            histogram.recordSince(start);
+        }
+    }
+
+    /**
+     * Counts an error of the given class if metrics are recorded.
+     * @param errorClass name of the error, such as its exception class
+     */
+    private void countError(String errorClass){
+
+        if(metrics != null){
+            metrics.counter("errors." + errorClass).increment();
+        }
+    }
+
+    /**
+     * Returns the status code of the last response, or NO_STATUS_CODE if no
+     * response was received.
+     * @return response status code
+     */
+    public int getStatusCode(){
+
+        return statusCode;
+    }
+
+    /**
+     * Marks the page as failed by an unexpected error thrown while fetching
+     * or parsing it.
+     * @param e error thrown
+     */
+    void fail(RuntimeException e){
+
+        countError(e.getClass().getSimpleName());
+        isDeadEnd = true;
+        htmlDoc = null;
+        response = null;
+        failureReason = InvalidReason.UNKNOWN;
+    }
+
+    /**
+     * Returns why the last connection failed, or null if it didn't.
+     * @return failure reason of the last connection
+     */
+    public InvalidReason getFailureReason(){
+
+        return failureReason;
+    }
+
+    /**
+     * Returns the number of bytes received in the body of the last response.
+     * @return response body byte count or 0 if no body was received
+     */
+    public int getResponseByteCount(){
+
+        return responseByteCount;
+    }
+
     /**
      * Returns the links found in the html document
      * @return web page links found at the url